@@ -19,6 +19,41 @@ CREATE TABLE player
     experience     INT(10)     NULL,
     level          INT(3)      NULL,
     untilNextLevel INT(10)     NULL,
+    updated        TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    deleted        TIMESTAMP(3) NULL,
+    PRIMARY KEY (id)
+)
+    ENGINE = InnoDB
+    DEFAULT CHARACTER SET = utf8;
+
+-- Догонка снимка игроков после перезапуска читает только строки, измененные после отметки.
+-- Для существующей базы:
+--   ALTER TABLE player ADD COLUMN updated TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+CREATE INDEX player_updated ON player (updated);
+
+-- Мягкое удаление (rpg.delete.soft): отметка времени удаления, строку позже стирает PlayerPurger.
+-- Для существующей базы:
+--   ALTER TABLE player ADD COLUMN deleted TIMESTAMP(3) NULL;
+CREATE INDEX player_deleted ON player (deleted);
+
+-- Холодная часть: забаненные и давно неактивные игроки, их переносит PlayerArchive (rpg.archive.*).
+-- id сохраняется, поэтому без AUTO_INCREMENT; updated - последнее изменение до переноса.
+DROP TABLE IF EXISTS player_archive;
+
+CREATE TABLE player_archive
+(
+    id             BIGINT(20)  NOT NULL,
+    name           VARCHAR(12) NULL,
+    title          VARCHAR(30) NULL,
+    race           VARCHAR(20) NULL,
+    profession     VARCHAR(20) NULL,
+    birthday       DATE        NULL,
+    banned         BIT(1)      NULL,
+    experience     INT(10)     NULL,
+    level          INT(3)      NULL,
+    untilNextLevel INT(10)     NULL,
+    updated        TIMESTAMP(3) NOT NULL,
+    archived       TIMESTAMP(3) NOT NULL,
     PRIMARY KEY (id)
 )
     ENGINE = InnoDB
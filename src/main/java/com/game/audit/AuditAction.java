@@ -0,0 +1,12 @@
+package com.game.audit;
+
+// Код действия - порядковый номер; новые действия добавляются только в конец, иначе старые записи прочитаются неверно
+public enum AuditAction {
+    CREATE,
+    UPDATE,
+    BAN,
+    UNBAN,
+    DELETE,
+    ARCHIVE,
+    RESTORE
+}
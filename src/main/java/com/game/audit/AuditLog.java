@@ -0,0 +1,176 @@
+package com.game.audit;
+
+import com.game.requests.ClientKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Журнал аудита: кто и что сделал с игроком. Запись в PlayerService только кладет
+ * компактную запись в кольцевой буфер (после коммита транзакции); в сегменты на диске
+ * ее переносит единственный поток-писатель. Если буфер полон, запись теряется
+ * и считается в dropped - запись игрока из-за аудита не ждет.
+ */
+@Component
+public class AuditLog implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final String SYSTEM_ACTOR = "system";
+
+    private final boolean enabled;
+    private final AuditRingBuffer buffer;
+    private final AuditSegments segments;
+    private final FsyncPolicy fsync;
+    private final long fsyncNanos;
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    // Меняет только писатель
+    private volatile long written;
+    private volatile boolean running = true;
+    private final Thread writer;
+
+    public AuditLog(@Value("${rpg.audit.enabled:true}") boolean enabled,
+                    @Value("${rpg.audit.dir:}") String directory,
+                    @Value("${rpg.audit.buffer-size:65536}") int bufferSize,
+                    @Value("${rpg.audit.segment-bytes:16777216}") int segmentBytes,
+                    @Value("${rpg.audit.retained-segments:32}") int retainedSegments,
+                    @Value("${rpg.audit.fsync:INTERVAL}") FsyncPolicy fsync,
+                    @Value("${rpg.audit.fsync-millis:1000}") long fsyncMillis) throws IOException {
+        this.enabled = enabled;
+        this.buffer = new AuditRingBuffer(bufferSize);
+        this.segments = new AuditSegments(directory(directory), segmentBytes, retainedSegments);
+        this.fsync = fsync;
+        this.fsyncNanos = TimeUnit.MILLISECONDS.toNanos(fsyncMillis);
+        this.writer = new Thread(this::writeLoop, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static Path directory(String directory) throws IOException {
+        if (!directory.trim().isEmpty()) {
+            return Paths.get(directory.trim());
+        }
+        Path temporary = Files.createTempDirectory("rpg-audit");
+        log.warn("rpg.audit.dir не задан, журнал аудита пишется во временный каталог {}", temporary);
+        return temporary;
+    }
+
+    public void record(AuditAction action, long playerId) {
+        if (!enabled) {
+            return;
+        }
+        // X-Client-Id подделывается кем угодно - в actor только адрес или пользователь, заголовок отдельно
+        String actor = ClientKey.currentActor();
+        AuditRecord record = new AuditRecord(System.currentTimeMillis(), playerId, action,
+                actor != null ? actor : SYSTEM_ACTOR, ClientKey.currentClaimed());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(record);
+            return;
+        }
+        // Откатившаяся запись не должна попасть в аудит
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(record);
+            }
+        });
+    }
+
+    public List<AuditRecord> history(long playerId) throws IOException {
+        return segments.read(playerId);
+    }
+
+    // Ждет, пока писатель перенесет на диск все, что уже лежит в буфере; false - не успел за timeout
+    public boolean flush(long timeoutMillis) {
+        long target = enqueued.sum();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (written + failed.sum() < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+        }
+        return true;
+    }
+
+    public Map<String, Object> metrics() throws IOException {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("enqueued", enqueued.sum());
+        metrics.put("written", written);
+        metrics.put("dropped", dropped.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("bufferCapacity", buffer.capacity());
+        metrics.put("segments", segments.segmentCount());
+        metrics.put("fsync", fsync);
+        return metrics;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void enqueue(AuditRecord record) {
+        if (buffer.offer(record)) {
+            enqueued.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void writeLoop() {
+        long lastForce = System.nanoTime();
+        boolean dirty = false;
+        while (true) {
+            AuditRecord record = buffer.poll();
+            if (record != null) {
+                try {
+                    segments.append(record);
+                    written++;
+                    dirty = true;
+                } catch (IOException | RuntimeException e) {
+                    failed.increment();
+                    log.error("Не удалось записать аудит игрока {}", record.getPlayerId(), e);
+                }
+            }
+            boolean idle = record == null;
+            if (dirty && (fsync == FsyncPolicy.ALWAYS
+                    || fsync == FsyncPolicy.BATCH && idle
+                    || fsync == FsyncPolicy.INTERVAL && System.nanoTime() - lastForce >= fsyncNanos)) {
+                segments.force();
+                lastForce = System.nanoTime();
+                dirty = false;
+            }
+            if (idle) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        try {
+            segments.close();
+        } catch (IOException e) {
+            log.warn("Журнал аудита закрыт с ошибкой", e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.game.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/*
+ * Запись журнала аудита. Формат в сегменте (big-endian):
+ * длина записи целиком (int), CRC32 всего, что после нее (int), время (long), id игрока (long),
+ * действие (byte), длина клиента в байтах (short), клиент в UTF-8 - адрес соединения или
+ * аутентифицированный пользователь. Если клиент назвал себя заголовком X-Client-Id, следом идут
+ * длина (short) и сам заявленный идентификатор: он не проверяется и хранится отдельно от клиента.
+ * Записи без заявленного идентификатора совпадают с прежним форматом.
+ * Нулевая длина - конец записанной части сегмента.
+ */
+public final class AuditRecord {
+    static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 1 + 2;
+    static final int MAX_ACTOR_CHARS = 128;
+
+    private final long timestamp;
+    private final long playerId;
+    private final AuditAction action;
+    private final String actor;
+    private final String claimedClient;
+
+    public AuditRecord(long timestamp, long playerId, AuditAction action, String actor) {
+        this(timestamp, playerId, action, actor, null);
+    }
+
+    public AuditRecord(long timestamp, long playerId, AuditAction action, String actor, String claimedClient) {
+        this.timestamp = timestamp;
+        this.playerId = playerId;
+        this.action = action;
+        this.actor = truncate(actor);
+        this.claimedClient = claimedClient != null ? truncate(claimedClient) : null;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getPlayerId() {
+        return playerId;
+    }
+
+    public AuditAction getAction() {
+        return action;
+    }
+
+    public String getActor() {
+        return actor;
+    }
+
+    // Заявленный клиентом X-Client-Id или null
+    public String getClaimedClient() {
+        return claimedClient;
+    }
+
+    byte[] encode() {
+        byte[] actorBytes = actor.getBytes(StandardCharsets.UTF_8);
+        byte[] claimedBytes = claimedClient != null ? claimedClient.getBytes(StandardCharsets.UTF_8) : null;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + actorBytes.length
+                + (claimedBytes != null ? 2 + claimedBytes.length : 0));
+        buffer.putInt(buffer.capacity());
+        buffer.putInt(0);
+        buffer.putLong(timestamp);
+        buffer.putLong(playerId);
+        buffer.put((byte) action.ordinal());
+        buffer.putShort((short) actorBytes.length);
+        buffer.put(actorBytes);
+        if (claimedBytes != null) {
+            buffer.putShort((short) claimedBytes.length);
+            buffer.put(claimedBytes);
+        }
+        byte[] bytes = buffer.array();
+        buffer.putInt(4, crc(bytes, 8, bytes.length - 8));
+        return bytes;
+    }
+
+    // null - дальше в сегменте нет целой записи (конец записанного или оборванная запись после сбоя)
+    static AuditRecord decode(ByteBuffer segment, int limit) {
+        int position = segment.position();
+        if (limit - position < HEADER_BYTES) {
+            return null;
+        }
+        int length = segment.getInt(position);
+        if (length < HEADER_BYTES || length > limit - position) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        segment.get(bytes);
+        ByteBuffer record = ByteBuffer.wrap(bytes);
+        int storedCrc = record.getInt(4);
+        int actorLength = record.getShort(HEADER_BYTES - 2);
+        int actionCode = record.get(HEADER_BYTES - 3);
+        int claimedAt = HEADER_BYTES + actorLength;
+        int claimedLength = length - claimedAt >= 2 ? record.getShort(claimedAt) : -1;
+        boolean claimed = claimedLength >= 0 && claimedAt + 2 + claimedLength == length;
+        if (storedCrc != crc(bytes, 8, length - 8) || actorLength < 0 || !claimed && claimedAt != length
+                || actionCode < 0 || actionCode >= AuditAction.values().length) {
+            segment.position(position);
+            return null;
+        }
+        return new AuditRecord(record.getLong(8), record.getLong(16), AuditAction.values()[actionCode],
+                new String(bytes, HEADER_BYTES, actorLength, StandardCharsets.UTF_8),
+                claimed ? new String(bytes, claimedAt + 2, claimedLength, StandardCharsets.UTF_8) : null);
+    }
+
+    private static String truncate(String client) {
+        return client.length() > MAX_ACTOR_CHARS ? client.substring(0, MAX_ACTOR_CHARS) : client;
+    }
+
+    private static int crc(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,206 @@
+package com.game.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Журнал аудита на диске: сегменты audit-<номер>.log фиксированного размера, отображенные в память.
+ * Пишет один поток (AuditLog), читать можно из любого: запись, которую писатель еще не дописал,
+ * не пройдет проверку CRC и просто не попадет в выдачу. Старые сегменты удаляются сверх retainedSegments.
+ * Для истории у каждого сегмента есть индекс смещений записей по игрокам: запрос дочитывает в индекс
+ * только то, что писатель добавил с прошлого раза, а не просматривает все сегменты заново.
+ */
+final class AuditSegments implements Closeable {
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".log";
+    static final int MIN_SEGMENT_BYTES = 4096;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int retainedSegments;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    // Отображения для чтения переиспользуются между запросами истории
+    private final Map<Long, MappedByteBuffer> readers = new ConcurrentHashMap<>();
+    private final Map<Long, SegmentIndex> indexes = new ConcurrentHashMap<>();
+    private long segmentNumber;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+
+    AuditSegments(Path directory, int segmentBytes, int retainedSegments) throws IOException {
+        if (segmentBytes < MIN_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Сегмент аудита меньше " + MIN_SEGMENT_BYTES + " байт: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.retainedSegments = Math.max(1, retainedSegments);
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        }
+        if (acquired == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Каталог аудита " + directory + " уже используется");
+        }
+        lock = acquired;
+
+        List<Long> numbers = segmentNumbers();
+        if (numbers.isEmpty()) {
+            open(0);
+        } else {
+            recover(numbers.get(numbers.size() - 1));
+        }
+    }
+
+    void append(AuditRecord record) throws IOException {
+        byte[] bytes = record.encode();
+        if (bytes.length > segment.remaining()) {
+            rotate();
+        }
+        segment.put(bytes);
+    }
+
+    void force() {
+        segment.force();
+    }
+
+    // Записи игрока в порядке записи, от старых сегментов к новым
+    List<AuditRecord> read(long playerId) throws IOException {
+        List<AuditRecord> records = new ArrayList<>();
+        for (long number : segmentNumbers()) {
+            ByteBuffer view;
+            try {
+                view = reader(number).duplicate();
+            } catch (NoSuchFileException e) {
+                // Сегмент удален по сроку хранения, пока мы шли по списку
+                continue;
+            }
+            for (int offset : indexes.computeIfAbsent(number, n -> new SegmentIndex()).offsets(view, playerId)) {
+                view.position(offset);
+                records.add(AuditRecord.decode(view, view.capacity()));
+            }
+        }
+        return records;
+    }
+
+    int segmentCount() throws IOException {
+        return segmentNumbers().size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        segment.force();
+        channel.close();
+        lock.release();
+        lockChannel.close();
+    }
+
+    // Смещения записей сегмента по игрокам. В индекс попадают только записи, прошедшие CRC:
+    // недописанную запись следующий запрос разберет заново
+    private static final class SegmentIndex {
+        private final Map<Long, Offsets> players = new HashMap<>();
+        private int indexed;
+
+        synchronized int[] offsets(ByteBuffer view, long playerId) {
+            view.position(indexed);
+            AuditRecord record;
+            while ((record = AuditRecord.decode(view, view.capacity())) != null) {
+                players.computeIfAbsent(record.getPlayerId(), id -> new Offsets()).add(indexed);
+                indexed = view.position();
+            }
+            Offsets found = players.get(playerId);
+            return found != null ? Arrays.copyOf(found.values, found.size) : new int[0];
+        }
+    }
+
+    private static final class Offsets {
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int offset) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = offset;
+        }
+    }
+
+    private MappedByteBuffer reader(long number) throws IOException {
+        MappedByteBuffer mapped = readers.get(number);
+        if (mapped == null) {
+            try (FileChannel file = FileChannel.open(path(number), StandardOpenOption.READ)) {
+                mapped = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            }
+            readers.put(number, mapped);
+        }
+        return mapped;
+    }
+
+    private void open(long number) throws IOException {
+        segmentNumber = number;
+        channel = FileChannel.open(path(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+    }
+
+    // После перезапуска дописываем последний сегмент с конца целых записей; оборванный хвост затираем
+    private void recover(long number) throws IOException {
+        open(number);
+        while (AuditRecord.decode(segment, segment.limit()) != null) {
+            // Пропускаем целые записи
+        }
+        int end = segment.position();
+        for (int i = end; i < segment.limit(); i++) {
+            segment.put(i, (byte) 0);
+        }
+    }
+
+    private void rotate() throws IOException {
+        segment.force();
+        channel.close();
+        open(segmentNumber + 1);
+        List<Long> numbers = segmentNumbers();
+        for (int i = 0; i < numbers.size() - retainedSegments; i++) {
+            readers.remove(numbers.get(i));
+            indexes.remove(numbers.get(i));
+            Files.deleteIfExists(path(numbers.get(i)));
+        }
+    }
+
+    private List<Long> segmentNumbers() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path path(long number) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, number, SUFFIX));
+    }
+}
@@ -0,0 +1,13 @@
+package com.game.audit;
+
+// Когда записанное в mmap-сегмент сбрасывается на диск
+public enum FsyncPolicy {
+    // После каждой записи: ничего не теряется, но каждая запись ждет диск
+    ALWAYS,
+    // После каждой выбранной из буфера пачки
+    BATCH,
+    // Не чаще раза в rpg.audit.fsync-millis: при падении ОС теряется не больше этого интервала
+    INTERVAL,
+    // Только при ротации сегмента и остановке; остальное - когда решит ОС
+    NEVER
+}
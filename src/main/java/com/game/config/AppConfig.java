@@ -1,37 +1,131 @@
 package com.game.config;
 
+import com.game.controller.NameCollation;
+import com.game.datasource.ReplicaRoutingDataSource;
+import com.game.datasource.ReplicaSelection;
+import com.game.datasource.ShardDataSources;
+import com.game.datasource.ShardRoutingDataSource;
+import com.game.entity.ArchivedPlayer;
+import com.game.entity.Player;
+import com.game.repository.ArchivedPlayerRepository;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerService;
+import com.game.trace.LayerTracingPostProcessor;
+import com.game.trace.RequestTrace;
+import com.game.trace.TracingDataSource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.repository.config.BootstrapMode;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.stereotype.Controller;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
 
 @Configuration
-@EnableTransactionManagement
-@ComponentScan("com.game")
-@EnableJpaRepositories(basePackages = "com.game.repository")
+// Прокси по классу: хранилище logstore реализует PlayerRepository с @Transactional-методами,
+// но внедряется и как LogStructuredPlayerRepository
+@EnableTransactionManagement(proxyTargetClass = true)
+@EnableScheduling
+// Контроллеры живут в контексте DispatcherServlet (WebConfig), здесь только сервисы, фильтры и служебные бины
+@ComponentScan(basePackages = {"com.game.service", "com.game.audit", "com.game.snapshot", "com.game.logstore",
+        "com.game.filter", "com.game.config"}, excludeFilters = {
+        @ComponentScan.Filter(Configuration.class), @ComponentScan.Filter(Controller.class)})
+@PropertySource("classpath:application.properties")
 public class AppConfig {
 
+    @Value("${rpg.datasource.replicas:}")
+    private String[] replicaUrls;
+    @Value("${rpg.datasource.replica-username:root}")
+    private String replicaUsername;
+    @Value("${rpg.datasource.replica-password:root}")
+    private String replicaPassword;
+    @Value("${rpg.datasource.replica-selection:ROUND_ROBIN}")
+    private ReplicaSelection replicaSelection;
+    @Value("${rpg.datasource.read-your-writes-millis:0}")
+    private long readYourWritesMillis;
+    @Value("${rpg.datasource.shards:}")
+    private String[] shardUrls;
+    @Value("${rpg.datasource.shard-username:root}")
+    private String shardUsername;
+    @Value("${rpg.datasource.shard-password:root}")
+    private String shardPassword;
+    @Value("${rpg.startup.background-jpa:false}")
+    private boolean backgroundJpa;
+    @Value("${rpg.trace.enabled:true}")
+    private boolean traceEnabled;
+
+    @Bean
+    public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+        return new PropertySourcesPlaceholderConfigurer();
+    }
+
+    @Bean
+    public static LazyInitializationPostProcessor lazyInitialization(Environment environment) {
+        return new LazyInitializationPostProcessor(environment.getProperty("rpg.startup.lazy-init", Boolean.class, false));
+    }
+
+    // Время слоев для Server-Timing (см. TracingFilter)
+    @Bean
+    public static LayerTracingPostProcessor layerTracing(Environment environment) {
+        Map<Class<?>, String> layers = new LinkedHashMap<>();
+        if (environment.getProperty("rpg.trace.enabled", Boolean.class, true)) {
+            layers.put(PlayerService.class, RequestTrace.SERVICE);
+            layers.put(PlayerRepository.class, RequestTrace.REPOSITORY);
+            layers.put(ArchivedPlayerRepository.class, RequestTrace.REPOSITORY);
+        }
+        return new LayerTracingPostProcessor(layers);
+    }
+
+    // Профиль logstore обходится без базы: PlayerRepository и transactionManager дает com.game.logstore
+    @Configuration
+    @Profile("!logstore")
+    // Репозитории создаются после поднятия контекста и не ждут EntityManagerFactory, пока та строится в фоне
+    @EnableJpaRepositories(basePackages = "com.game.repository", bootstrapMode = BootstrapMode.DEFERRED)
+    static class JpaRepositories {
+    }
+
+    @Profile("!logstore")
     @Bean
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
-        em.setDataSource(dataSource());
-        em.setPackagesToScan("com.game.entity");
+        // Число и время SQL-запросов для Server-Timing
+        em.setDataSource(traceEnabled ? new TracingDataSource(routingDataSource()) : routingDataSource());
+        // Сущности перечислены явно: при старте не нужно сканировать classpath в поисках @Entity
+        em.setPackagesToScan();
+        em.setPersistenceUnitPostProcessors(unit -> {
+            unit.addManagedClassName(Player.class.getName());
+            unit.addManagedClassName(ArchivedPlayer.class.getName());
+        });
+        if (backgroundJpa) {
+            // Hibernate строит метамодель в отдельном потоке, пока создаются остальные бины
+            em.setBootstrapExecutor(new SimpleAsyncTaskExecutor("jpa-bootstrap-"));
+        }
 
         JpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
         em.setJpaVendorAdapter(vendorAdapter);
@@ -64,6 +158,51 @@ public class AppConfig {
                 .build();
     }
 
+    // Как база сортирует имена (ORDER BY p.name) - по этому же порядку сливаются страницы с шардов
+    @Profile("prod")
+    @Bean
+    public NameCollation nameCollation() {
+        return NameCollation.GENERAL_CI;
+    }
+
+    @Profile("!prod")
+    @Bean(name = "nameCollation")
+    public NameCollation binaryNameCollation() {
+        return NameCollation.BINARY;
+    }
+
+    // Без реплик и шардов JPA работает напрямую с основной базой, как и раньше
+    private DataSource routingDataSource() {
+        List<String> shards = nonEmpty(shardUrls);
+        if (shards.size() > 1) {
+            List<DataSource> shardDataSources = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++) {
+                shardDataSources.add(ShardDataSources.create(shards.get(i), shardUsername, shardPassword, i, shards.size()));
+            }
+            return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shardDataSources));
+        }
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : nonEmpty(replicaUrls)) {
+            replicas.add(new DriverManagerDataSource(url, replicaUsername, replicaPassword));
+        }
+        if (replicas.isEmpty()) {
+            return dataSource();
+        }
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(dataSource(), replicas, replicaSelection, readYourWritesMillis));
+    }
+
+    private static List<String> nonEmpty(String[] urls) {
+        List<String> result = new ArrayList<>();
+        for (String url : urls) {
+            if (!url.trim().isEmpty()) {
+                result.add(url.trim());
+            }
+        }
+        return result;
+    }
+
+    @Profile("!logstore")
     @Bean
     public PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
         JpaTransactionManager transactionManager = new JpaTransactionManager();
@@ -72,6 +211,7 @@ public class AppConfig {
         return transactionManager;
     }
 
+    @Profile("!logstore")
     @Bean
     public PersistenceExceptionTranslationPostProcessor exceptionTranslation() {
         return new PersistenceExceptionTranslationPostProcessor();
@@ -80,6 +220,9 @@ public class AppConfig {
     private Properties additionalProperties() {
         Properties properties = new Properties();
         properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
+        // Сброс буфера опыта обновляет сотни игроков за раз - отправляем UPDATE пачками
+        properties.setProperty("hibernate.jdbc.batch_size", "50");
+        properties.setProperty("hibernate.order_updates", "true");
 
         return properties;
     }
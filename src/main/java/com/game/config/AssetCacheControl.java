@@ -0,0 +1,31 @@
+package com.game.config;
+
+import org.springframework.http.CacheControl;
+
+/*
+ * Файл с хешем содержимого в имени (scripts-<md5>.js) никогда не меняется - браузер хранит его год
+ * и не перепроверяет. В CacheControl этой версии Spring нет директивы immutable, поэтому значение задано целиком.
+ * Заголовок ставит ResourceHttpRequestHandler и только найденному файлу: 404 его не получит.
+ */
+final class AssetCacheControl extends CacheControl {
+    static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    // Имя с хешем, который дописывает VersionResourceResolver. Звездочки нужны: путь до файла внутри каталога
+    // берется только из частей шаблона с * или ?
+    private static final String FILE = "*-{hash:[0-9a-f]{32}}.*";
+    // Без **: иначе /resources/** считается не менее точным шаблоном и перехватывает запрос;
+    // файлы глубже трех каталогов просто перепроверяются
+    static final String[] FINGERPRINTED = {"/resources/" + FILE, "/resources/*/" + FILE,
+            "/resources/*/*/" + FILE, "/resources/*/*/*/" + FILE};
+
+    static CacheControl immutable() {
+        return new AssetCacheControl();
+    }
+
+    private AssetCacheControl() {
+    }
+
+    @Override
+    public String getHeaderValue() {
+        return IMMUTABLE;
+    }
+}
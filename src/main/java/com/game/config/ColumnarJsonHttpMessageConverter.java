@@ -0,0 +1,176 @@
+package com.game.config;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.PlayerField;
+import com.game.entity.Player;
+import com.game.responses.PlayerView;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Списки отдаются "по колонкам": {"count":2,"columns":{"id":[1,2],"name":["a","b"]}}.
+ * Имена полей не повторяются в каждой строке, поэтому большие страницы заметно короче.
+ * Игроки и проекции пишутся колонка за колонкой прямо из геттеров; прочие списки - через дерево Jackson.
+ */
+public class ColumnarJsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final MediaType COLUMNAR_JSON = MediaType.valueOf("application/vnd.rpg.columnar+json");
+
+    private final ObjectMapper objectMapper;
+
+    public ColumnarJsonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(COLUMNAR_JSON);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Collection.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        Collection<?> rows = (Collection<?>) object;
+        if (all(rows, Player.class)) {
+            writePlayers((Collection<Player>) rows, outputMessage);
+            return;
+        }
+        if (all(rows, PlayerView.class)) {
+            writeViews((Collection<PlayerView>) rows, outputMessage);
+            return;
+        }
+        Map<String, List<JsonNode>> columns = new LinkedHashMap<>();
+        int index = 0;
+        for (Object row : rows) {
+            JsonNode node = objectMapper.valueToTree(row);
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                List<JsonNode> column = columns.computeIfAbsent(field.getKey(), key -> new ArrayList<>(rows.size()));
+                // Поле может отсутствовать в первых строках - дополняем колонку null-ами
+                while (column.size() < index) {
+                    column.add(null);
+                }
+                column.add(field.getValue());
+            }
+            index++;
+        }
+        try (JsonGenerator generator = start(rows, outputMessage)) {
+            for (Map.Entry<String, List<JsonNode>> column : columns.entrySet()) {
+                generator.writeArrayFieldStart(column.getKey());
+                List<JsonNode> values = column.getValue();
+                for (int i = 0; i < rows.size(); i++) {
+                    JsonNode value = i < values.size() ? values.get(i) : null;
+                    if (value == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeTree(value);
+                    }
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+    }
+
+    // Колонки в порядке полей Player - как в обычном JSON
+    private void writePlayers(Collection<Player> rows, HttpOutputMessage outputMessage) throws IOException {
+        try (JsonGenerator generator = start(rows, outputMessage)) {
+            for (PlayerField field : PlayerField.values()) {
+                generator.writeArrayFieldStart(field.getFieldName());
+                for (Player player : rows) {
+                    writeValue(generator, PlayerView.value(player, field));
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+    }
+
+    // Строки одной выдачи проецируются на один и тот же набор колонок
+    private void writeViews(Collection<PlayerView> rows, HttpOutputMessage outputMessage) throws IOException {
+        try (JsonGenerator generator = start(rows, outputMessage)) {
+            List<PlayerField> fields = rows.iterator().next().visibleFields();
+            for (int i = 0; i < fields.size(); i++) {
+                generator.writeArrayFieldStart(fields.get(i).getFieldName());
+                for (PlayerView view : rows) {
+                    writeValue(generator, view.value(i));
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+    }
+
+    private JsonGenerator start(Collection<?> rows, HttpOutputMessage outputMessage) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputMessage.getBody(), JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeNumberField("count", rows.size());
+        generator.writeObjectFieldStart("columns");
+        return generator;
+    }
+
+    // Простые значения пишутся напрямую; даты и перечисления - сериализаторами objectMapper, как в обычном JSON
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Long) {
+            generator.writeNumber((Long) value);
+        } else if (value instanceof Integer) {
+            generator.writeNumber((Integer) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
+    private static boolean all(Collection<?> rows, Class<?> type) {
+        for (Object row : rows) {
+            if (!type.isInstance(row)) {
+                return false;
+            }
+        }
+        return !rows.isEmpty();
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Колоночный формат только для ответов", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Колоночный формат только для ответов", inputMessage);
+    }
+}
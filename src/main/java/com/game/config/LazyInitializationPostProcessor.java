@@ -0,0 +1,40 @@
+package com.game.config;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+
+/*
+ * Режим быстрого старта: бины создаются при первом обращении, а не при подъеме контекста.
+ * Явный @Lazy(false), инфраструктура Spring и SmartInitializingSingleton (например, загрузка
+ * индексов в PlayerChangePublisher) остаются жадными.
+ */
+public class LazyInitializationPostProcessor implements BeanFactoryPostProcessor {
+    private final boolean enabled;
+
+    public LazyInitializationPostProcessor(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        if (!enabled) {
+            return;
+        }
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (!(definition instanceof AbstractBeanDefinition)
+                    || ((AbstractBeanDefinition) definition).getLazyInit() != null
+                    || definition.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE) {
+                continue;
+            }
+            Class<?> type = beanFactory.getType(name, false);
+            if (type == null || !SmartInitializingSingleton.class.isAssignableFrom(type)) {
+                definition.setLazyInit(true);
+            }
+        }
+    }
+}
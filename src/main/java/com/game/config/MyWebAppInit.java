@@ -1,7 +1,10 @@
 package com.game.config;
 
+import org.springframework.web.filter.DelegatingFilterProxy;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
 
+import javax.servlet.Filter;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 
@@ -10,7 +13,8 @@ public class MyWebAppInit extends AbstractAnnotationConfigDispatcherServletIniti
     @Override
     public void onStartup(ServletContext servletContext) throws ServletException {
         super.onStartup(servletContext);
-        servletContext.setInitParameter("spring.profiles.active", "prod");
+        // -Dspring.profiles.active=logstore - развертывание без базы
+        servletContext.setInitParameter("spring.profiles.active", System.getProperty("spring.profiles.active", "prod"));
     }
 
     @Override
@@ -28,4 +32,14 @@ public class MyWebAppInit extends AbstractAnnotationConfigDispatcherServletIniti
         return new String[]{"/"};
     }
 
+    // Фильтры - бины корневого контекста, чтобы брать настройки из application.properties
+    @Override
+    protected Filter[] getServletFilters() {
+        // Ограничение нагрузки стоит первым: отклоненный запрос не должен ничего стоить
+        // Трассировка внутри сжатия: Server-Timing измеряет работу приложения, а не gzip
+        // ResourceUrlEncodingFilter подставляет в ссылки index.jsp имена статики с хешем содержимого
+        return new Filter[]{new DelegatingFilterProxy("rateLimitFilter"), new DelegatingFilterProxy("compressionFilter"),
+                new DelegatingFilterProxy("tracingFilter"), new ResourceUrlEncodingFilter()};
+    }
+
 }
\ No newline at end of file
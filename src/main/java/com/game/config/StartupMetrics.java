@@ -0,0 +1,63 @@
+package com.game.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Время старта экземпляра, отсчитанное от запуска JVM: когда поднялся последний контекст
+ * и когда был обслужен первый запрос. Новые экземпляры запускаются под нагрузкой,
+ * поэтому важно именно время до первого ответа.
+ */
+@Component
+public class StartupMetrics implements ApplicationListener<ApplicationEvent> {
+    private static final Logger log = LoggerFactory.getLogger(StartupMetrics.class);
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final AtomicLong contextRefreshedMillis = new AtomicLong(-1);
+    private final AtomicLong firstRequestMillis = new AtomicLong(-1);
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ContextRefreshedEvent) {
+            long elapsed = sinceJvmStart();
+            contextRefreshedMillis.set(elapsed);
+            log.info("Контекст {} поднят через {} мс после старта JVM",
+                    ((ContextRefreshedEvent) event).getApplicationContext().getDisplayName(), elapsed);
+        } else if (event instanceof ServletRequestHandledEvent && firstRequestMillis.get() < 0) {
+            long elapsed = sinceJvmStart();
+            if (firstRequestMillis.compareAndSet(-1, elapsed)) {
+                log.info("Первый запрос {} обслужен через {} мс после старта JVM",
+                        ((ServletRequestHandledEvent) event).getRequestUrl(), elapsed);
+            }
+        }
+    }
+
+    public long getContextRefreshedMillis() {
+        return contextRefreshedMillis.get();
+    }
+
+    public long getFirstRequestMillis() {
+        return firstRequestMillis.get();
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("contextRefreshedMillis", contextRefreshedMillis.get());
+        metrics.put("firstRequestMillis", firstRequestMillis.get());
+        return metrics;
+    }
+
+    private long sinceJvmStart() {
+        return System.currentTimeMillis() - jvmStartMillis;
+    }
+}
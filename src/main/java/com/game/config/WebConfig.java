@@ -2,26 +2,51 @@ package com.game.config;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.trace.HandlerTracingPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.servlet.ViewResolver;
+import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistration;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
 import org.springframework.web.servlet.view.InternalResourceViewResolver;
 import org.springframework.web.servlet.view.JstlView;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
 
 @Configuration
 @EnableWebMvc
-@ComponentScan("com.game")
+@ComponentScan("com.game.controller")
 public class WebConfig implements WebMvcConfigurer {
 
+    @Bean
+    public static LazyInitializationPostProcessor controllerLazyInitialization(Environment environment) {
+        return new LazyInitializationPostProcessor(environment.getProperty("rpg.startup.lazy-init", Boolean.class, false));
+    }
+
+    // Время разбора параметров и записи ответа для Server-Timing (см. TracingFilter)
+    @Bean
+    public static HandlerTracingPostProcessor handlerTracing(Environment environment) {
+        return new HandlerTracingPostProcessor(environment.getProperty("rpg.trace.enabled", Boolean.class, true));
+    }
 
     @Bean
     public ViewResolver internalResourceViewResolver() {
@@ -39,14 +64,48 @@ public class WebConfig implements WebMvcConfigurer {
 
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/resources/**").addResourceLocations("/resources/");
+        // Адрес с хешем в имени хранится годом, обычный перепроверяется по Last-Modified на каждой загрузке
+        resourceChain(registry.addResourceHandler(AssetCacheControl.FINGERPRINTED).setCacheControl(AssetCacheControl.immutable()));
+        resourceChain(registry.addResourceHandler("/resources/**").setCacheControl(CacheControl.noCache()));
+    }
+
+    // Сначала ищется заранее сжатый .br/.gz рядом с файлом, затем по хешу из имени находится сам файл
+    private static void resourceChain(ResourceHandlerRegistration registration) {
+        registration.addResourceLocations("/resources/")
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    // Кроме заголовка Accept формат можно выбрать параметром ?format=smile|cbor|columnar
+    @Override
+    public void configureContentNegotiation(ContentNegotiationConfigurer configurer) {
+        configurer.favorParameter(true)
+                .mediaType("json", MediaType.APPLICATION_JSON)
+                .mediaType("smile", MediaType.valueOf("application/x-jackson-smile"))
+                .mediaType("cbor", MediaType.APPLICATION_CBOR)
+                .mediaType("columnar", ColumnarJsonHttpMessageConverter.COLUMNAR_JSON);
     }
 
     @Override
     public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
         MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter();
-        converter.getObjectMapper().setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
-        converter.getObjectMapper().setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        fieldVisibility(converter.getObjectMapper());
+        // Без application/*+json, иначе обычный JSON перехватит колоночный формат
+        converter.setSupportedMediaTypes(Collections.singletonList(MediaType.APPLICATION_JSON));
         converters.add(converter);
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                fieldVisibility(Jackson2ObjectMapperBuilder.smile().build())));
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                fieldVisibility(Jackson2ObjectMapperBuilder.cbor().build())));
+        converters.add(new ColumnarJsonHttpMessageConverter(converter.getObjectMapper()));
+        // Служебные строки SSE (id:, event:, data:) пишутся как text/plain
+        converters.add(new StringHttpMessageConverter(StandardCharsets.UTF_8));
+    }
+
+    private static ObjectMapper fieldVisibility(ObjectMapper objectMapper) {
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        return objectMapper;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package com.game.controller;
+
+import com.game.audit.AuditLog;
+import com.game.config.StartupMetrics;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.filter.RateLimitFilter;
+import com.game.logstore.LogStructuredPlayerRepository;
+import com.game.requests.PlayerFilter;
+import com.game.responses.QueryExplain;
+import com.game.service.PlayerArchive;
+import com.game.service.PlayerExplainer;
+import com.game.service.PlayerPurger;
+import com.game.service.QueryCoalescer;
+import com.game.snapshot.PlayerSnapshots;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Служебные эндпоинты для эксплуатации: метрики и диагностика
+@RestController
+@RequestMapping("/rest/admin")
+public class AdminController {
+    private final RateLimitFilter rateLimitFilter;
+    private final QueryCoalescer queryCoalescer;
+    private final StartupMetrics startupMetrics;
+    private final AuditLog auditLog;
+    private final PlayerSnapshots playerSnapshots;
+    private final ObjectProvider<LogStructuredPlayerRepository> logStore;
+    private final PlayerPurger playerPurger;
+    private final ObjectProvider<PlayerArchive> playerArchive;
+    private final ObjectProvider<PlayerExplainer> playerExplainer;
+
+    public AdminController(RateLimitFilter rateLimitFilter, QueryCoalescer queryCoalescer, StartupMetrics startupMetrics,
+                           AuditLog auditLog, PlayerSnapshots playerSnapshots,
+                           ObjectProvider<LogStructuredPlayerRepository> logStore, PlayerPurger playerPurger,
+                           ObjectProvider<PlayerArchive> playerArchive, ObjectProvider<PlayerExplainer> playerExplainer) {
+        this.rateLimitFilter = rateLimitFilter;
+        this.queryCoalescer = queryCoalescer;
+        this.startupMetrics = startupMetrics;
+        this.auditLog = auditLog;
+        this.playerSnapshots = playerSnapshots;
+        this.logStore = logStore;
+        this.playerPurger = playerPurger;
+        this.playerArchive = playerArchive;
+        this.playerExplainer = playerExplainer;
+    }
+
+    @GetMapping("/metrics")
+    public Map<String, Object> getMetrics() throws IOException {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("rateLimit", rateLimitFilter.metrics());
+        metrics.put("queryCoalescing", queryCoalescer.metrics());
+        metrics.put("startup", startupMetrics.metrics());
+        metrics.put("audit", auditLog.metrics());
+        metrics.put("snapshot", playerSnapshots.metrics());
+        metrics.put("purge", playerPurger.metrics());
+        // Архив есть везде, кроме профиля logstore
+        playerArchive.ifAvailable(archive -> metrics.put("archive", archive.metrics()));
+        // Только в профиле logstore
+        logStore.ifAvailable(store -> metrics.put("logStore", store.metrics()));
+        return metrics;
+    }
+
+    // Те же параметры, что у GET /rest/players: SQL, параметры, план и прочитанные строки
+    @GetMapping("/explain")
+    public ResponseEntity<QueryExplain> explainPlayers(
+            @RequestHeader(name = "X-Admin-Token", required = false) String token,
+            @RequestParam(name = "name", required = false) String name,
+            @RequestParam(name = "title", required = false) String title,
+            @RequestParam(name = "race", required = false) Race race,
+            @RequestParam(name = "profession", required = false) Profession profession,
+            @RequestParam(name = "after", required = false) Long after,
+            @RequestParam(name = "before", required = false) Long before,
+            @RequestParam(name = "banned", required = false) Boolean banned,
+            @RequestParam(name = "minExperience", required = false) Integer minExperience,
+            @RequestParam(name = "maxExperience", required = false) Integer maxExperience,
+            @RequestParam(name = "minLevel", required = false) Integer minLevel,
+            @RequestParam(name = "maxLevel", required = false) Integer maxLevel,
+            @RequestParam(name = "order", required = false) PlayerOrder order,
+            @RequestParam(name = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
+            @RequestParam(name = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestParam(name = "includeArchived", required = false, defaultValue = "false") boolean includeArchived) {
+        PlayerExplainer explainer = playerExplainer.getIfAvailable();
+        // В профиле logstore SQL нет
+        if (explainer == null) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        }
+        if (!explainer.isAllowed(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        List<PlayerField> playerFields;
+        try {
+            playerFields = fields != null ? PlayerField.parse(fields) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        PlayerFilter filter = new PlayerFilter(name, title, race, profession, after, before, banned,
+                minExperience, maxExperience, minLevel, maxLevel);
+        return ResponseEntity.ok(explainer.explain(filter, playerFields, order, pageNumber, pageSize, includeArchived));
+    }
+}
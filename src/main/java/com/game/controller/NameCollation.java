@@ -0,0 +1,75 @@
+package com.game.controller;
+
+import java.text.Normalizer;
+import java.util.Comparator;
+
+/*
+ * Порядок строк, в котором база сортирует имена: слияние страниц с шардов сравнивает
+ * в Java, и порядок должен совпадать с ORDER BY каждого шарда, иначе страница собирается неверно.
+ * BINARY - H2 и хранилище logstore (String.compareTo). GENERAL_CI - utf8_general_ci
+ * таблиц из init.sql: регистр и диакритика латиницы не важны, ё = е, пробелы в конце не учитываются.
+ */
+public enum NameCollation {
+    BINARY {
+        @Override
+        public int compare(String a, String b) {
+            return a.compareTo(b);
+        }
+
+        @Override
+        public String fold(String text) {
+            return text;
+        }
+    },
+    GENERAL_CI {
+        @Override
+        public int compare(String a, String b) {
+            int aLength = trimmedLength(a);
+            int bLength = trimmedLength(b);
+            for (int i = 0; i < Math.min(aLength, bLength); i++) {
+                int diff = weight(a.charAt(i)) - weight(b.charAt(i));
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return aLength - bLength;
+        }
+
+        @Override
+        public String fold(String text) {
+            char[] folded = new char[text.length()];
+            for (int i = 0; i < folded.length; i++) {
+                folded[i] = weight(text.charAt(i));
+            }
+            return new String(folded);
+        }
+    };
+
+    public abstract int compare(String a, String b);
+
+    // Строка, в которой равны символы, равные для LIKE в этой сортировке; длина не меняется
+    public abstract String fold(String text);
+
+    public Comparator<String> comparator() {
+        return this::compare;
+    }
+
+    private static int trimmedLength(String text) {
+        int length = text.length();
+        while (length > 0 && text.charAt(length - 1) == ' ') {
+            length--;
+        }
+        return length;
+    }
+
+    // Вес символа в utf8_general_ci: заглавная буква без диакритики (латиница), Ё весит как Е
+    private static char weight(char c) {
+        if (c == 'ё' || c == 'Ё') {
+            return 'Е';
+        }
+        if (c >= 'À' && c < 'ɐ') {
+            c = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+        }
+        return Character.toUpperCase(c);
+    }
+}
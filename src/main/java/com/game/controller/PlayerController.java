@@ -1,27 +1,60 @@
 package com.game.controller;
 
 
+import com.game.audit.AuditLog;
 import com.game.entity.Player;
 import com.game.entity.Profession;
 import com.game.entity.Race;
+import com.game.requests.ExperienceGrant;
+import com.game.requests.PlayerFilter;
 import com.game.requests.PlayerRequest;
+import com.game.responses.AuditEntry;
+import com.game.responses.LeaderboardEntry;
+import com.game.responses.NameSuggestion;
+import com.game.responses.PlayerLookupResult;
+import com.game.responses.PlayerRank;
+import com.game.responses.PlayerStats;
+import com.game.service.Leaderboard;
+import com.game.service.NamePrefixIndex;
+import com.game.service.PlayerEventStream;
 import com.game.service.PlayerService;
+import com.game.service.PlayerStatistics;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/rest/players")
 public class PlayerController {
+    private static final int MAX_LOOKUP_IDS = 5000;
+    private static final int MAX_LEADERBOARD_SIZE = 1000;
+    private static final int MAX_EXPERIENCE_DELTA = 10_000_000;
+
     private final PlayerService playerService;
+    private final Leaderboard leaderboard;
+    private final PlayerStatistics playerStatistics;
+    private final NamePrefixIndex namePrefixIndex;
+    private final PlayerEventStream playerEventStream;
+    private final AuditLog auditLog;
 
-    public PlayerController(PlayerService playerService) {
+    public PlayerController(PlayerService playerService, Leaderboard leaderboard, PlayerStatistics playerStatistics,
+                            NamePrefixIndex namePrefixIndex, PlayerEventStream playerEventStream, AuditLog auditLog) {
         this.playerService = playerService;
+        this.leaderboard = leaderboard;
+        this.playerStatistics = playerStatistics;
+        this.namePrefixIndex = namePrefixIndex;
+        this.playerEventStream = playerEventStream;
+        this.auditLog = auditLog;
     }
 
     @GetMapping
-    public List<Player> getPlayers(
+    public ResponseEntity<List<?>> getPlayers(
             @RequestParam(name = "name", required = false) String name,
             @RequestParam(name = "title", required = false) String title,
             @RequestParam(name = "race", required = false) Race race,
@@ -35,13 +68,119 @@ public class PlayerController {
             @RequestParam(name = "maxLevel", required = false) Integer maxLevel,
             @RequestParam(name = "order", required = false) PlayerOrder order,
             @RequestParam(name = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
-            @RequestParam(name = "pageSize", required = false, defaultValue = "3") Integer pageSize) {
-        // Вызов сервиса для получения отфильтрованного и пагинированного списка игроков
-        List<Player> filteredPlayers = playerService.getFilteredPlayers(
-                name, title, race, profession, after, before, banned,
-                minExperience, maxExperience, minLevel, maxLevel, order,
-                pageNumber, pageSize);
-        return filteredPlayers;
+            @RequestParam(name = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestParam(name = "includeArchived", required = false, defaultValue = "false") boolean includeArchived) {
+        // Только запрошенные колонки: fields=id,name,level
+        List<PlayerField> playerFields;
+        try {
+            playerFields = fields != null ? PlayerField.parse(fields) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        PlayerFilter filter = new PlayerFilter(name, title, race, profession, after, before, banned,
+                minExperience, maxExperience, minLevel, maxLevel);
+        return ResponseEntity.ok(playerService.findPlayers(filter, playerFields, order, pageNumber, pageSize, includeArchived));
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<PlayerLookupResult> getPlayersByIds(@RequestParam(name = "ids") List<Long> ids) {
+        return lookupPlayers(ids);
+    }
+
+    @PostMapping("/lookup")
+    public ResponseEntity<PlayerLookupResult> lookupPlayers(@RequestBody List<Long> ids) {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_LOOKUP_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        for (Long id : ids) {
+            if (id == null || id <= 0) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok(playerService.getPlayersByIds(ids));
+    }
+
+    @GetMapping("/leaderboard")
+    public ResponseEntity<List<LeaderboardEntry>> getLeaderboard(
+            @RequestParam(name = "by", required = false, defaultValue = "experience") String by,
+            @RequestParam(name = "top", required = false, defaultValue = "10") Integer top) {
+        if (top <= 0 || top > MAX_LEADERBOARD_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(leaderboard.top(Leaderboard.By.parse(by), top));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{id}/rank")
+    public ResponseEntity<PlayerRank> getPlayerRank(
+            @PathVariable("id") Long id,
+            @RequestParam(name = "by", required = false, defaultValue = "experience") String by) {
+        Leaderboard.By order;
+        try {
+            order = Leaderboard.By.parse(by);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (id <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        PlayerRank rank = leaderboard.rank(order, id);
+        if (rank == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(rank);
+    }
+
+    // История остается и после удаления игрока, поэтому неизвестный id - просто пустой список
+    @GetMapping("/{id}/history")
+    public ResponseEntity<List<AuditEntry>> getPlayerHistory(@PathVariable("id") Long id) throws IOException {
+        if (id <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(auditLog.history(id).stream().map(AuditEntry::new).collect(Collectors.toList()));
+    }
+
+    @PostMapping("/{id}/experience")
+    public ResponseEntity<Void> grantExperience(@PathVariable("id") Long id, @RequestBody ExperienceGrant grant) {
+        if (id <= 0 || grant.getDelta() == null || grant.getDelta() <= 0 || grant.getDelta() > MAX_EXPERIENCE_DELTA) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!playerService.grantExperience(id, grant.getDelta())) {
+            return ResponseEntity.notFound().build();
+        }
+        // Начисление принято в буфер и будет записано в фоне
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events() {
+        SseEmitter emitter = playerEventStream.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<NameSuggestion>> suggestNames(
+            @RequestParam(name = "prefix") String prefix,
+            @RequestParam(name = "limit", required = false, defaultValue = "10") Integer limit) {
+        if (prefix.trim().isEmpty() || limit <= 0 || limit > NamePrefixIndex.MAX_SUGGESTIONS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(namePrefixIndex.suggest(prefix, limit));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<PlayerStats> getStats(
+            @RequestParam(name = "race", required = false) Race race,
+            @RequestParam(name = "profession", required = false) Profession profession,
+            @RequestParam(name = "banned", required = false) Boolean banned) {
+        return ResponseEntity.ok(playerStatistics.getStats(race, profession, banned));
     }
 
     @GetMapping("/count")
@@ -56,8 +195,13 @@ public class PlayerController {
             @RequestParam(name = "minExperience", required = false) Integer minExperience,
             @RequestParam(name = "maxExperience", required = false) Integer maxExperience,
             @RequestParam(name = "minLevel", required = false) Integer minLevel,
-            @RequestParam(name = "maxLevel", required = false) Integer maxLevel
+            @RequestParam(name = "maxLevel", required = false) Integer maxLevel,
+            @RequestParam(name = "includeArchived", required = false, defaultValue = "false") boolean includeArchived
     ) {
+        if (includeArchived) {
+            return ResponseEntity.ok(playerService.countPlayersWithArchive(new PlayerFilter(name, title, race, profession,
+                    after, before, banned, minExperience, maxExperience, minLevel, maxLevel)));
+        }
         Integer playerCount = playerService.countPlayersWithFilters(name, title, race, profession, after, before, banned, minExperience, maxExperience, minLevel, maxLevel);
         return ResponseEntity.ok(playerCount);
     }
@@ -85,6 +229,19 @@ public class PlayerController {
         return ResponseEntity.ok(player);
     }
 
+    // Возврат игрока из архива в горячую таблицу
+    @PostMapping("/{id}/restore")
+    public ResponseEntity<Player> restorePlayer(@PathVariable("id") Long id) {
+        if (id <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        Player player = playerService.restorePlayer(id);
+        if (player == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(player);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deletePlayer(@PathVariable("id") Long id) {
         // Проверьте валидность ID
@@ -102,15 +259,19 @@ public class PlayerController {
 
     @PostMapping("/{id}")
     public ResponseEntity<Player> updatePlayer(@PathVariable("id") Long id, @RequestBody PlayerRequest playerRequest) {
-        Player player = playerService.getPlayerById(id);
         if (id==0) {
             return ResponseEntity.badRequest().build();
         }
-        if(player==null){
+        // Игрок читается один раз - в транзакции изменения
+        Player updatePlayer;
+        try {
+            updatePlayer = playerService.updatePlayer(id, playerRequest);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if(updatePlayer == null){
             return ResponseEntity.notFound().build();
         }
-        Player updatePlayer = playerService.updatePlayer(id, playerRequest);
-        if(updatePlayer == null) return ResponseEntity.badRequest().build();
         return ResponseEntity.ok(updatePlayer);
     }
 }
@@ -0,0 +1,59 @@
+package com.game.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public enum PlayerField {
+    ID("id"),
+    NAME("name"),
+    TITLE("title"),
+    RACE("race"),
+    PROFESSION("profession"),
+    EXPERIENCE("experience"),
+    LEVEL("level"),
+    UNTIL_NEXT_LEVEL("untilNextLevel"),
+    BIRTHDAY("birthday"),
+    BANNED("banned");
+
+    // Имя поля в JSON совпадает с именем свойства сущности Player
+    private final String fieldName;
+
+    PlayerField(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public static PlayerField of(PlayerOrder order) {
+        return order == null ? ID : valueOf(order.name());
+    }
+
+    // "id,name,level" -> [ID, NAME, LEVEL]; неизвестное поле - IllegalArgumentException
+    public static List<PlayerField> parse(String fields) {
+        List<PlayerField> result = new ArrayList<>();
+        for (String part : fields.split(",")) {
+            String name = part.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            PlayerField field = null;
+            for (PlayerField candidate : values()) {
+                if (candidate.fieldName.equalsIgnoreCase(name)) {
+                    field = candidate;
+                }
+            }
+            if (field == null) {
+                throw new IllegalArgumentException("Неизвестное поле: " + name);
+            }
+            if (!result.contains(field)) {
+                result.add(field);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("Не задано ни одного поля");
+        }
+        return result;
+    }
+}
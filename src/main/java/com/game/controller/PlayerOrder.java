@@ -1,5 +1,10 @@
 package com.game.controller;
 
+import com.game.entity.Player;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
 public enum PlayerOrder {
     ID("id"), // default
     NAME("name"),
@@ -16,4 +21,40 @@ public enum PlayerOrder {
     public String getFieldName() {
         return fieldName;
     }
-}
\ No newline at end of file
+
+    // Тот же порядок, что дает ORDER BY в PlayerRepository, с id для равных значений
+    public static Comparator<Player> comparator(PlayerOrder order) {
+        return comparator(order, NameCollation.BINARY);
+    }
+
+    // Имена сравниваются так же, как их сортирует база
+    public static Comparator<Player> comparator(PlayerOrder order, NameCollation collation) {
+        Comparator<Player> byId = Comparator.comparing(Player::getId);
+        if (order == null || order == ID) {
+            return byId;
+        }
+        if (order == NAME) {
+            return Comparator.comparing(Player::getName, Comparator.nullsFirst(collation.comparator())).thenComparing(byId);
+        }
+        return nullsFirst(order.key()).thenComparing(byId);
+    }
+
+    private Function<Player, Comparable<?>> key() {
+        switch (this) {
+            case EXPERIENCE:
+                return Player::getExperience;
+            case BIRTHDAY:
+                return Player::getBirthday;
+            case LEVEL:
+                return Player::getLevel;
+            default:
+                return Player::getId;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Player> nullsFirst(Function<Player, Comparable<?>> key) {
+        return Comparator.comparing(player -> (Comparable) key.apply(player),
+                Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+}
@@ -0,0 +1,89 @@
+package com.game.datasource;
+
+import com.game.requests.ClientKey;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Направляет транзакции readOnly = true на реплики, остальное - на основную базу.
+ * Ключ выбирается в момент получения соединения, поэтому источник нужно оборачивать
+ * в LazyConnectionDataSourceProxy: иначе соединение берется до того, как
+ * транзакция помечена как readOnly.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final String PRIMARY = "primary";
+    private static final int MAX_TRACKED_CLIENTS = 10_000;
+
+    private final List<CountingDataSource> replicas = new ArrayList<>();
+    private final ReplicaSelection selection;
+    private final long stickinessMillis;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ConcurrentMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                    ReplicaSelection selection, long stickinessMillis) {
+        this.selection = selection;
+        this.stickinessMillis = stickinessMillis;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            CountingDataSource replica = new CountingDataSource(replicas.get(i));
+            this.replicas.add(replica);
+            targets.put(i, replica);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String client = stickinessMillis > 0 ? ClientKey.current() : null;
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (client != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                rememberWrite(client);
+            }
+            return PRIMARY;
+        }
+        if (replicas.isEmpty() || (client != null && wroteRecently(client))) {
+            // Клиент только что писал: реплика могла еще не догнать основную базу
+            return PRIMARY;
+        }
+        return selectReplica();
+    }
+
+    private Object selectReplica() {
+        if (selection == ReplicaSelection.LEAST_CONNECTIONS) {
+            int best = 0;
+            for (int i = 1; i < replicas.size(); i++) {
+                if (replicas.get(i).getActiveConnections() < replicas.get(best).getActiveConnections()) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+        return Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+    }
+
+    private void rememberWrite(String client) {
+        long now = System.currentTimeMillis();
+        if (lastWrites.size() >= MAX_TRACKED_CLIENTS) {
+            lastWrites.values().removeIf(time -> now - time > stickinessMillis);
+        }
+        lastWrites.put(client, now);
+    }
+
+    private boolean wroteRecently(String client) {
+        Long lastWrite = lastWrites.get(client);
+        return lastWrite != null && System.currentTimeMillis() - lastWrite <= stickinessMillis;
+    }
+}
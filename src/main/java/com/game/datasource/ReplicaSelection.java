@@ -0,0 +1,6 @@
+package com.game.datasource;
+
+public enum ReplicaSelection {
+    ROUND_ROBIN,
+    LEAST_CONNECTIONS
+}
@@ -0,0 +1,44 @@
+package com.game.datasource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+
+/*
+ * Шард k из n выдает только id, для которых (id - 1) % n == k, поэтому шард игрока
+ * вычисляется по самому id без справочника. Для MySQL шаг и смещение AUTO_INCREMENT
+ * задаются переменными сессии, для H2 - перестройкой identity-колонки.
+ */
+public final class ShardDataSources {
+
+    private ShardDataSources() {
+    }
+
+    public static DataSource create(String url, String username, String password, int shard, int shardCount) {
+        if (url.startsWith("jdbc:mysql:")) {
+            String separator = url.contains("?") ? "&" : "?";
+            String sessionVariables = "sessionVariables=auto_increment_increment=" + shardCount
+                    + ",auto_increment_offset=" + (shard + 1);
+            return new DriverManagerDataSource(url + separator + sessionVariables, username, password);
+        }
+        DataSource dataSource = new DriverManagerDataSource(url, username, password);
+        interleaveIdentity(dataSource, shard, shardCount);
+        return dataSource;
+    }
+
+    public static void interleaveIdentity(DataSource dataSource, int shard, int shardCount) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM player", Long.class);
+        long start = shard + 1;
+        if (maxId != null && maxId >= start) {
+            start += ((maxId - start) / shardCount + 1) * shardCount;
+        }
+        jdbcTemplate.execute("ALTER TABLE player ALTER COLUMN id BIGINT AUTO_INCREMENT("
+                + start + ", " + shardCount + ")");
+    }
+
+    public static int shardOf(long id, int shardCount) {
+        return (int) Math.floorMod(id - 1, (long) shardCount);
+    }
+}
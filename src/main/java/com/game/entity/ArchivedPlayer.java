@@ -0,0 +1,59 @@
+package com.game.entity;
+
+import javax.persistence.*;
+import java.util.Date;
+
+// Холодная копия игрока в player_archive: забаненные и давно неактивные не раздувают горячую таблицу
+@Entity
+@Table(name = "player_archive")
+public class ArchivedPlayer {
+    @Id
+    @Column(name = "id", nullable = false)
+    private Long id;
+    @Column(name = "name")
+    private String name;
+    @Column(name = "title")
+    private String title;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "race")
+    private Race race;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "profession")
+    private Profession profession;
+    @Column(name = "experience")
+    private Integer experience;
+    @Column(name = "level")
+    private Integer level;
+    @Column(name = "untilnextlevel")
+    private Integer untilNextLevel;
+    @Column(name = "birthday")
+    private Date birthday;
+    @Column(name = "banned")
+    private Boolean banned;
+    @Column(name = "archived")
+    private Date archived;
+
+    public Long getId() {
+        return id;
+    }
+
+    public Date getArchived() {
+        return archived;
+    }
+
+    // В ответах архивный игрок выглядит так же, как обычный
+    public Player toPlayer() {
+        Player player = new Player();
+        player.setId(id);
+        player.setName(name);
+        player.setTitle(title);
+        player.setRace(race);
+        player.setProfession(profession);
+        player.setExperience(experience);
+        player.setLevel(level);
+        player.setUntilNextLevel(untilNextLevel);
+        player.setBirthday(birthday);
+        player.setBanned(banned);
+        return player;
+    }
+}
@@ -1,5 +1,7 @@
 package com.game.entity;
 
+import org.hibernate.annotations.Where;
+
 import javax.persistence.*;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -8,6 +10,8 @@ import java.util.Date;
 
 @Entity
 @Table(name = "player")
+// Мягко удаленные строки ждут PlayerPurger и не видны ни одному запросу по сущности
+@Where(clause = "deleted IS NULL")
 public class Player {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -103,6 +107,11 @@ public class Player {
         return dateToLong(String.valueOf(this.birthday));
     }
 
+    // Дата как есть: getBirthday разбирает ее через строку и понимает только java.sql.Date из базы
+    public Date getBirthdayDate() {
+        return birthday;
+    }
+
     public void setBirthday(Date birthday) {
         this.birthday = birthday;
     }
@@ -0,0 +1,189 @@
+package com.game.filter;
+
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/*
+ * Обертка ответа, которая держит в памяти не больше limit первых байт тела. Пока тело в буфере,
+ * заголовки еще можно менять. Поток ответа открывается при переполнении буфера, явном flush
+ * или в finish(): что поставить в заголовки и куда писать тело, решает наследник в openTarget.
+ * Content-Length откладывается до открытия потока - наследник передает его через plainTarget.
+ */
+abstract class BufferedResponse extends HttpServletResponseWrapper {
+    private final int limit;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private OutputStream target;
+    private long contentLength = -1;
+    private boolean lengthPassed;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    BufferedResponse(HttpServletResponse response, int limit) {
+        super(response);
+        this.limit = limit;
+    }
+
+    // overflow - тело больше limit; иначе оно целиком в буфере или отправку торопит flush
+    protected abstract OutputStream openTarget(boolean overflow) throws IOException;
+
+    // Тела нет (204, sendError) - поток ответа не открывается
+    protected void emptyBody() {
+    }
+
+    // Дописывает то, что открыл openTarget (хвост gzip)
+    protected void finishTarget(OutputStream target) throws IOException {
+    }
+
+    // Поток ответа как есть, с отложенным Content-Length
+    protected final OutputStream plainTarget() throws IOException {
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        lengthPassed = true;
+        if (contentLength >= 0) {
+            response.setContentLengthLong(contentLength);
+        }
+        return response.getOutputStream();
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setContentLengthLong(length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        contentLength = length;
+        if (lengthPassed) {
+            super.setContentLengthLong(length);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() уже вызван");
+        }
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    BufferedResponse.this.write(bytes, offset, length);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    BufferedResponse.this.flush();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() уже вызван");
+            }
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            outputStream = null;
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        flush();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (target != null) {
+            throw new IllegalStateException("Ответ уже начал отправляться");
+        }
+        buffer.reset();
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        contentLength = -1;
+        super.reset();
+    }
+
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (target == null) {
+            if (buffer.size() == 0) {
+                emptyBody();
+                return;
+            }
+            startTarget(false);
+        }
+        finishTarget(target);
+        target.flush();
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        if (target == null) {
+            if (buffer.size() + length <= limit) {
+                buffer.write(bytes, offset, length);
+                return;
+            }
+            startTarget(true);
+        }
+        target.write(bytes, offset, length);
+    }
+
+    private void flush() throws IOException {
+        if (target == null) {
+            startTarget(false);
+        }
+        target.flush();
+    }
+
+    private void startTarget(boolean overflow) throws IOException {
+        target = openTarget(overflow);
+        buffer.writeTo(target);
+        buffer.reset();
+    }
+}
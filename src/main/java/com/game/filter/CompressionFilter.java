@@ -0,0 +1,109 @@
+package com.game.filter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Сжимает ответы gzip или deflate, если клиент их принимает и тело больше порога.
+ * Первые threshold байт копятся в памяти (BufferedResponse): маленькие ответы уходят как есть,
+ * большие - через сжатие. Явный flush до порога (SSE, потоковая выдача)
+ * отключает сжатие для этого ответа.
+ */
+@Component
+public class CompressionFilter extends OncePerRequestFilter {
+    private final int threshold;
+
+    public CompressionFilter(@Value("${rpg.compression.threshold-bytes:1024}") int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String encoding = chooseEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        CompressingResponse wrapper = new CompressingResponse(response, encoding, threshold);
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            wrapper.finish();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return true;
+    }
+
+    static String chooseEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean deflate = false;
+        for (String part : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim();
+            if (tokens.length > 1 && tokens[1].trim().matches("q=0(\\.0*)?")) {
+                continue;
+            }
+            if ("gzip".equals(coding)) {
+                return "gzip";
+            }
+            deflate |= "deflate".equals(coding);
+        }
+        return deflate ? "deflate" : null;
+    }
+
+    private static final class CompressingResponse extends BufferedResponse {
+        private final String encoding;
+
+        CompressingResponse(HttpServletResponse response, String encoding, int threshold) {
+            super(response, threshold);
+            this.encoding = encoding;
+        }
+
+        // Сжимается только тело больше порога; длина сжатого тела заранее неизвестна
+        @Override
+        protected OutputStream openTarget(boolean overflow) throws IOException {
+            if (!overflow || !isCompressible()) {
+                return plainTarget();
+            }
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+            OutputStream raw = response.getOutputStream();
+            return "gzip".equals(encoding)
+                    ? new GZIPOutputStream(raw, 8192, true)
+                    : new DeflaterOutputStream(raw, new Deflater(Deflater.DEFAULT_COMPRESSION), 8192, true);
+        }
+
+        @Override
+        protected void finishTarget(OutputStream target) throws IOException {
+            if (target instanceof DeflaterOutputStream) {
+                ((DeflaterOutputStream) target).finish();
+            }
+        }
+
+        private boolean isCompressible() {
+            String contentType = getContentType();
+            return getHeader(HttpHeaders.CONTENT_ENCODING) == null
+                    && (contentType == null || !contentType.startsWith("text/event-stream"));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.game.filter;
+
+import com.game.requests.ClientKey;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Ограничение нагрузки на /rest/players. У каждого адреса клиента два token bucket:
+ * дешевые запросы по id и дорогие (список, count, пакетный поиск), которые ходят
+ * по всей таблице. Сверху общий лимит одновременных запросов: лишние сразу получают
+ * 503, а не ждут в очереди. Превышение личного бюджета - 429. В обоих случаях Retry-After.
+ * X-Client-Id в ключ не входит: сменой заголовка нельзя получить новый бюджет или потратить чужой.
+ * Ведер не больше max-clients на вид; адреса сверх этого делят одно общее ведро.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final String PREFIX = "/rest/players";
+
+    private final boolean enabled;
+    private final double cheapRate;
+    private final int cheapBurst;
+    private final double expensiveRate;
+    private final int expensiveBurst;
+    private final int maxConcurrent;
+    private final int maxClients;
+    private final Semaphore concurrency;
+
+    private final ConcurrentHashMap<String, TokenBucket> cheapBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> expensiveBuckets = new ConcurrentHashMap<>();
+    private final TokenBucket cheapOverflow;
+    private final TokenBucket expensiveOverflow;
+    // Полная карта чистится от полных ведер не чаще раза в секунду
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder throttledCheap = new LongAdder();
+    private final LongAdder throttledExpensive = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public RateLimitFilter(@Value("${rpg.ratelimit.enabled:true}") boolean enabled,
+                           @Value("${rpg.ratelimit.cheap-per-second:50}") double cheapRate,
+                           @Value("${rpg.ratelimit.cheap-burst:100}") int cheapBurst,
+                           @Value("${rpg.ratelimit.expensive-per-second:5}") double expensiveRate,
+                           @Value("${rpg.ratelimit.expensive-burst:20}") int expensiveBurst,
+                           @Value("${rpg.ratelimit.max-concurrent:64}") int maxConcurrent,
+                           @Value("${rpg.ratelimit.max-clients:10000}") int maxClients) {
+        this.enabled = enabled;
+        this.cheapRate = cheapRate;
+        this.cheapBurst = cheapBurst;
+        this.expensiveRate = expensiveRate;
+        this.expensiveBurst = expensiveBurst;
+        this.maxConcurrent = maxConcurrent;
+        this.maxClients = maxClients;
+        this.concurrency = new Semaphore(maxConcurrent);
+        this.cheapOverflow = new TokenBucket(cheapRate, cheapBurst);
+        this.expensiveOverflow = new TokenBucket(expensiveRate, expensiveBurst);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !path(request).startsWith(PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = path(request);
+        boolean expensive = isExpensive(request.getMethod(), path);
+        String client = ClientKey.address(request);
+        long now = System.nanoTime();
+        long wait = expensive
+                ? bucket(expensiveBuckets, expensiveOverflow, client, expensiveRate, expensiveBurst, now).tryAcquire(now)
+                : bucket(cheapBuckets, cheapOverflow, client, cheapRate, cheapBurst, now).tryAcquire(now);
+        if (wait > 0) {
+            (expensive ? throttledExpensive : throttledCheap).increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toSeconds(wait) + 1);
+            return;
+        }
+        // Поток событий держит соединение часами - в лимит одновременных запросов его не считаем
+        if (path.equals(PREFIX + "/events")) {
+            admitted.increment();
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!concurrency.tryAcquire()) {
+            shed.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1);
+            return;
+        }
+        try {
+            admitted.increment();
+            chain.doFilter(request, response);
+        } finally {
+            concurrency.release();
+        }
+    }
+
+    private TokenBucket bucket(ConcurrentHashMap<String, TokenBucket> buckets, TokenBucket overflow, String client,
+                               double rate, int burst, long now) {
+        TokenBucket bucket = buckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients) {
+            long last = lastEviction.get();
+            if (now - last > TimeUnit.SECONDS.toNanos(1) && lastEviction.compareAndSet(last, now)) {
+                evictIdleBuckets();
+            }
+            if (buckets.size() >= maxClients) {
+                return overflow;
+            }
+        }
+        return buckets.computeIfAbsent(client, key -> new TokenBucket(rate, burst));
+    }
+
+    // Сколько запросов обслуживается прямо сейчас - фоновые задачи ждут, пока нагрузка спадет
+    public int inFlight() {
+        return maxConcurrent - concurrency.availablePermits();
+    }
+
+    public Map<String, Long> metrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("admitted", admitted.sum());
+        metrics.put("throttledCheap", throttledCheap.sum());
+        metrics.put("throttledExpensive", throttledExpensive.sum());
+        metrics.put("shed", shed.sum());
+        metrics.put("inFlight", (long) inFlight());
+        metrics.put("clients", (long) Math.max(cheapBuckets.size(), expensiveBuckets.size()));
+        return metrics;
+    }
+
+    // Полные ведра не хранят ничего полезного - выбрасываем, чтобы карта не росла от случайных адресов
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        cheapBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        expensiveBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    // Список, count и пакетный поиск читают много строк; запросы по одному id и к индексам в памяти - дешевые
+    static boolean isExpensive(String method, String path) {
+        String rest = path.substring(PREFIX.length());
+        return (rest.isEmpty() || rest.equals("/")) && "GET".equals(method)
+                || rest.equals("/count") || rest.equals("/lookup");
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+    }
+}
@@ -0,0 +1,39 @@
+package com.game.filter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Token bucket без блокировок в виде GCRA: вместо числа жетонов хранится одно
+ * "теоретическое время прихода" следующего запроса, и оно двигается CAS-ом.
+ * Ведро на burst жетонов, пополняется на ratePerSecond в секунду.
+ */
+final class TokenBucket {
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    TokenBucket(double ratePerSecond, int burst) {
+        this.intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.toleranceNanos = intervalNanos * burst;
+    }
+
+    // 0 - запрос пропущен, иначе через сколько наносекунд появится жетон
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, nowNanos) + intervalNanos;
+            long wait = next - nowNanos - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Полное ведро ничем не отличается от нового - такое можно выбросить
+    boolean isFull(long nowNanos) {
+        return theoreticalArrival.get() <= nowNanos;
+    }
+}
@@ -0,0 +1,105 @@
+package com.game.filter;
+
+import com.game.trace.RequestTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/*
+ * Трассировка запросов к /rest: X-Trace-Id (свой от клиента или новый) и Server-Timing с временем
+ * фаз из RequestTrace. Заголовок ставится перед первыми байтами тела: в памяти держится не больше
+ * BUFFER_BYTES, большие ответы уходят потоком. Сериализация, которая еще идет, учитывается
+ * до этого момента (конвертер Jackson делает flush в конце записи). Доля rpg.trace.sample-rate
+ * запросов пишет в лог все отрезки.
+ */
+@Component
+public class TracingFilter extends OncePerRequestFilter {
+    public static final String TRACE_ID = "X-Trace-Id";
+    public static final String SERVER_TIMING = "Server-Timing";
+    private static final Logger log = LoggerFactory.getLogger(TracingFilter.class);
+    private static final Pattern CLIENT_TRACE_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+    private static final int BUFFER_BYTES = 8192;
+
+    private final boolean enabled;
+    private final double sampleRate;
+
+    public TracingFilter(@Value("${rpg.trace.enabled:true}") boolean enabled,
+                         @Value("${rpg.trace.sample-rate:0}") double sampleRate) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().substring(request.getContextPath().length()).startsWith("/rest/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String clientTraceId = request.getHeader(TRACE_ID);
+        String traceId = clientTraceId != null && CLIENT_TRACE_ID.matcher(clientTraceId).matches()
+                ? clientTraceId : UUID.randomUUID().toString().replace("-", "");
+        boolean sampled = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        RequestTrace trace = RequestTrace.begin(traceId, sampled);
+        response.setHeader(TRACE_ID, traceId);
+        TimingResponse wrapper = new TimingResponse(response, trace);
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            RequestTrace.end();
+            wrapper.finish();
+            if (sampled) {
+                log.info("Trace {} {} {} -> {}: {}\n  {}", traceId, request.getMethod(), request.getRequestURI(),
+                        response.getStatus(), trace.serverTiming(), String.join("\n  ", trace.describeSpans()));
+            }
+        }
+    }
+
+    private static final class TimingResponse extends BufferedResponse {
+        private final RequestTrace trace;
+
+        TimingResponse(HttpServletResponse response, RequestTrace trace) {
+            super(response, BUFFER_BYTES);
+            this.trace = trace;
+        }
+
+        // Заголовки уходят вместе с первыми байтами тела - Server-Timing ставится перед ними
+        @Override
+        protected OutputStream openTarget(boolean overflow) throws IOException {
+            setServerTiming();
+            return plainTarget();
+        }
+
+        @Override
+        protected void emptyBody() {
+            setServerTiming();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            // reset() стирает и заголовки - номер трассировки нужен и в ответе об ошибке
+            setHeader(TRACE_ID, trace.getTraceId());
+        }
+
+        private void setServerTiming() {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            if (!response.isCommitted()) {
+                response.setHeader(SERVER_TIMING, trace.serverTiming());
+            }
+        }
+    }
+}
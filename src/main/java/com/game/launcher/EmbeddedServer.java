@@ -0,0 +1,147 @@
+package com.game.launcher;
+
+import com.game.config.MyWebAppInit;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.core.StandardThreadExecutor;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.webresources.StandardRoot;
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.apache.jasper.servlet.JasperInitializer;
+import org.apache.tomcat.util.scan.StandardJarScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/*
+ * Запуск без внешнего контейнера: встроенный Tomcat с NIO-коннектором, который
+ * поднимает приложение через тот же MyWebAppInit, что и war.
+ */
+public class EmbeddedServer {
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedServer.class);
+
+    private final ServerSettings settings;
+    private final Tomcat tomcat = new Tomcat();
+    private Connector connector;
+
+    public EmbeddedServer(ServerSettings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        EmbeddedServer server = new EmbeddedServer(ServerSettings.load());
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stopQuietly, "embedded-server-shutdown"));
+        server.tomcat.getServer().await();
+    }
+
+    public void start() throws LifecycleException, IOException {
+        File baseDir = Files.createTempDirectory("rpg-tomcat").toFile();
+        baseDir.deleteOnExit();
+        tomcat.setBaseDir(baseDir.getAbsolutePath());
+
+        connector = createConnector();
+        tomcat.getService().addConnector(connector);
+        tomcat.setConnector(connector);
+
+        Context context = tomcat.addContext(settings.getContextPath(), baseDir.getAbsolutePath());
+        context.setResources(webResources(context));
+        // Без web.xml: только сервлеты по умолчанию (статика и JSP), остальное регистрирует MyWebAppInit
+        Tomcat.initWebappDefaults(context);
+        // JSP и TLD в jar-ах не используются - не сканируем classpath, это ускоряет холодный старт
+        StandardJarScanner jarScanner = new StandardJarScanner();
+        jarScanner.setScanClassPath(false);
+        jarScanner.setScanManifest(false);
+        context.setJarScanner(jarScanner);
+        context.addServletContainerInitializer(new JasperInitializer(), null);
+        context.addServletContainerInitializer((classes, servletContext) -> {
+            if (settings.getProfile() != null) {
+                // MyWebAppInit выставляет prod, только если профиль не задан раньше
+                servletContext.setInitParameter("spring.profiles.active", settings.getProfile());
+            }
+            // Классы приложения лежат в classpath запуска, а не в WEB-INF: контексты Spring создаются
+            // с тем же загрузчиком, иначе CGLIB-прокси сервисов определяются в нем повторно
+            Thread thread = Thread.currentThread();
+            ClassLoader webappClassLoader = thread.getContextClassLoader();
+            thread.setContextClassLoader(EmbeddedServer.class.getClassLoader());
+            try {
+                new MyWebAppInit().onStartup(servletContext);
+            } finally {
+                thread.setContextClassLoader(webappClassLoader);
+            }
+        }, null);
+
+        tomcat.start();
+        log.info("Сервер слушает порт {}, потоков до {}, очередь соединений {}, HTTP/2 {}",
+                getPort(), settings.getMaxThreads(), settings.getAcceptCount(), settings.isHttp2() ? "включен" : "выключен");
+    }
+
+    private Connector createConnector() {
+        Connector connector = new Connector(Http11NioProtocol.class.getName());
+        connector.setPort(settings.getPort());
+        connector.setURIEncoding("UTF-8");
+
+        StandardThreadExecutor executor = new StandardThreadExecutor();
+        executor.setName("http-workers");
+        executor.setNamePrefix("http-worker-");
+        executor.setMaxThreads(settings.getMaxThreads());
+        executor.setMinSpareThreads(settings.getMinSpareThreads());
+        tomcat.getService().addExecutor(executor);
+
+        Http11NioProtocol protocol = (Http11NioProtocol) connector.getProtocolHandler();
+        protocol.setExecutor(executor);
+        protocol.setAcceptCount(settings.getAcceptCount());
+        protocol.setMaxConnections(settings.getMaxConnections());
+        protocol.setConnectionTimeout(settings.getConnectionTimeoutMillis());
+        protocol.setKeepAliveTimeout(settings.getKeepAliveTimeoutMillis());
+        protocol.setMaxKeepAliveRequests(settings.getMaxKeepAliveRequests());
+        // Ответы сжимает CompressionFilter, второй раз в коннекторе не сжимаем
+        protocol.setCompression("off");
+        if (settings.isHttp2()) {
+            // Без TLS - h2c через Upgrade и prior knowledge; SSE и длинные списки идут по одному соединению
+            connector.addUpgradeProtocol(new Http2Protocol());
+        }
+        return connector;
+    }
+
+    // Из исполняемого jar ресурсы берутся из META-INF/resources, при запуске из исходников - из doc-base
+    private WebResourceRoot webResources(Context context) {
+        StandardRoot root = new StandardRoot(context);
+        File codeSource = new File(EmbeddedServer.class.getProtectionDomain().getCodeSource().getLocation().getPath());
+        if (codeSource.isFile()) {
+            root.createWebResourceSet(WebResourceRoot.ResourceSetType.RESOURCE_JAR, "/",
+                    codeSource.getAbsolutePath(), null, "/META-INF/resources");
+        } else {
+            root.createWebResourceSet(WebResourceRoot.ResourceSetType.PRE, "/",
+                    new File(settings.getDocBase()).getAbsolutePath(), null, "/");
+        }
+        return root;
+    }
+
+    public int getPort() {
+        return connector.getLocalPort();
+    }
+
+    public Connector getConnector() {
+        return connector;
+    }
+
+    public void stop() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    private void stopQuietly() {
+        try {
+            stop();
+        } catch (LifecycleException e) {
+            log.warn("Сервер остановлен с ошибкой", e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.game.launcher;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+import java.io.IOException;
+import java.util.Properties;
+
+// Настройки встроенного сервера: application.properties, поверх - системные свойства (-Drpg.server.port=...)
+public class ServerSettings {
+    private int port = 8080;
+    private String contextPath = "";
+    private String docBase = "src/main/webapp";
+    private String profile;
+    private int maxThreads = 200;
+    private int minSpareThreads = 10;
+    private int acceptCount = 100;
+    private int maxConnections = 8192;
+    private int connectionTimeoutMillis = 20000;
+    private int keepAliveTimeoutMillis = 20000;
+    private int maxKeepAliveRequests = 100;
+    private boolean http2 = true;
+
+    public static ServerSettings load() throws IOException {
+        Properties properties = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+        properties.putAll(System.getProperties());
+
+        ServerSettings settings = new ServerSettings();
+        settings.port = intValue(properties, "rpg.server.port", settings.port);
+        settings.contextPath = properties.getProperty("rpg.server.context-path", settings.contextPath);
+        settings.docBase = properties.getProperty("rpg.server.doc-base", settings.docBase);
+        settings.profile = properties.getProperty("spring.profiles.active");
+        settings.maxThreads = intValue(properties, "rpg.server.max-threads", settings.maxThreads);
+        settings.minSpareThreads = intValue(properties, "rpg.server.min-spare-threads", settings.minSpareThreads);
+        settings.acceptCount = intValue(properties, "rpg.server.accept-count", settings.acceptCount);
+        settings.maxConnections = intValue(properties, "rpg.server.max-connections", settings.maxConnections);
+        settings.connectionTimeoutMillis = intValue(properties, "rpg.server.connection-timeout-millis", settings.connectionTimeoutMillis);
+        settings.keepAliveTimeoutMillis = intValue(properties, "rpg.server.keep-alive-timeout-millis", settings.keepAliveTimeoutMillis);
+        settings.maxKeepAliveRequests = intValue(properties, "rpg.server.max-keep-alive-requests", settings.maxKeepAliveRequests);
+        settings.http2 = Boolean.parseBoolean(properties.getProperty("rpg.server.http2", String.valueOf(settings.http2)));
+        return settings;
+    }
+
+    private static int intValue(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getContextPath() {
+        return contextPath;
+    }
+
+    public void setContextPath(String contextPath) {
+        this.contextPath = contextPath;
+    }
+
+    public String getDocBase() {
+        return docBase;
+    }
+
+    public void setDocBase(String docBase) {
+        this.docBase = docBase;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    public int getMinSpareThreads() {
+        return minSpareThreads;
+    }
+
+    public void setMinSpareThreads(int minSpareThreads) {
+        this.minSpareThreads = minSpareThreads;
+    }
+
+    public int getAcceptCount() {
+        return acceptCount;
+    }
+
+    public void setAcceptCount(int acceptCount) {
+        this.acceptCount = acceptCount;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getConnectionTimeoutMillis() {
+        return connectionTimeoutMillis;
+    }
+
+    public void setConnectionTimeoutMillis(int connectionTimeoutMillis) {
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+    }
+
+    public int getKeepAliveTimeoutMillis() {
+        return keepAliveTimeoutMillis;
+    }
+
+    public void setKeepAliveTimeoutMillis(int keepAliveTimeoutMillis) {
+        this.keepAliveTimeoutMillis = keepAliveTimeoutMillis;
+    }
+
+    public int getMaxKeepAliveRequests() {
+        return maxKeepAliveRequests;
+    }
+
+    public void setMaxKeepAliveRequests(int maxKeepAliveRequests) {
+        this.maxKeepAliveRequests = maxKeepAliveRequests;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+}
@@ -0,0 +1,127 @@
+package com.game.logstore;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/*
+ * Тело записи журнала - одна транзакция целиком:
+ *   время коммита (8), число изменений (4), затем для каждого:
+ *   тип (1: PUT или DELETE), id (8) и для PUT - поля игрока.
+ * Строки: длина (2, -1 - null) + UTF-8; числа со значением null - MIN_VALUE.
+ */
+final class LogRecords {
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte NULL_BOOLEAN = 2;
+
+    interface Replay {
+        void put(Player player, long committed);
+
+        void delete(long id, long committed);
+    }
+
+    private LogRecords() {
+    }
+
+    // Значение null в writes - удаление
+    static byte[] encode(long committed, Map<Long, Player> writes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * writes.size() + 12);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(committed);
+            out.writeInt(writes.size());
+            for (Map.Entry<Long, Player> write : writes.entrySet()) {
+                Player player = write.getValue();
+                out.writeByte(player == null ? DELETE : PUT);
+                out.writeLong(write.getKey());
+                if (player != null) {
+                    writeString(out, player.getName());
+                    writeString(out, player.getTitle());
+                    writeString(out, player.getRace() != null ? player.getRace().name() : null);
+                    writeString(out, player.getProfession() != null ? player.getProfession().name() : null);
+                    Long birthday = player.getBirthday();
+                    out.writeLong(birthday != null ? birthday : Long.MIN_VALUE);
+                    out.writeInt(orNull(player.getExperience()));
+                    out.writeInt(orNull(player.getLevel()));
+                    out.writeInt(orNull(player.getUntilNextLevel()));
+                    Boolean banned = player.getBanned();
+                    out.writeByte(banned == null ? NULL_BOOLEAN : banned ? 1 : 0);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static void decode(ByteBuffer payload, Replay replay) {
+        long committed = payload.getLong();
+        int count = payload.getInt();
+        for (int i = 0; i < count; i++) {
+            byte type = payload.get();
+            long id = payload.getLong();
+            if (type == DELETE) {
+                replay.delete(id, committed);
+                continue;
+            }
+            if (type != PUT) {
+                throw new IllegalStateException("Неизвестный тип изменения в журнале: " + type);
+            }
+            Player player = new Player();
+            player.setId(id);
+            player.setName(readString(payload));
+            player.setTitle(readString(payload));
+            String race = readString(payload);
+            player.setRace(race != null ? Race.valueOf(race) : null);
+            String profession = readString(payload);
+            player.setProfession(profession != null ? Profession.valueOf(profession) : null);
+            long birthday = payload.getLong();
+            player.setBirthday(birthday != Long.MIN_VALUE ? new java.sql.Date(birthday) : null);
+            player.setExperience(fromNull(payload.getInt()));
+            player.setLevel(fromNull(payload.getInt()));
+            player.setUntilNextLevel(fromNull(payload.getInt()));
+            byte banned = payload.get();
+            player.setBanned(banned == NULL_BOOLEAN ? null : banned == 1);
+            replay.put(player, committed);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Слишком длинная строка для журнала: " + bytes.length + " байт");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer payload) {
+        short length = payload.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int orNull(Integer value) {
+        return value != null ? value : Integer.MIN_VALUE;
+    }
+
+    private static Integer fromNull(int value) {
+        return value != Integer.MIN_VALUE ? value : null;
+    }
+}
@@ -0,0 +1,36 @@
+package com.game.logstore;
+
+import com.game.entity.Player;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Изменения одной транзакции до коммита: null - удаление
+final class LogStoreTransaction {
+    private final Map<Long, Player> writes = new LinkedHashMap<>();
+    private boolean rollbackOnly;
+
+    void put(long id, Player player) {
+        writes.put(id, player);
+    }
+
+    boolean contains(long id) {
+        return writes.containsKey(id);
+    }
+
+    Player get(long id) {
+        return writes.get(id);
+    }
+
+    Map<Long, Player> writes() {
+        return writes;
+    }
+
+    boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+}
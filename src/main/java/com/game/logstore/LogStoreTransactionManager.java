@@ -0,0 +1,90 @@
+package com.game.logstore;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+ * @Transactional для профиля logstore: изменения копятся в LogStoreTransaction,
+ * привязанной к потоку, и при коммите уходят в хранилище одной записью журнала.
+ * Откат просто выбрасывает накопленное.
+ */
+@Component("transactionManager")
+@Profile("logstore")
+public class LogStoreTransactionManager extends AbstractPlatformTransactionManager {
+    private final LogStructuredPlayerRepository store;
+
+    public LogStoreTransactionManager(LogStructuredPlayerRepository store) {
+        this.store = store;
+    }
+
+    @Override
+    protected Object doGetTransaction() {
+        return new Handle((LogStoreTransaction) TransactionSynchronizationManager.getResource(store));
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return ((Handle) transaction).transaction != null;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        Handle handle = (Handle) transaction;
+        handle.transaction = new LogStoreTransaction();
+        TransactionSynchronizationManager.bindResource(store, handle.transaction);
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction) {
+        ((Handle) transaction).transaction = null;
+        return TransactionSynchronizationManager.unbindResource(store);
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources) {
+        TransactionSynchronizationManager.bindResource(store, suspendedResources);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        store.commit(((Handle) status.getTransaction()).transaction.writes());
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        ((Handle) status.getTransaction()).transaction.writes().clear();
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+        ((Handle) status.getTransaction()).transaction.setRollbackOnly();
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        TransactionSynchronizationManager.unbindResource(store);
+        ((Handle) transaction).transaction = null;
+    }
+
+    private static final class Handle implements SmartTransactionObject {
+        private LogStoreTransaction transaction;
+
+        private Handle(LogStoreTransaction transaction) {
+            this.transaction = transaction;
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return transaction != null && transaction.isRollbackOnly();
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
@@ -0,0 +1,704 @@
+package com.game.logstore;
+
+import com.game.controller.PlayerField;
+import com.game.controller.PlayerOrder;
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerRepository;
+import com.game.requests.PlayerFilter;
+import com.game.responses.PlayerView;
+import com.game.snapshot.PlayerSnapshot;
+import com.game.snapshot.PlayerSnapshotFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * PlayerRepository без базы (профиль logstore): игроки в памяти (PlayerTable),
+ * надежность - журнал предзаписи с групповым коммитом (WriteAheadLog), который
+ * по достижении rpg.logstore.compact-bytes сворачивается в снимок snapshot-<сегмент>.bin.
+ * При старте читается последний снимок и проигрываются сегменты журнала после него.
+ *
+ * Внутри транзакции (LogStoreTransactionManager) изменения копятся и применяются при коммите
+ * одной записью журнала; вне транзакции каждое изменение коммитится сразу. Коммит ставит запись
+ * в журнал под блокировкой, а ждет fsync уже без нее, поэтому соседние транзакции попадают в одну пачку.
+ * В таблицу изменение применяет писатель журнала после записи на диск, в порядке журнала: читатели
+ * не видят того, что может пропасть при сбое. Если запись на диск не удалась, хранилище перестает
+ * принимать изменения. Изоляция - read committed: запросы списка не видят незакоммиченные изменения
+ * своей же транзакции, findById видит.
+ */
+@Component
+@Profile("logstore")
+public class LogStructuredPlayerRepository implements PlayerRepository, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(LogStructuredPlayerRepository.class);
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final long compactBytes;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final ReadWriteLock tableLock = new ReentrantReadWriteLock();
+    private final PlayerTable table = new PlayerTable();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final WriteAheadLog wal;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final Object compactionLock = new Object();
+    private volatile Throwable failure;
+    private volatile long compactions;
+    private volatile long lastCompactionMillis;
+
+    public LogStructuredPlayerRepository(@Value("${rpg.logstore.dir:}") String directory,
+                                         @Value("${rpg.logstore.fsync:true}") boolean fsync,
+                                         @Value("${rpg.logstore.group-commit-micros:0}") long groupCommitMicros,
+                                         @Value("${rpg.logstore.compact-bytes:67108864}") long compactBytes) throws IOException {
+        this.directory = directory(directory);
+        this.compactBytes = compactBytes;
+        Files.createDirectories(this.directory);
+        lockChannel = FileChannel.open(this.directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        }
+        if (acquired == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Каталог хранилища " + this.directory + " уже используется");
+        }
+        lock = acquired;
+
+        long lastSegment = recover();
+        this.wal = new WriteAheadLog(this.directory, lastSegment + 1, fsync, TimeUnit.MICROSECONDS.toNanos(groupCommitMicros));
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "logstore-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Path directory(String directory) throws IOException {
+        if (!directory.trim().isEmpty()) {
+            return Paths.get(directory.trim());
+        }
+        Path temporary = Files.createTempDirectory("rpg-logstore");
+        log.warn("rpg.logstore.dir не задан, игроки хранятся во временном каталоге {}", temporary);
+        return temporary;
+    }
+
+    // Последний снимок плюс журнал после него; возвращает номер последнего проигранного сегмента
+    private long recover() throws IOException {
+        long snapshotSegment = -1;
+        List<Long> snapshots = snapshotNumbers();
+        if (!snapshots.isEmpty()) {
+            snapshotSegment = snapshots.get(snapshots.size() - 1);
+            // Журнал до этого снимка уже удален - поврежденный снимок не заменить старым
+            PlayerSnapshot snapshot = PlayerSnapshotFile.read(snapshotPath(snapshotSegment));
+            for (Player player : snapshot.getPlayers()) {
+                table.put(player, snapshot.getHighWaterMillis());
+            }
+            nextId.set(snapshot.getMaxId() + 1);
+        }
+        long last = WriteAheadLog.replay(directory, snapshotSegment, payload -> LogRecords.decode(payload, new LogRecords.Replay() {
+            @Override
+            public void put(Player player, long committed) {
+                table.put(player, committed);
+                nextId.accumulateAndGet(player.getId() + 1, Math::max);
+            }
+
+            @Override
+            public void delete(long id, long committed) {
+                table.remove(id);
+                nextId.accumulateAndGet(id + 1, Math::max);
+            }
+        }));
+        log.info("Log store {} recovered {} players (snapshot after segment {}, journal up to segment {})",
+                directory, table.size(), snapshotSegment, last);
+        return Math.max(last, snapshotSegment);
+    }
+
+    // ---- запись ----
+
+    @Override
+    public <S extends Player> S save(S player) {
+        if (player.getId() == null) {
+            player.setId(nextId.getAndIncrement());
+        } else {
+            nextId.accumulateAndGet(player.getId() + 1, Math::max);
+        }
+        write(player.getId(), stored(player));
+        return player;
+    }
+
+    @Override
+    public <S extends Player> List<S> saveAll(Iterable<S> players) {
+        List<S> saved = new ArrayList<>();
+        for (S player : players) {
+            saved.add(save(player));
+        }
+        return saved;
+    }
+
+    @Override
+    public <S extends Player> S saveAndFlush(S player) {
+        return save(player);
+    }
+
+    @Override
+    public void flush() {
+        // Изменения уходят в журнал при коммите
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        if (!findById(id).isPresent()) {
+            throw new EmptyResultDataAccessException("Игрок " + id + " не найден", 1);
+        }
+        write(id, null);
+    }
+
+    @Override
+    public void delete(Player player) {
+        if (player.getId() != null) {
+            write(player.getId(), null);
+        }
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Player> players) {
+        players.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteInBatch(Iterable<Player> players) {
+        deleteAll(players);
+    }
+
+    @Override
+    public void deleteAll() {
+        for (Long id : findAllIds()) {
+            write(id, null);
+        }
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    // Аналог TRUNCATE TABLE: удаляет всех и начинает нумерацию заново (нужно для сброса данных в тестах)
+    public void truncate() {
+        Map<Long, Player> writes = new HashMap<>();
+        findAllIds().forEach(id -> writes.put(id, null));
+        commit(writes);
+        nextId.set(1);
+    }
+
+    private void write(long id, Player player) {
+        LogStoreTransaction transaction = currentTransaction();
+        if (transaction != null) {
+            transaction.put(id, player);
+            return;
+        }
+        Map<Long, Player> writes = new HashMap<>();
+        writes.put(id, player);
+        commit(writes);
+    }
+
+    // Вызывается LogStoreTransactionManager при коммите; null в writes - удаление
+    void commit(Map<Long, Player> writes) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        CompletableFuture<Long> durable;
+        tableLock.writeLock().lock();
+        try {
+            checkWritable();
+            long committed = System.currentTimeMillis();
+            durable = wal.append(LogRecords.encode(committed, writes), () -> apply(writes, committed));
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+        try {
+            durable.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Прервано ожидание записи журнала", e);
+        } catch (ExecutionException e) {
+            failure = e.getCause();
+            log.error("Log store write failed, the store is read-only from now on", e.getCause());
+            throw new DataAccessResourceFailureException("Не удалось записать журнал", e.getCause());
+        }
+        if (wal.segmentBytes() >= compactBytes && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Log store compaction failed, the journal keeps growing until the next attempt", e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    private void apply(Map<Long, Player> writes, long committed) {
+        tableLock.writeLock().lock();
+        try {
+            writes.forEach((id, player) -> {
+                if (player == null) {
+                    table.remove(id);
+                } else {
+                    table.put(player, committed);
+                }
+            });
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new DataAccessResourceFailureException("Хранилище только для чтения после ошибки записи", failure);
+        }
+    }
+
+    /*
+     * Сворачивает журнал в снимок: писатель журнала переключается на новый сегмент и сразу
+     * снимает копию таблицы - в ней ровно записи закрытых сегментов. Затем пишется снимок
+     * и удаляются вошедшие в него сегменты и старые снимки.
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            long started = System.nanoTime();
+            AtomicReference<PlayerSnapshot> snapshot = new AtomicReference<>();
+            CompletableFuture<Long> rotated = wal.rotate(() -> {
+                tableLock.readLock().lock();
+                try {
+                    snapshot.set(new PlayerSnapshot(table.players(), nextId.get() - 1, System.currentTimeMillis()));
+                } finally {
+                    tableLock.readLock().unlock();
+                }
+            });
+            long closed;
+            try {
+                closed = rotated.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Прервано переключение сегмента журнала", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Не удалось переключить сегмент журнала", e.getCause());
+            }
+            PlayerSnapshotFile.write(snapshotPath(closed), snapshot.get());
+            wal.deleteUpTo(closed);
+            for (long number : snapshotNumbers()) {
+                if (number < closed) {
+                    Files.deleteIfExists(snapshotPath(number));
+                }
+            }
+            compactions++;
+            lastCompactionMillis = (System.nanoTime() - started) / 1_000_000;
+        }
+    }
+
+    // ---- чтение ----
+
+    @Override
+    public Optional<Player> findById(Long id) {
+        LogStoreTransaction transaction = currentTransaction();
+        if (transaction != null && transaction.contains(id)) {
+            Player written = transaction.get(id);
+            return written == null ? Optional.empty() : Optional.of(copy(written));
+        }
+        tableLock.readLock().lock();
+        try {
+            PlayerTable.Row row = table.get(id);
+            return row == null ? Optional.empty() : Optional.of(copy(row.player));
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return findById(id).isPresent();
+    }
+
+    @Override
+    public Player getOne(Long id) {
+        return findById(id).orElseThrow(() -> new EntityNotFoundException("Игрок " + id + " не найден"));
+    }
+
+    @Override
+    public List<Player> findAll() {
+        return query(new PlayerFilter(), null, PlayerOrder.ID, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Page<Player> findAll(Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            throw new UnsupportedOperationException("Хранилище logstore сортирует только через PlayerOrder");
+        }
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findAll());
+        }
+        List<Player> page = query(new PlayerFilter(), null, PlayerOrder.ID, (int) pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(page, pageable, count());
+    }
+
+    @Override
+    public List<Player> findAll(Sort sort) {
+        if (sort.isSorted()) {
+            throw new UnsupportedOperationException("Хранилище logstore сортирует только через PlayerOrder");
+        }
+        return findAll();
+    }
+
+    @Override
+    public List<Player> findAllById(Iterable<Long> ids) {
+        List<Long> requested = new ArrayList<>();
+        ids.forEach(requested::add);
+        return query(new PlayerFilter(), requested, PlayerOrder.ID, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long count() {
+        tableLock.readLock().lock();
+        try {
+            return table.size();
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Integer countByFilters(String name, String title, Race race, Profession profession, Date after, Date before,
+                                  Boolean banned, Integer minExperience, Integer maxExperience, Integer minLevel,
+                                  Integer maxLevel) {
+        PlayerFilter filter = new PlayerFilter(name, title, race, profession, after != null ? after.getTime() : null,
+                before != null ? before.getTime() : null, banned, minExperience, maxExperience, minLevel, maxLevel);
+        return (int) countFiltered(filter, null);
+    }
+
+    @Override
+    public List<Player> findFiltered(PlayerFilter filter, Collection<Long> ids, PlayerOrder order, Pageable pageable) {
+        return query(filter, ids, order, (int) pageable.getOffset(), pageable.getPageSize());
+    }
+
+    @Override
+    public long countFiltered(PlayerFilter filter, Collection<Long> ids) {
+        tableLock.readLock().lock();
+        try {
+            long count = 0;
+            for (Long id : table.candidates(filter, ids)) {
+                PlayerTable.Row row = table.get(id);
+                if (row != null && PlayerPredicate.matches(filter, row.player)) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<PlayerView> findFilteredViews(PlayerFilter filter, Collection<Long> ids, List<PlayerField> fields,
+                                              int visibleFields, PlayerOrder order, Pageable pageable) {
+        List<PlayerView> views = new ArrayList<>();
+        for (Player player : query(filter, ids, order, (int) pageable.getOffset(), pageable.getPageSize())) {
+            views.add(PlayerView.of(player, fields, visibleFields));
+        }
+        return views;
+    }
+
+    @Override
+    public List<Object[]> aggregateByGroup() {
+        Map<List<Object>, Object[]> groups = new LinkedHashMap<>();
+        tableLock.readLock().lock();
+        try {
+            for (PlayerTable.Row row : table.rows()) {
+                Player player = row.player;
+                long experience = player.getExperience() != null ? player.getExperience() : 0;
+                int level = player.getLevel() != null ? player.getLevel() : 0;
+                Object[] group = groups.computeIfAbsent(
+                        java.util.Arrays.asList(player.getRace(), player.getProfession(), player.getBanned(),
+                                Math.floorDiv(level, 10), Math.floorDiv(experience, 1_000_000)),
+                        key -> new Object[]{key.get(0), key.get(1), key.get(2), key.get(3), key.get(4),
+                                0L, 0L, Integer.MAX_VALUE, Integer.MIN_VALUE});
+                group[5] = (Long) group[5] + 1;
+                group[6] = (Long) group[6] + experience;
+                group[7] = Math.min((Integer) group[7], (int) experience);
+                group[8] = Math.max((Integer) group[8], (int) experience);
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    @Override
+    public List<Player> findChangedSince(long maxId, Date since) {
+        List<Player> changed = new ArrayList<>();
+        tableLock.readLock().lock();
+        try {
+            for (PlayerTable.Row row : table.rows()) {
+                if (row.player.getId() > maxId || row.updated >= since.getTime()) {
+                    changed.add(copy(row.player));
+                }
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+        return changed;
+    }
+
+    @Override
+    public List<Long> findAllIds() {
+        tableLock.readLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>(table.size());
+            table.rows().forEach(row -> ids.add(row.player.getId()));
+            return ids;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Date databaseTime() {
+        return new Date(System.currentTimeMillis());
+    }
+
+    /*
+     * Мягкое удаление здесь не нужно: удаление - это правка в памяти и запись в журнал с групповым
+     * коммитом, без блокировок строк, с которыми оно могло бы спорить. Поэтому игрок удаляется сразу,
+     * а очищать PlayerPurger нечего.
+     */
+    @Override
+    public int markDeleted(long id) {
+        if (!findById(id).isPresent()) {
+            return 0;
+        }
+        write(id, null);
+        return 1;
+    }
+
+    @Override
+    public int addExperience(long id, long delta, int max) {
+        Optional<Player> found = findById(id);
+        if (!found.isPresent()) {
+            return 0;
+        }
+        Player player = found.get();
+        int experience = (int) Math.max(0, Math.min(max, player.getExperience() + delta));
+        if (experience == player.getExperience()) {
+            return 0;
+        }
+        player.setExperience(experience);
+        write(id, player);
+        return 1;
+    }
+
+    @Override
+    public List<Number> findPurgeable(int limit) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public int purge(Collection<Long> ids) {
+        return 0;
+    }
+
+    @Override
+    public long countSoftDeleted() {
+        return 0;
+    }
+
+    // Сортировка по id идет прямо по индексам и останавливается на нужной странице
+    private List<Player> query(PlayerFilter filter, Collection<Long> ids, PlayerOrder order, int offset, int limit) {
+        boolean byId = order == null || order == PlayerOrder.ID;
+        List<Player> matched = new ArrayList<>();
+        tableLock.readLock().lock();
+        try {
+            int skipped = 0;
+            for (Long id : table.candidates(filter, ids)) {
+                PlayerTable.Row row = table.get(id);
+                if (row == null || !PlayerPredicate.matches(filter, row.player)) {
+                    continue;
+                }
+                if (byId && skipped < offset) {
+                    skipped++;
+                    continue;
+                }
+                matched.add(row.player);
+                if (byId && matched.size() == limit) {
+                    break;
+                }
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+        if (!byId) {
+            matched.sort(PlayerOrder.comparator(order));
+            matched = offset >= matched.size() ? Collections.emptyList()
+                    : matched.subList(offset, (int) Math.min(matched.size(), (long) offset + limit));
+        }
+        List<Player> copies = new ArrayList<>(matched.size());
+        matched.forEach(player -> copies.add(copy(player)));
+        return copies;
+    }
+
+    // ---- Query by Example не поддерживается ----
+
+    @Override
+    public <S extends Player> Optional<S> findOne(Example<S> example) {
+        throw new UnsupportedOperationException("Query by Example не поддерживается хранилищем logstore");
+    }
+
+    @Override
+    public <S extends Player> List<S> findAll(Example<S> example) {
+        throw new UnsupportedOperationException("Query by Example не поддерживается хранилищем logstore");
+    }
+
+    @Override
+    public <S extends Player> List<S> findAll(Example<S> example, Sort sort) {
+        throw new UnsupportedOperationException("Query by Example не поддерживается хранилищем logstore");
+    }
+
+    @Override
+    public <S extends Player> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw new UnsupportedOperationException("Query by Example не поддерживается хранилищем logstore");
+    }
+
+    @Override
+    public <S extends Player> long count(Example<S> example) {
+        throw new UnsupportedOperationException("Query by Example не поддерживается хранилищем logstore");
+    }
+
+    @Override
+    public <S extends Player> boolean exists(Example<S> example) {
+        throw new UnsupportedOperationException("Query by Example не поддерживается хранилищем logstore");
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("directory", directory.toString());
+        metrics.put("players", count());
+        metrics.put("nextId", nextId.get());
+        metrics.put("walSegment", wal.segmentNumber());
+        metrics.put("walSegmentBytes", wal.segmentBytes());
+        metrics.put("walRecords", wal.records());
+        // Сколько fsync понадобилось на эти записи: разница - выигрыш группового коммита
+        metrics.put("walGroups", wal.groups());
+        metrics.put("compactions", compactions);
+        metrics.put("lastCompactionMillis", lastCompactionMillis);
+        metrics.put("failed", failure != null);
+        return metrics;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+            // Свежий снимок - следующий старт не проигрывает журнал
+            if (failure == null) {
+                compact();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            wal.close();
+            lock.release();
+            lockChannel.close();
+        }
+    }
+
+    private LogStoreTransaction currentTransaction() {
+        return (LogStoreTransaction) TransactionSynchronizationManager.getResource(this);
+    }
+
+    private Path snapshotPath(long segment) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+    }
+
+    private List<Long> snapshotNumbers() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    // Хранимая копия: дата рождения без времени, как после колонки DATE
+    private static Player stored(Player source) {
+        Player player = copy(source);
+        Date birthday = source.getBirthdayDate();
+        player.setBirthday(birthday != null ? java.sql.Date.valueOf(new java.sql.Date(birthday.getTime()).toLocalDate()) : null);
+        return player;
+    }
+
+    private static Player copy(Player source) {
+        Player player = new Player();
+        player.setId(source.getId());
+        player.setName(source.getName());
+        player.setTitle(source.getTitle());
+        player.setRace(source.getRace());
+        player.setProfession(source.getProfession());
+        Date birthday = source.getBirthdayDate();
+        player.setBirthday(birthday != null ? new java.sql.Date(birthday.getTime()) : null);
+        player.setExperience(source.getExperience());
+        player.setLevel(source.getLevel());
+        player.setUntilNextLevel(source.getUntilNextLevel());
+        player.setBanned(source.getBanned());
+        return player;
+    }
+}
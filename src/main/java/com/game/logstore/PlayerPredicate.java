@@ -0,0 +1,94 @@
+package com.game.logstore;
+
+import com.game.entity.Player;
+import com.game.requests.PlayerFilter;
+
+/*
+ * Те же условия, что PlayerQueryBuilder собирает в JPQL, но проверяемые в памяти.
+ * name и title сравниваются как LIKE '%x%': % и _ - шаблоны, \ экранирует,
+ * регистр учитывается (как в H2; в MySQL с utf8 collation регистр не важен).
+ */
+final class PlayerPredicate {
+
+    private PlayerPredicate() {
+    }
+
+    static boolean matches(PlayerFilter filter, Player player) {
+        if (filter.getName() != null && !contains(player.getName(), filter.getName())) {
+            return false;
+        }
+        if (filter.getTitle() != null && !contains(player.getTitle(), filter.getTitle())) {
+            return false;
+        }
+        if (filter.getRace() != null && filter.getRace() != player.getRace()) {
+            return false;
+        }
+        if (filter.getProfession() != null && filter.getProfession() != player.getProfession()) {
+            return false;
+        }
+        Long birthday = player.getBirthday();
+        if (filter.getAfter() != null && (birthday == null || birthday < filter.getAfter())) {
+            return false;
+        }
+        if (filter.getBefore() != null && (birthday == null || birthday > filter.getBefore())) {
+            return false;
+        }
+        if (filter.getBanned() != null && !filter.getBanned().equals(player.getBanned())) {
+            return false;
+        }
+        Integer experience = player.getExperience();
+        if (filter.getMinExperience() != null && (experience == null || experience < filter.getMinExperience())) {
+            return false;
+        }
+        if (filter.getMaxExperience() != null && (experience == null || experience > filter.getMaxExperience())) {
+            return false;
+        }
+        Integer level = player.getLevel();
+        if (filter.getMinLevel() != null && (level == null || level < filter.getMinLevel())) {
+            return false;
+        }
+        return filter.getMaxLevel() == null || (level != null && level <= filter.getMaxLevel());
+    }
+
+    // value LIKE '%' || pattern || '%'
+    static boolean contains(String value, String pattern) {
+        return value != null && like(value, "%" + pattern + "%");
+    }
+
+    // Жадный разбор с откатом к последнему %, без регулярных выражений
+    static boolean like(String value, String pattern) {
+        int v = 0;
+        int p = 0;
+        int starP = -1;
+        int starV = 0;
+        while (v < value.length()) {
+            if (p < pattern.length() && pattern.charAt(p) == '%') {
+                starP = p++;
+                starV = v;
+                continue;
+            }
+            if (p < pattern.length() && matchesOne(pattern, p, value.charAt(v))) {
+                p += pattern.charAt(p) == '\\' && p + 1 < pattern.length() ? 2 : 1;
+                v++;
+                continue;
+            }
+            if (starP < 0) {
+                return false;
+            }
+            p = starP + 1;
+            v = ++starV;
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '%') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    private static boolean matchesOne(String pattern, int p, char c) {
+        char expected = pattern.charAt(p);
+        if (expected == '\\' && p + 1 < pattern.length()) {
+            return pattern.charAt(p + 1) == c;
+        }
+        return expected == '_' || expected == c;
+    }
+}
@@ -0,0 +1,119 @@
+package com.game.logstore;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.requests.PlayerFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+ * Основная карта id -> игрок и вторичные индексы по расе, профессии и бану.
+ * Хранимые Player не меняются и наружу не отдаются - только копии.
+ * Потокобезопасность обеспечивает LogStructuredPlayerRepository.
+ */
+final class PlayerTable {
+    private final TreeMap<Long, Row> rows = new TreeMap<>();
+    private final Map<Race, NavigableSet<Long>> byRace = new EnumMap<>(Race.class);
+    private final Map<Profession, NavigableSet<Long>> byProfession = new EnumMap<>(Profession.class);
+    private final Map<Boolean, NavigableSet<Long>> byBanned = new HashMap<>();
+
+    static final class Row {
+        final Player player;
+        // Время коммита последнего изменения, аналог колонки player.updated
+        final long updated;
+
+        Row(Player player, long updated) {
+            this.player = player;
+            this.updated = updated;
+        }
+    }
+
+    Row get(long id) {
+        return rows.get(id);
+    }
+
+    void put(Player player, long updated) {
+        remove(player.getId());
+        rows.put(player.getId(), new Row(player, updated));
+        index(byRace, player.getRace(), player.getId());
+        index(byProfession, player.getProfession(), player.getId());
+        index(byBanned, player.getBanned(), player.getId());
+    }
+
+    void remove(long id) {
+        Row row = rows.remove(id);
+        if (row != null) {
+            unindex(byRace, row.player.getRace(), id);
+            unindex(byProfession, row.player.getProfession(), id);
+            unindex(byBanned, row.player.getBanned(), id);
+        }
+    }
+
+    void clear() {
+        rows.clear();
+        byRace.clear();
+        byProfession.clear();
+        byBanned.clear();
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    long maxId() {
+        return rows.isEmpty() ? 0 : rows.lastKey();
+    }
+
+    Collection<Row> rows() {
+        return rows.values();
+    }
+
+    // id по возрастанию, среди которых надо проверить фильтр: самый узкий из подходящих индексов или все
+    Collection<Long> candidates(PlayerFilter filter, Collection<Long> ids) {
+        Collection<Long> best = rows.navigableKeySet();
+        if (ids != null) {
+            best = new TreeSet<>(ids);
+        }
+        best = narrower(best, byRace, filter.getRace());
+        best = narrower(best, byProfession, filter.getProfession());
+        best = narrower(best, byBanned, filter.getBanned());
+        return best;
+    }
+
+    List<Player> players() {
+        List<Player> players = new ArrayList<>(rows.size());
+        rows.values().forEach(row -> players.add(row.player));
+        return players;
+    }
+
+    private static <K> Collection<Long> narrower(Collection<Long> current, Map<K, NavigableSet<Long>> index, K key) {
+        if (key == null) {
+            return current;
+        }
+        NavigableSet<Long> ids = index.getOrDefault(key, Collections.emptyNavigableSet());
+        return ids.size() < current.size() ? ids : current;
+    }
+
+    private static <K> void index(Map<K, NavigableSet<Long>> index, K key, long id) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new TreeSet<>()).add(id);
+        }
+    }
+
+    private static <K> void unindex(Map<K, NavigableSet<Long>> index, K key, long id) {
+        NavigableSet<Long> ids = key == null ? null : index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.game.logstore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/*
+ * Журнал предзаписи: сегменты wal-<номер>.log из записей [длина][CRC32][тело].
+ * Коммиты кладут тело в очередь и ждут future; единственный поток-писатель забирает
+ * из очереди все, что накопилось, пишет одной пачкой и делает один fsync на пачку (group commit).
+ * Пока идет fsync, следующие коммиты копятся в очереди и уйдут следующей пачкой.
+ * После записи пачки писатель по порядку выполняет действия записей (применение к таблице) и только
+ * потом завершает их future. Первая же ошибка ввода-вывода останавливает журнал: текущая пачка,
+ * очередь и все следующие записи получают эту ошибку, так что в журнале не бывает дыр.
+ */
+final class WriteAheadLog implements Closeable {
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int FRAME_BYTES = 8;
+
+    private final Path directory;
+    private final boolean fsync;
+    private final long groupCommitNanos;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile IOException failure;
+    // Меняет только писатель
+    private FileChannel channel;
+    private volatile long segmentNumber;
+    private volatile long segmentBytes;
+    private volatile long records;
+    private volatile long groups;
+
+    private static final class Entry {
+        final byte[] payload;
+        final Runnable written;
+        final CompletableFuture<Long> done = new CompletableFuture<>();
+
+        Entry(byte[] payload, Runnable written) {
+            this.payload = payload;
+            this.written = written;
+        }
+
+        boolean isRotation() {
+            return payload == null;
+        }
+    }
+
+    WriteAheadLog(Path directory, long segmentNumber, boolean fsync, long groupCommitNanos) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.groupCommitNanos = groupCommitNanos;
+        open(segmentNumber);
+        this.writer = new Thread(this::writeLoop, "logstore-wal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /*
+     * Завершается, когда запись надежно на диске (или записана в файл, если fsync выключен).
+     * written выполняется в потоке писателя до завершения future и в порядке журнала.
+     */
+    CompletableFuture<Long> append(byte[] payload, Runnable written) {
+        return enqueue(new Entry(payload, written));
+    }
+
+    // Записи после этой пойдут в новый сегмент; switched выполняется сразу после переключения,
+    // когда все предыдущие записи уже применены. Future получит номер закрытого сегмента
+    CompletableFuture<Long> rotate(Runnable switched) {
+        return enqueue(new Entry(null, switched));
+    }
+
+    long segmentNumber() {
+        return segmentNumber;
+    }
+
+    long segmentBytes() {
+        return segmentBytes;
+    }
+
+    long records() {
+        return records;
+    }
+
+    long groups() {
+        return groups;
+    }
+
+    // Удаляет сегменты, целиком вошедшие в снимок
+    void deleteUpTo(long lastSegment) throws IOException {
+        for (long number : segmentNumbers(directory)) {
+            if (number <= lastSegment) {
+                Files.deleteIfExists(segmentPath(directory, number));
+            }
+        }
+    }
+
+    /*
+     * Проигрывает сегменты с номером больше afterSegment. Оборванную запись в конце последнего
+     * сегмента (сбой во время записи) отрезает; повреждение в середине - IOException.
+     * Возвращает номер последнего сегмента или afterSegment, если их нет.
+     */
+    static long replay(Path directory, long afterSegment, Consumer<ByteBuffer> consumer) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        for (long number : segmentNumbers(directory)) {
+            if (number > afterSegment) {
+                numbers.add(number);
+            }
+        }
+        for (int i = 0; i < numbers.size(); i++) {
+            Path path = segmentPath(directory, numbers.get(i));
+            long valid;
+            try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                valid = replaySegment(buffer, consumer);
+            }
+            if (valid < Files.size(path)) {
+                if (i < numbers.size() - 1) {
+                    throw new IOException("Журнал " + path + " поврежден на позиции " + valid);
+                }
+                try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    file.truncate(valid);
+                }
+            }
+        }
+        return numbers.isEmpty() ? afterSegment : numbers.get(numbers.size() - 1);
+    }
+
+    private static long replaySegment(ByteBuffer buffer, Consumer<ByteBuffer> consumer) {
+        while (buffer.remaining() >= FRAME_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                return start;
+            }
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            if (checksum(payload.duplicate()) != crc) {
+                return start;
+            }
+            consumer.accept(payload);
+            buffer.position(start + FRAME_BYTES + length);
+        }
+        return buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private CompletableFuture<Long> enqueue(Entry entry) {
+        if (!running) {
+            entry.done.completeExceptionally(stopped());
+            return entry.done;
+        }
+        queue.add(entry);
+        if (!running) {
+            // Писатель мог остановиться между проверкой и добавлением - запись никто не заберет
+            failQueued();
+        }
+        return entry.done;
+    }
+
+    private IOException stopped() {
+        IOException cause = failure;
+        return cause != null ? new IOException("Журнал остановлен после ошибки записи", cause) : new IOException("Журнал закрыт");
+    }
+
+    private void failQueued() {
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            entry.done.completeExceptionally(stopped());
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        while (failure == null && (running || !queue.isEmpty())) {
+            Entry first;
+            try {
+                first = queue.poll(50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+            if (groupCommitNanos > 0) {
+                // Даем соседним коммитам успеть в ту же пачку
+                LockSupport.parkNanos(groupCommitNanos);
+            }
+            batch.add(first);
+            queue.drainTo(batch);
+            try {
+                write(batch);
+            } catch (IOException e) {
+                // Дальше писать нельзя: следующая запись легла бы после потерянной.
+                // Уже завершенные записи пачки completeExceptionally не меняет
+                failure = e;
+                running = false;
+                batch.forEach(entry -> entry.done.completeExceptionally(e));
+                failQueued();
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Entry> batch) throws IOException {
+        List<Entry> group = new ArrayList<>();
+        for (Entry entry : batch) {
+            if (!entry.isRotation()) {
+                group.add(entry);
+                continue;
+            }
+            writeGroup(group);
+            group.clear();
+            long closed = segmentNumber;
+            channel.force(true);
+            channel.close();
+            open(closed + 1);
+            entry.written.run();
+            entry.done.complete(closed);
+        }
+        writeGroup(group);
+    }
+
+    private void writeGroup(List<Entry> group) throws IOException {
+        if (group.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] buffers = new ByteBuffer[group.size()];
+        long bytes = 0;
+        for (int i = 0; i < group.size(); i++) {
+            byte[] payload = group.get(i).payload;
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES + payload.length);
+            frame.putInt(payload.length);
+            frame.putInt(checksum(ByteBuffer.wrap(payload)));
+            frame.put(payload);
+            frame.flip();
+            buffers[i] = frame;
+            bytes += frame.remaining();
+        }
+        long written = 0;
+        while (written < bytes) {
+            written += channel.write(buffers);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+        segmentBytes += bytes;
+        records += group.size();
+        groups++;
+        long number = segmentNumber;
+        for (Entry entry : group) {
+            entry.written.run();
+            entry.done.complete(number);
+        }
+    }
+
+    private void open(long number) throws IOException {
+        Files.createDirectories(directory);
+        channel = FileChannel.open(segmentPath(directory, number), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentNumber = number;
+        segmentBytes = channel.size();
+    }
+
+    private static int checksum(ByteBuffer bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, number, SUFFIX));
+    }
+
+    static List<Long> segmentNumbers(Path directory) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return numbers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+}
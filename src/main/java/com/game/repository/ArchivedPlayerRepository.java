@@ -0,0 +1,57 @@
+package com.game.repository;
+
+import com.game.entity.ArchivedPlayer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/*
+ * Перенос между player и player_archive - native-запросами INSERT ... SELECT,
+ * без загрузки сущностей. Условие отбора повторяется при копировании: игрок,
+ * ставший активным после выборки кандидатов, в архив не уходит.
+ */
+@Repository
+public interface ArchivedPlayerRepository extends JpaRepository<ArchivedPlayer, Long>, ArchivedPlayerRepositoryCustom {
+    String ARCHIVABLE = "deleted IS NULL AND ((banned = TRUE AND updated < :bannedBefore) OR updated < :inactiveBefore)";
+    String COLUMNS = "id, name, title, race, profession, birthday, banned, experience, level, untilNextLevel";
+
+    // Number: MySQL отдает BIGINT из native-запроса как BigInteger
+    @Query(value = "SELECT id FROM player WHERE " + ARCHIVABLE + " ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Number> findArchivable(@Param("bannedBefore") Date bannedBefore, @Param("inactiveBefore") Date inactiveBefore,
+                                @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO player_archive (" + COLUMNS + ", updated, archived) SELECT " + COLUMNS
+            + ", updated, LOCALTIMESTAMP(3) FROM player WHERE id IN (:ids) AND " + ARCHIVABLE, nativeQuery = true)
+    int copyFromPlayers(@Param("ids") Collection<Long> ids, @Param("bannedBefore") Date bannedBefore,
+                        @Param("inactiveBefore") Date inactiveBefore);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM player WHERE id IN (:ids) AND id IN (SELECT a.id FROM player_archive a WHERE a.id IN (:ids))",
+            nativeQuery = true)
+    int removeFromPlayers(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT a.id FROM ArchivedPlayer a WHERE a.id IN :ids")
+    List<Long> findIdsIn(@Param("ids") Collection<Long> ids);
+
+    // Отметка updated у восстановленного игрока - момент восстановления, в архив он сразу не вернется
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO player (" + COLUMNS + ") SELECT " + COLUMNS + " FROM player_archive WHERE id = :id",
+            nativeQuery = true)
+    int copyToPlayers(@Param("id") long id);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM player_archive WHERE id = :id", nativeQuery = true)
+    int removeFromArchive(@Param("id") long id);
+}
@@ -0,0 +1,16 @@
+package com.game.repository;
+
+import com.game.controller.PlayerOrder;
+import com.game.entity.ArchivedPlayer;
+import com.game.requests.PlayerFilter;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+public interface ArchivedPlayerRepositoryCustom {
+
+    // Те же фильтры и сортировка, что у PlayerRepositoryCustom.findFiltered, но по архиву
+    List<ArchivedPlayer> findFiltered(PlayerFilter filter, PlayerOrder order, Pageable pageable);
+
+    long countFiltered(PlayerFilter filter);
+}
@@ -0,0 +1,37 @@
+package com.game.repository;
+
+import com.game.controller.PlayerOrder;
+import com.game.entity.ArchivedPlayer;
+import com.game.requests.PlayerFilter;
+import org.springframework.data.domain.Pageable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.List;
+
+public class ArchivedPlayerRepositoryCustomImpl implements ArchivedPlayerRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ArchivedPlayer> findFiltered(PlayerFilter filter, PlayerOrder order, Pageable pageable) {
+        PlayerQueryBuilder builder = new PlayerQueryBuilder(filter);
+        TypedQuery<ArchivedPlayer> query = entityManager.createQuery("SELECT p FROM ArchivedPlayer p"
+                + builder.where() + PlayerQueryBuilder.orderBy(order), ArchivedPlayer.class);
+        builder.bind(query);
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        return query.getResultList();
+    }
+
+    @Override
+    public long countFiltered(PlayerFilter filter) {
+        PlayerQueryBuilder builder = new PlayerQueryBuilder(filter);
+        Query query = entityManager.createQuery("SELECT COUNT(p) FROM ArchivedPlayer p" + builder.where());
+        builder.bind(query);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+}
@@ -0,0 +1,85 @@
+package com.game.repository;
+
+import com.game.controller.PlayerField;
+import com.game.controller.PlayerOrder;
+import com.game.requests.PlayerFilter;
+
+import javax.persistence.Query;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Собирает JPQL по фильтру. В отличие от запросов в PlayerRepository, в WHERE
+ * попадают только заданные условия, а не "(:x IS NULL OR ...)" для всех одиннадцати.
+ */
+class PlayerQueryBuilder {
+    private final StringBuilder where = new StringBuilder();
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+    PlayerQueryBuilder(PlayerFilter filter) {
+        this(filter, null);
+    }
+
+    // ids - заранее суженный круг кандидатов (например, триграммным индексом), null - без ограничения
+    PlayerQueryBuilder(PlayerFilter filter, Collection<Long> ids) {
+        if (ids != null) {
+            add("p.id IN :ids", "ids", ids);
+        }
+        if (filter.getName() != null) {
+            add("p.name LIKE :name", "name", "%" + filter.getName() + "%");
+        }
+        if (filter.getTitle() != null) {
+            add("p.title LIKE :title", "title", "%" + filter.getTitle() + "%");
+        }
+        if (filter.getRace() != null) {
+            add("p.race = :race", "race", filter.getRace());
+        }
+        if (filter.getProfession() != null) {
+            add("p.profession = :profession", "profession", filter.getProfession());
+        }
+        if (filter.getAfter() != null) {
+            add("p.birthday >= :after", "after", new Date(filter.getAfter()));
+        }
+        if (filter.getBefore() != null) {
+            add("p.birthday <= :before", "before", new Date(filter.getBefore()));
+        }
+        if (filter.getBanned() != null) {
+            add("p.banned = :banned", "banned", filter.getBanned());
+        }
+        if (filter.getMinExperience() != null) {
+            add("p.experience >= :minExperience", "minExperience", filter.getMinExperience());
+        }
+        if (filter.getMaxExperience() != null) {
+            add("p.experience <= :maxExperience", "maxExperience", filter.getMaxExperience());
+        }
+        if (filter.getMinLevel() != null) {
+            add("p.level >= :minLevel", "minLevel", filter.getMinLevel());
+        }
+        if (filter.getMaxLevel() != null) {
+            add("p.level <= :maxLevel", "maxLevel", filter.getMaxLevel());
+        }
+    }
+
+    private void add(String condition, String parameter, Object value) {
+        where.append(where.length() == 0 ? " WHERE " : " AND ").append(condition);
+        parameters.put(parameter, value);
+    }
+
+    String where() {
+        return where.toString();
+    }
+
+    static String orderBy(PlayerOrder order) {
+        PlayerField field = PlayerField.of(order);
+        if (field == PlayerField.ID) {
+            return " ORDER BY p.id";
+        }
+        return " ORDER BY p." + field.getFieldName() + ", p.id";
+    }
+
+    void bind(Query query) {
+        parameters.forEach(query::setParameter);
+    }
+}
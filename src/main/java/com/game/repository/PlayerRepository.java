@@ -1,46 +1,22 @@
 package com.game.repository;
 
-import com.game.controller.PlayerOrder;
 import com.game.entity.Player;
 import com.game.entity.Profession;
 import com.game.entity.Race;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
 @Repository
-public interface PlayerRepository extends JpaRepository<Player, Long> {
-    @Query("SELECT p FROM Player p WHERE " +
-            "(:name IS NULL OR p.name LIKE CONCAT('%', :name, '%')) " +
-            "AND (:title IS NULL OR p.title LIKE CONCAT('%', :title, '%')) " +
-            "AND (:race IS NULL OR p.race = :race) " +
-            "AND (:profession IS NULL OR p.profession = :profession) " +
-            "AND (:after IS NULL OR p.birthday >= :after) " +
-            "AND (:before IS NULL OR p.birthday <= :before) " +
-            "AND (:banned IS NULL OR p.banned = :banned) " +
-            "AND (:minExperience IS NULL OR p.experience >= :minExperience) " +
-            "AND (:maxExperience IS NULL OR p.experience <= :maxExperience) " +
-            "AND (:minLevel IS NULL OR p.level >= :minLevel) " +
-            "AND (:maxLevel IS NULL OR p.level <= :maxLevel) " +
-            "ORDER BY " +
-            "CASE WHEN :order = null THEN p.id END ASC, " +
-            "CASE WHEN :order = 'name' THEN p.name END ASC, " +
-            "CASE WHEN :order = 'experience' THEN p.experience END ASC, " +
-            "CASE WHEN :order = 'birthday' THEN p.birthday END ASC, " +
-            "CASE WHEN :order = 'level' THEN p.level END ASC")
-
-    List<Player> findFilteredPlayers(
-            @Param("name") String name, @Param("title") String title, @Param("race") Race race, @Param("profession") Profession profession,
-            @Param("after") Date after, @Param("before") Date before, @Param("banned") Boolean banned,
-            @Param("minExperience") Integer minExperience, @Param("maxExperience") Integer maxExperience,
-            @Param("minLevel") Integer minLevel, @Param("maxLevel") Integer maxLevel, @Param("order") PlayerOrder order,
-            Pageable pageable);
-
+public interface PlayerRepository extends JpaRepository<Player, Long>, PlayerRepositoryCustom {
     @Query("SELECT COUNT(p) FROM Player p WHERE " +
             "(:name IS NULL OR p.name LIKE %:name%) AND " +
             "(:title IS NULL OR p.title LIKE %:title%) AND " +
@@ -67,4 +43,47 @@ public interface PlayerRepository extends JpaRepository<Player, Long> {
             @Param("maxLevel") Integer maxLevel
     );
 
+    // Сверка статистики в памяти: race, profession, banned, корзины уровня и опыта (как в StatsSummary),
+    // COUNT, SUM, MIN, MAX опыта. Из строк собирается и сама статистика, вместе с гистограммами
+    @Query("SELECT p.race, p.profession, p.banned, FLOOR(p.level / 10), FLOOR(p.experience / 1000000), " +
+            "COUNT(p), SUM(p.experience), MIN(p.experience), MAX(p.experience) FROM Player p " +
+            "GROUP BY p.race, p.profession, p.banned, FLOOR(p.level / 10), FLOOR(p.experience / 1000000)")
+    List<Object[]> aggregateByGroup();
+
+    // Догонка снимка игроков: новые строки и строки, измененные не раньше отметки
+    @Query(value = "SELECT * FROM player WHERE (id > :maxId OR updated >= :since) AND deleted IS NULL", nativeQuery = true)
+    List<Player> findChangedSince(@Param("maxId") long maxId, @Param("since") Date since);
+
+    @Query("SELECT p.id FROM Player p")
+    List<Long> findAllIds();
+
+    // Отметка снимка берется по часам базы, а не приложения
+    @Query(value = "SELECT LOCALTIMESTAMP(3)", nativeQuery = true)
+    Date databaseTime();
+
+    // Мягкое удаление: 0 - игрока нет или он уже удален
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE player SET deleted = LOCALTIMESTAMP(3) WHERE id = :id AND deleted IS NULL", nativeQuery = true)
+    int markDeleted(@Param("id") long id);
+
+    // Начисление опыта одним UPDATE без чтения строки: правка игрока между чтением и записью не затирается.
+    // 0 - игрока нет или опыт уже уперся в границу и не изменился
+    @Modifying
+    @Query(value = "UPDATE player SET experience = LEAST(GREATEST(experience + :delta, 0), :max) " +
+            "WHERE id = :id AND deleted IS NULL AND experience <> LEAST(GREATEST(experience + :delta, 0), :max)",
+            nativeQuery = true)
+    int addExperience(@Param("id") long id, @Param("delta") long delta, @Param("max") int max);
+
+    // Number: MySQL отдает BIGINT из native-запроса как BigInteger
+    @Query(value = "SELECT id FROM player WHERE deleted IS NOT NULL ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Number> findPurgeable(@Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM player WHERE id IN (:ids) AND deleted IS NOT NULL", nativeQuery = true)
+    int purge(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT COUNT(*) FROM player WHERE deleted IS NOT NULL", nativeQuery = true)
+    long countSoftDeleted();
 }
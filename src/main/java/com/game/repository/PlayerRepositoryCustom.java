@@ -0,0 +1,23 @@
+package com.game.repository;
+
+import com.game.controller.PlayerField;
+import com.game.controller.PlayerOrder;
+import com.game.entity.Player;
+import com.game.requests.PlayerFilter;
+import com.game.responses.PlayerView;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface PlayerRepositoryCustom {
+
+    // Первые visibleFields из fields попадают в ответ, остальные нужны для сортировки и слияния
+    List<PlayerView> findFilteredViews(PlayerFilter filter, Collection<Long> ids, List<PlayerField> fields,
+                                       int visibleFields, PlayerOrder order, Pageable pageable);
+
+    // Те же фильтры, что у countByFilters, но только заданные условия и только среди ids (null - среди всех)
+    List<Player> findFiltered(PlayerFilter filter, Collection<Long> ids, PlayerOrder order, Pageable pageable);
+
+    long countFiltered(PlayerFilter filter, Collection<Long> ids);
+}
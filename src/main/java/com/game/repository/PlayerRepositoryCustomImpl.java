@@ -0,0 +1,64 @@
+package com.game.repository;
+
+import com.game.controller.PlayerField;
+import com.game.controller.PlayerOrder;
+import com.game.entity.Player;
+import com.game.requests.PlayerFilter;
+import com.game.responses.PlayerView;
+import org.springframework.data.domain.Pageable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class PlayerRepositoryCustomImpl implements PlayerRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<PlayerView> findFilteredViews(PlayerFilter filter, Collection<Long> ids, List<PlayerField> fields,
+                                              int visibleFields, PlayerOrder order, Pageable pageable) {
+        PlayerQueryBuilder builder = new PlayerQueryBuilder(filter, ids);
+        String select = fields.stream()
+                .map(field -> "p." + field.getFieldName())
+                .collect(Collectors.joining(", "));
+        // Скалярный запрос: Hibernate не создает сущности и не кладет их в контекст персистентности
+        Query query = entityManager.createQuery("SELECT " + select + " FROM Player p"
+                + builder.where() + PlayerQueryBuilder.orderBy(order));
+        builder.bind(query);
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        List<?> rows = query.getResultList();
+        List<PlayerView> views = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Object[] values = fields.size() == 1 ? new Object[]{row} : (Object[]) row;
+            views.add(new PlayerView(fields, visibleFields, values));
+        }
+        return views;
+    }
+
+    @Override
+    public List<Player> findFiltered(PlayerFilter filter, Collection<Long> ids, PlayerOrder order, Pageable pageable) {
+        PlayerQueryBuilder builder = new PlayerQueryBuilder(filter, ids);
+        TypedQuery<Player> query = entityManager.createQuery("SELECT p FROM Player p"
+                + builder.where() + PlayerQueryBuilder.orderBy(order), Player.class);
+        builder.bind(query);
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        return query.getResultList();
+    }
+
+    @Override
+    public long countFiltered(PlayerFilter filter, Collection<Long> ids) {
+        PlayerQueryBuilder builder = new PlayerQueryBuilder(filter, ids);
+        Query query = entityManager.createQuery("SELECT COUNT(p) FROM Player p" + builder.where());
+        builder.bind(query);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+}
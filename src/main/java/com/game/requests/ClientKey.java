@@ -0,0 +1,68 @@
+package com.game.requests;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.security.Principal;
+
+/*
+ * Кто прислал запрос. Заголовок X-Client-Id выбирает сам клиент, поэтому ему верят только там,
+ * где подмена ничего не дает (привязка чтений к основной базе после записи). Лимиты и аудит
+ * опираются на адрес соединения.
+ */
+public final class ClientKey {
+    public static final String HEADER = "X-Client-Id";
+
+    private ClientKey() {
+    }
+
+    public static String of(HttpServletRequest request) {
+        // Явный идентификатор клиента (API-ключ, имя скрипта) важнее адреса
+        String header = claimed(request);
+        if (header != null) {
+            return header;
+        }
+        return address(request);
+    }
+
+    public static String address(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+
+    // Заявленный клиентом идентификатор или null; не проверяется
+    public static String claimed(HttpServletRequest request) {
+        String header = request.getHeader(HEADER);
+        return header != null && !header.isEmpty() ? header : null;
+    }
+
+    // Ключ клиента текущего запроса или null вне HTTP-запроса (фоновые задачи, тесты)
+    public static String current() {
+        HttpServletRequest request = currentRequest();
+        return request != null ? of(request) : null;
+    }
+
+    // Кто сделал изменение: аутентифицированный пользователь, иначе адрес соединения
+    public static String currentActor() {
+        HttpServletRequest request = currentRequest();
+        if (request == null) {
+            return null;
+        }
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? principal.getName() : address(request);
+    }
+
+    public static String currentClaimed() {
+        HttpServletRequest request = currentRequest();
+        return request != null ? claimed(request) : null;
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            return ((ServletRequestAttributes) attributes).getRequest();
+        }
+        return null;
+    }
+}
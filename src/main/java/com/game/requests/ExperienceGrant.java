@@ -0,0 +1,14 @@
+package com.game.requests;
+
+// Тело POST /rest/players/{id}/experience: сколько опыта добавить
+public class ExperienceGrant {
+    private Integer delta;
+
+    public Integer getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Integer delta) {
+        this.delta = delta;
+    }
+}
@@ -0,0 +1,35 @@
+package com.game.responses;
+
+import com.game.audit.AuditAction;
+import com.game.audit.AuditRecord;
+
+public class AuditEntry {
+    private final long timestamp;
+    private final AuditAction action;
+    private final String actor;
+    // Заголовок X-Client-Id как его прислал клиент; для проверки прав не годится
+    private final String claimedClient;
+
+    public AuditEntry(AuditRecord record) {
+        this.timestamp = record.getTimestamp();
+        this.action = record.getAction();
+        this.actor = record.getActor();
+        this.claimedClient = record.getClaimedClient();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public AuditAction getAction() {
+        return action;
+    }
+
+    public String getActor() {
+        return actor;
+    }
+
+    public String getClaimedClient() {
+        return claimedClient;
+    }
+}
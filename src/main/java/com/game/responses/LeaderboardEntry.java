@@ -0,0 +1,37 @@
+package com.game.responses;
+
+public class LeaderboardEntry {
+    private final int rank;
+    private final long id;
+    private final String name;
+    private final int experience;
+    private final int level;
+
+    public LeaderboardEntry(int rank, long id, String name, int experience, int level) {
+        this.rank = rank;
+        this.id = id;
+        this.name = name;
+        this.experience = experience;
+        this.level = level;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getExperience() {
+        return experience;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+}
@@ -0,0 +1,25 @@
+package com.game.responses;
+
+public class NameSuggestion {
+    private final long id;
+    private final String name;
+    private final int level;
+
+    public NameSuggestion(long id, String name, int level) {
+        this.id = id;
+        this.name = name;
+        this.level = level;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+}
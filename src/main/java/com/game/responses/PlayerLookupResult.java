@@ -0,0 +1,23 @@
+package com.game.responses;
+
+import com.game.entity.Player;
+
+import java.util.List;
+
+public class PlayerLookupResult {
+    private final List<Player> players;
+    private final List<Long> missing;
+
+    public PlayerLookupResult(List<Player> players, List<Long> missing) {
+        this.players = players;
+        this.missing = missing;
+    }
+
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+}
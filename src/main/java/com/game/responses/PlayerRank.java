@@ -0,0 +1,31 @@
+package com.game.responses;
+
+public class PlayerRank {
+    private final long id;
+    private final String by;
+    private final int rank;
+    private final int total;
+
+    public PlayerRank(long id, String by, int rank, int total) {
+        this.id = id;
+        this.by = by;
+        this.rank = rank;
+        this.total = total;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getBy() {
+        return by;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
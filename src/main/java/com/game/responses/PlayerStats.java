@@ -0,0 +1,21 @@
+package com.game.responses;
+
+import java.util.List;
+
+public class PlayerStats {
+    private final StatsGroup total;
+    private final List<StatsGroup> groups;
+
+    public PlayerStats(StatsGroup total, List<StatsGroup> groups) {
+        this.total = total;
+        this.groups = groups;
+    }
+
+    public StatsGroup getTotal() {
+        return total;
+    }
+
+    public List<StatsGroup> getGroups() {
+        return groups;
+    }
+}
@@ -0,0 +1,122 @@
+package com.game.responses;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.game.controller.NameCollation;
+import com.game.controller.PlayerField;
+import com.game.controller.PlayerOrder;
+import com.game.entity.Player;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Строка проекции: только выбранные колонки, без сущности и контекста персистентности.
+ * Первые visibleFields колонок попадают в ответ, остальные (id, поле сортировки)
+ * нужны только для слияния страниц с шардов.
+ */
+@JsonSerialize(using = PlayerView.Serializer.class)
+public class PlayerView {
+    private final List<PlayerField> fields;
+    private final int visibleFields;
+    private final Object[] values;
+
+    public PlayerView(List<PlayerField> fields, int visibleFields, Object[] values) {
+        this.fields = fields;
+        this.visibleFields = visibleFields;
+        this.values = values;
+    }
+
+    // Проекция уже загруженного игрока - там, где колонки не выбираются запросом
+    public static PlayerView of(Player player, List<PlayerField> fields, int visibleFields) {
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value(player, fields.get(i));
+        }
+        return new PlayerView(fields, visibleFields, values);
+    }
+
+    public static Object value(Player player, PlayerField field) {
+        switch (field) {
+            case ID:
+                return player.getId();
+            case NAME:
+                return player.getName();
+            case TITLE:
+                return player.getTitle();
+            case RACE:
+                return player.getRace();
+            case PROFESSION:
+                return player.getProfession();
+            case EXPERIENCE:
+                return player.getExperience();
+            case LEVEL:
+                return player.getLevel();
+            case UNTIL_NEXT_LEVEL:
+                return player.getUntilNextLevel();
+            case BIRTHDAY:
+                return player.getBirthdayDate();
+            default:
+                return player.getBanned();
+        }
+    }
+
+    // Колонки, которые попадают в ответ
+    public List<PlayerField> visibleFields() {
+        return fields.subList(0, visibleFields);
+    }
+
+    public Object value(int index) {
+        return values[index];
+    }
+
+    public Object get(PlayerField field) {
+        int index = fields.indexOf(field);
+        return index < 0 ? null : values[index];
+    }
+
+    // Копия с новым значением колонки; без такой колонки - та же строка
+    public PlayerView with(PlayerField field, Object value) {
+        int index = fields.indexOf(field);
+        if (index < 0) {
+            return this;
+        }
+        Object[] copy = values.clone();
+        copy[index] = value;
+        return new PlayerView(fields, visibleFields, copy);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Comparator<PlayerView> comparator(PlayerOrder order, NameCollation collation) {
+        PlayerField field = PlayerField.of(order);
+        Comparator<PlayerView> byId = Comparator.comparing(view -> (Long) view.get(PlayerField.ID));
+        if (field == PlayerField.ID) {
+            return byId;
+        }
+        if (field == PlayerField.NAME) {
+            return Comparator.comparing((PlayerView view) -> (String) view.get(field),
+                    Comparator.nullsFirst(collation.comparator())).thenComparing(byId);
+        }
+        return Comparator.comparing((PlayerView view) -> (Comparable) view.get(field),
+                Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(byId);
+    }
+
+    static class Serializer extends StdSerializer<PlayerView> {
+        Serializer() {
+            super(PlayerView.class);
+        }
+
+        @Override
+        public void serialize(PlayerView view, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < view.visibleFields; i++) {
+                generator.writeFieldName(view.fields.get(i).getFieldName());
+                provider.defaultSerializeValue(view.values[i], generator);
+            }
+            generator.writeEndObject();
+        }
+    }
+}
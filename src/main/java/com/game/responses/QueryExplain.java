@@ -0,0 +1,27 @@
+package com.game.responses;
+
+import java.util.List;
+
+public class QueryExplain {
+    private final double executionMillis;
+    private final int rowsReturned;
+    private final List<StatementExplain> statements;
+
+    public QueryExplain(double executionMillis, int rowsReturned, List<StatementExplain> statements) {
+        this.executionMillis = executionMillis;
+        this.rowsReturned = rowsReturned;
+        this.statements = statements;
+    }
+
+    public double getExecutionMillis() {
+        return executionMillis;
+    }
+
+    public int getRowsReturned() {
+        return rowsReturned;
+    }
+
+    public List<StatementExplain> getStatements() {
+        return statements;
+    }
+}
@@ -0,0 +1,48 @@
+package com.game.responses;
+
+import java.util.List;
+import java.util.Map;
+
+public class StatementExplain {
+    private final String sql;
+    private final List<Object> parameters;
+    private final Integer shard;
+    private final double executionMillis;
+    private final List<Map<String, Object>> plan;
+    private final Long rowsExamined;
+
+    public StatementExplain(String sql, List<Object> parameters, Integer shard, double executionMillis,
+                            List<Map<String, Object>> plan, Long rowsExamined) {
+        this.sql = sql;
+        this.parameters = parameters;
+        this.shard = shard;
+        this.executionMillis = executionMillis;
+        this.plan = plan;
+        this.rowsExamined = rowsExamined;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    public Integer getShard() {
+        return shard;
+    }
+
+    public double getExecutionMillis() {
+        return executionMillis;
+    }
+
+    public List<Map<String, Object>> getPlan() {
+        return plan;
+    }
+
+    // null - база не умеет считать прочитанные строки
+    public Long getRowsExamined() {
+        return rowsExamined;
+    }
+}
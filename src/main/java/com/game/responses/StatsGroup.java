@@ -0,0 +1,85 @@
+package com.game.responses;
+
+import com.game.entity.Profession;
+import com.game.entity.Race;
+
+public class StatsGroup {
+    // null в итоговой строке - значит, по этому признаку группы объединены
+    private final Race race;
+    private final Profession profession;
+    private final Boolean banned;
+    private final long count;
+    private final long sumExperience;
+    private final Double averageExperience;
+    private final Integer minExperience;
+    private final Integer maxExperience;
+    private final int levelBucketSize;
+    private final int[] levelHistogram;
+    private final int experienceBucketSize;
+    private final int[] experienceHistogram;
+
+    public StatsGroup(Race race, Profession profession, Boolean banned, long count, long sumExperience,
+                      Integer minExperience, Integer maxExperience, int levelBucketSize, int[] levelHistogram,
+                      int experienceBucketSize, int[] experienceHistogram) {
+        this.race = race;
+        this.profession = profession;
+        this.banned = banned;
+        this.count = count;
+        this.sumExperience = sumExperience;
+        this.averageExperience = count == 0 ? null : (double) sumExperience / count;
+        this.minExperience = minExperience;
+        this.maxExperience = maxExperience;
+        this.levelBucketSize = levelBucketSize;
+        this.levelHistogram = levelHistogram;
+        this.experienceBucketSize = experienceBucketSize;
+        this.experienceHistogram = experienceHistogram;
+    }
+
+    public Race getRace() {
+        return race;
+    }
+
+    public Profession getProfession() {
+        return profession;
+    }
+
+    public Boolean getBanned() {
+        return banned;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSumExperience() {
+        return sumExperience;
+    }
+
+    public Double getAverageExperience() {
+        return averageExperience;
+    }
+
+    public Integer getMinExperience() {
+        return minExperience;
+    }
+
+    public Integer getMaxExperience() {
+        return maxExperience;
+    }
+
+    public int getLevelBucketSize() {
+        return levelBucketSize;
+    }
+
+    public int[] getLevelHistogram() {
+        return levelHistogram;
+    }
+
+    public int getExperienceBucketSize() {
+        return experienceBucketSize;
+    }
+
+    public int[] getExperienceHistogram() {
+        return experienceHistogram;
+    }
+}
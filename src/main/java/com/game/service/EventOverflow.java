@@ -0,0 +1,9 @@
+package com.game.service;
+
+// Что делать с подписчиком, который не успевает читать поток событий
+public enum EventOverflow {
+    // Затирать самые старые события в буфере и сообщить клиенту, сколько потеряно
+    DROP_OLDEST,
+    // Закрыть соединение: клиент переподключится и перечитает страницу
+    DISCONNECT
+}
@@ -0,0 +1,330 @@
+package com.game.service;
+
+import com.game.controller.PlayerField;
+import com.game.entity.Player;
+import com.game.repository.PlayerRepository;
+import com.game.responses.PlayerView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/*
+ * Буфер начислений опыта (write-behind). Начисление - это LongAdder.add без блокировок,
+ * много начислений одному игроку схлопываются в одно число. Фоновый поток раз в
+ * rpg.experience.flush-millis прибавляет накопленное атомарными UPDATE, пересчитывая уровень
+ * формулами PlayerOperations. При остановке приложения буфер сливается в базу.
+ * Коммит пачки и отметка записанного идут под handoff на запись, а чтение из базы вместе
+ * с добавлением начислений (read) - на чтение: читатель не видит начисление дважды.
+ */
+@Component
+public class ExperienceBuffer implements PlayerChangeListener, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(ExperienceBuffer.class);
+    // Проверка в PlayerService: опыт строго меньше 10 000 000
+    private static final int MAX_EXPERIENCE = 10_000_000 - 1;
+
+    private final PlayerRepository playerRepository;
+    private final PlayerOperations playerOperations;
+    private final PlayerShards playerShards;
+    private final PlayerChangePublisher changePublisher;
+    private final TransactionTemplate transaction;
+    private final long maxLagMillis;
+    private final int maxPendingPlayers;
+    private final int chunkSize;
+
+    private final Set<Long> knownPlayers = ConcurrentHashMap.newKeySet();
+    // Запись живет, пока жив игрок: удалять ее на лету небезопасно, начисление может прийти в уже удаленную
+    private final ConcurrentHashMap<Long, Pending> pending = new ConcurrentHashMap<>();
+    // Время первого начисления после прошлого сброса, 0 - буфер пуст
+    private final AtomicLong oldestPending = new AtomicLong();
+    // Игроки с начислениями после прошлого сброса: сам pending не уменьшается
+    private final AtomicInteger dirtyPlayers = new AtomicInteger();
+    // В очереди не больше одного внеочередного сброса
+    private final AtomicBoolean extraFlushQueued = new AtomicBoolean();
+    private final ReadWriteLock handoff = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService flusher;
+
+    public ExperienceBuffer(PlayerRepository playerRepository, PlayerOperations playerOperations,
+                            PlayerShards playerShards, PlayerChangePublisher changePublisher,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${rpg.experience.flush-millis:1000}") long flushMillis,
+                            @Value("${rpg.experience.max-lag-millis:5000}") long maxLagMillis,
+                            @Value("${rpg.experience.max-pending-players:10000}") int maxPendingPlayers,
+                            @Value("${rpg.lookup.chunk-size:500}") int chunkSize) {
+        this.playerRepository = playerRepository;
+        this.playerOperations = playerOperations;
+        this.playerShards = playerShards;
+        this.changePublisher = changePublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.maxLagMillis = maxLagMillis;
+        this.maxPendingPlayers = maxPendingPlayers;
+        this.chunkSize = chunkSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "experience-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // false - такого игрока нет
+    public boolean add(long id, int delta) {
+        if (!knownPlayers.contains(id)) {
+            return false;
+        }
+        Pending entry = pending.get(id);
+        if (entry == null) {
+            entry = pending.computeIfAbsent(id, key -> new Pending());
+        }
+        entry.added.add(delta);
+        if (entry.dirty.compareAndSet(false, true)) {
+            dirtyPlayers.incrementAndGet();
+        }
+        long now = System.currentTimeMillis();
+        if ((!oldestPending.compareAndSet(0, now) && now - oldestPending.get() > maxLagMillis
+                || dirtyPlayers.get() > maxPendingPlayers) && extraFlushQueued.compareAndSet(false, true)) {
+            // Фоновый сброс не успевает - просим внеочередной
+            flusher.execute(() -> {
+                extraFlushQueued.set(false);
+                flushQuietly();
+            });
+        }
+        return true;
+    }
+
+    // Чтение из базы и добавление начислений без коммита сброса между ними
+    public <T> T read(Supplier<T> query) {
+        handoff.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            handoff.readLock().unlock();
+        }
+    }
+
+    public long pendingFor(long id) {
+        Pending entry = pending.get(id);
+        return entry == null ? 0 : entry.pending();
+    }
+
+    // Копия игрока с учетом еще не записанного опыта; сущность из контекста персистентности не трогаем
+    public Player withPending(Player player) {
+        if (player == null) {
+            return null;
+        }
+        long delta = pendingFor(player.getId());
+        if (delta == 0) {
+            return player;
+        }
+        Player copy = new Player();
+        copy.setId(player.getId());
+        copy.setName(player.getName());
+        copy.setTitle(player.getTitle());
+        copy.setRace(player.getRace());
+        copy.setProfession(player.getProfession());
+        copy.setBirthday(player.getBirthday() != null ? new Date(player.getBirthday()) : null);
+        copy.setBanned(player.getBanned());
+        copy.setExperience(player.getExperience());
+        applyExperience(copy, delta);
+        return copy;
+    }
+
+    // Опыт и уровень проекции; без id или опыта в колонках начисления не к чему применить
+    public PlayerView withPending(PlayerView view) {
+        Object id = view.get(PlayerField.ID);
+        Object experience = view.get(PlayerField.EXPERIENCE);
+        long delta = id != null ? pendingFor((Long) id) : 0;
+        if (delta == 0 || experience == null) {
+            return view;
+        }
+        int clamped = clamp(((Number) experience).longValue() + delta);
+        return view.with(PlayerField.EXPERIENCE, clamped)
+                .with(PlayerField.LEVEL, playerOperations.calculateLevel(clamped))
+                .with(PlayerField.UNTIL_NEXT_LEVEL, playerOperations.calculateExpToNextLevel(clamped));
+    }
+
+    // Пишет все накопленное в базу; возвращает число обновленных игроков
+    public synchronized int flush() {
+        oldestPending.set(0);
+        Map<Long, Long> deltas = new HashMap<>();
+        Map<Long, Long> totals = new HashMap<>();
+        pending.forEach((id, entry) -> {
+            // Снимаем отметку до чтения суммы: начисление после нее снова пометит игрока
+            if (entry.dirty.compareAndSet(true, false)) {
+                dirtyPlayers.decrementAndGet();
+            }
+            long total = entry.added.sum();
+            if (total != entry.flushed) {
+                deltas.put(id, total - entry.flushed);
+                totals.put(id, total);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        Map<Integer, List<Long>> byShard = new HashMap<>();
+        for (Long id : deltas.keySet()) {
+            byShard.computeIfAbsent(playerShards.shardFor(id), shard -> new ArrayList<>()).add(id);
+        }
+        int updated = 0;
+        for (Map.Entry<Integer, List<Long>> shard : byShard.entrySet()) {
+            List<Long> ids = shard.getValue();
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                updated += playerShards.onShard(shard.getKey(), () -> transaction.execute(status -> {
+                    TransactionSynchronizationManager.registerSynchronization(new Handoff(chunk, totals));
+                    return write(chunk, deltas);
+                }));
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        knownPlayers.add(player.getId());
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        knownPlayers.remove(id);
+        pending.remove(id);
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        knownPlayers.clear();
+        players.forEach(player -> knownPlayers.add(player.getId()));
+        // Список перечитан из базы целиком (старт, пересоздание таблицы) - старые начисления не к кому применять
+        pending.keySet().removeIf(id -> !knownPlayers.contains(id));
+    }
+
+    @Override
+    public void destroy() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    /*
+     * Опыт прибавляется одним UPDATE на игрока, поэтому правка администратора, закоммиченная
+     * во время сброса, не затирается. Строка остается заблокированной до коммита пачки: уровень
+     * считается от ее текущего опыта. Событие получают только игроки, у которых опыт изменился.
+     */
+    private int write(List<Long> ids, Map<Long, Long> deltas) {
+        List<Long> changed = new ArrayList<>();
+        for (Long id : ids) {
+            if (playerRepository.addExperience(id, deltas.get(id), MAX_EXPERIENCE) > 0) {
+                changed.add(id);
+            }
+        }
+        if (changed.isEmpty()) {
+            return 0;
+        }
+        List<Player> players = playerRepository.findAllById(changed);
+        for (Player player : players) {
+            applyExperience(player, 0);
+            changePublisher.saved(player);
+        }
+        // JPA запишет уровень и сам, а хранилищу logstore его нужно передать явно
+        playerRepository.saveAll(players);
+        return players.size();
+    }
+
+    private void applyExperience(Player player, long delta) {
+        int clamped = clamp((player.getExperience() != null ? player.getExperience() : 0) + delta);
+        player.setExperience(clamped);
+        player.setLevel(playerOperations.calculateLevel(clamped));
+        player.setUntilNextLevel(playerOperations.calculateExpToNextLevel(clamped));
+    }
+
+    private static int clamp(long experience) {
+        return (int) Math.max(0, Math.min(MAX_EXPERIENCE, experience));
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Experience flush failed, pending grants are kept for the next attempt", e);
+        }
+    }
+
+    private static final class Pending {
+        // Сумматор не сбрасываем (sumThenReset в Java 8 может потерять параллельное начисление),
+        // а помним, сколько из него уже записано
+        final LongAdder added = new LongAdder();
+        final AtomicBoolean dirty = new AtomicBoolean();
+        // Пишет только поток сброса
+        volatile long flushed;
+
+        long pending() {
+            return added.sum() - flushed;
+        }
+    }
+
+    // Коммит пачки и отметка записанного - одним шагом для читателей под read
+    private final class Handoff extends TransactionSynchronizationAdapter {
+        private final List<Long> ids;
+        private final Map<Long, Long> totals;
+        private boolean locked;
+
+        Handoff(List<Long> ids, Map<Long, Long> totals) {
+            this.ids = ids;
+            this.totals = totals;
+        }
+
+        @Override
+        public void beforeCompletion() {
+            handoff.writeLock().lock();
+            locked = true;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            try {
+                // При откате начисления остаются в буфере до следующего сброса
+                if (status == STATUS_COMMITTED) {
+                    for (Long id : ids) {
+                        Pending entry = pending.get(id);
+                        if (entry != null) {
+                            entry.flushed = totals.get(id);
+                        }
+                    }
+                }
+            } finally {
+                if (locked) {
+                    handoff.writeLock().unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.game.service;
+
+import com.game.entity.Player;
+import com.game.responses.LeaderboardEntry;
+import com.game.responses.PlayerRank;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Рейтинг игроков в памяти. Строится из базы при старте и дальше обновляется
+ * по каждому изменению в PlayerService, так что топ-N и место игрока
+ * считаются за O(log n) без сортировки таблицы.
+ */
+@Component
+public class Leaderboard implements PlayerChangeListener {
+
+    public enum By {
+        EXPERIENCE,
+        LEVEL;
+
+        public static By parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Entry> entries = new HashMap<>();
+    private RankedSkipList byExperience = new RankedSkipList();
+    private RankedSkipList byLevel = new RankedSkipList();
+
+    public List<LeaderboardEntry> top(By by, int limit) {
+        lock.readLock().lock();
+        try {
+            List<LeaderboardEntry> result = new ArrayList<>(Math.min(limit, entries.size()));
+            int[] previous = {0, 0};
+            list(by).forEach(0, limit, (score, id) -> {
+                // Одинаковый счет - одинаковое место (1, 2, 2, 4)
+                int position = result.size() + 1;
+                int rank = position > 1 && score == previous[1] ? previous[0] : position;
+                previous[0] = rank;
+                previous[1] = score.intValue();
+                Entry entry = entries.get(id);
+                result.add(new LeaderboardEntry(rank, id, entry.name, entry.experience, entry.level));
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // null, если игрока нет в рейтинге
+    public PlayerRank rank(By by, long id) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                return null;
+            }
+            int rank = list(by).countBefore(entry.score(by), Long.MIN_VALUE) + 1;
+            return new PlayerRank(id, by.name().toLowerCase(Locale.ROOT), rank, entries.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        Entry entry = new Entry(player);
+        lock.writeLock().lock();
+        try {
+            remove(entry.id);
+            add(entry, entries, byExperience, byLevel);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        // Строим заново без блокировки и подменяем целиком
+        Map<Long, Entry> newEntries = new HashMap<>(players.size() * 2);
+        RankedSkipList newByExperience = new RankedSkipList();
+        RankedSkipList newByLevel = new RankedSkipList();
+        for (Player player : players) {
+            add(new Entry(player), newEntries, newByExperience, newByLevel);
+        }
+        lock.writeLock().lock();
+        try {
+            entries = newEntries;
+            byExperience = newByExperience;
+            byLevel = newByLevel;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private RankedSkipList list(By by) {
+        return by == By.LEVEL ? byLevel : byExperience;
+    }
+
+    private static void add(Entry entry, Map<Long, Entry> entries, RankedSkipList byExperience, RankedSkipList byLevel) {
+        entries.put(entry.id, entry);
+        byExperience.insert(entry.experience, entry.id);
+        byLevel.insert(entry.level, entry.id);
+    }
+
+    private void remove(long id) {
+        Entry old = entries.remove(id);
+        if (old != null) {
+            byExperience.remove(old.experience, id);
+            byLevel.remove(old.level, id);
+        }
+    }
+
+    private static final class Entry {
+        final long id;
+        final String name;
+        final int experience;
+        final int level;
+
+        Entry(Player player) {
+            this.id = player.getId();
+            this.name = player.getName();
+            this.experience = player.getExperience() != null ? player.getExperience() : 0;
+            this.level = player.getLevel() != null ? player.getLevel() : 0;
+        }
+
+        long score(By by) {
+            return by == By.LEVEL ? level : experience;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.game.service;
+
+import com.game.entity.Player;
+import com.game.responses.NameSuggestion;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/*
+ * Префиксное дерево по нормализованным именам (SearchText.fold) для подсказок в поиске.
+ * Каждый узел кэширует лучших игроков своего поддерева по уровню, так что ответ -
+ * это спуск по префиксу. Вставка дописывает кэши на пути; удаление игрока, попавшего
+ * в кэш, только сбрасывает его, и узел пересчитается при следующем запросе.
+ */
+@Component
+public class NamePrefixIndex implements PlayerChangeListener {
+    public static final int MAX_SUGGESTIONS = 20;
+
+    // Выше уровень - раньше; при равенстве меньший id
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingInt((Entry entry) -> entry.level).reversed()
+            .thenComparingLong(entry -> entry.id);
+
+    private Node root = new Node();
+    private Map<Long, Entry> entries = new HashMap<>();
+
+    public synchronized List<NameSuggestion> suggest(String prefix, int limit) {
+        Node node = root;
+        String key = SearchText.fold(prefix);
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        List<Entry> top = node.top();
+        List<NameSuggestion> result = new ArrayList<>(Math.min(limit, top.size()));
+        for (int i = 0; i < top.size() && i < limit; i++) {
+            Entry entry = top.get(i);
+            result.add(new NameSuggestion(entry.id, entry.name, entry.level));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void playerSaved(Player player) {
+        remove(player.getId());
+        Entry entry = new Entry(player);
+        entries.put(entry.id, entry);
+        add(root, entry);
+    }
+
+    @Override
+    public synchronized void playerDeleted(Long id) {
+        remove(id);
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        Node newRoot = new Node();
+        Map<Long, Entry> newEntries = new HashMap<>(players.size() * 2);
+        for (Player player : players) {
+            Entry entry = new Entry(player);
+            newEntries.put(entry.id, entry);
+            add(newRoot, entry);
+        }
+        synchronized (this) {
+            root = newRoot;
+            entries = newEntries;
+        }
+    }
+
+    private static void add(Node root, Entry entry) {
+        Node node = root;
+        node.offer(entry);
+        for (int i = 0; i < entry.key.length(); i++) {
+            node = node.childOrCreate(entry.key.charAt(i));
+            node.offer(entry);
+        }
+        node.terminal.add(entry);
+    }
+
+    private void remove(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        Node node = root;
+        node.invalidate(entry);
+        for (int i = 0; i < entry.key.length(); i++) {
+            node = node.child(entry.key.charAt(i));
+            node.invalidate(entry);
+        }
+        node.terminal.remove(entry);
+        // Пустые ветки не вырезаем: имена в игре повторяются, а узел без игроков почти ничего не стоит
+    }
+
+    private static final class Entry {
+        final long id;
+        final String name;
+        final String key;
+        final int level;
+
+        Entry(Player player) {
+            this.id = player.getId();
+            this.name = player.getName();
+            this.key = SearchText.fold(player.getName());
+            this.level = player.getLevel() != null ? player.getLevel() : 0;
+        }
+    }
+
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        // Отсортированные символы и соответствующие им дети - компактнее HashMap на каждом узле
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        final List<Entry> terminal = new ArrayList<>(1);
+        // null - кэш сброшен и будет пересчитан по поддереву
+        List<Entry> top = new ArrayList<>();
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            newKeys[at] = c;
+            newChildren[at] = new Node();
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[at];
+        }
+
+        void offer(Entry entry) {
+            if (top == null) {
+                return;
+            }
+            int at = Collections.binarySearch(top, entry, RANKING);
+            at = at >= 0 ? at : -at - 1;
+            if (at < MAX_SUGGESTIONS) {
+                top.add(at, entry);
+                if (top.size() > MAX_SUGGESTIONS) {
+                    top.remove(MAX_SUGGESTIONS);
+                }
+            }
+        }
+
+        void invalidate(Entry entry) {
+            if (top != null && top.contains(entry)) {
+                top = null;
+            }
+        }
+
+        List<Entry> top() {
+            if (top == null) {
+                // Лучшие в поддереве - среди своих игроков и лучших у каждого ребенка
+                PriorityQueue<Entry> best = new PriorityQueue<>(RANKING.reversed());
+                terminal.forEach(entry -> keep(best, entry));
+                for (Node child : children) {
+                    child.top().forEach(entry -> keep(best, entry));
+                }
+                List<Entry> result = new ArrayList<>(best);
+                result.sort(RANKING);
+                top = result;
+            }
+            return top;
+        }
+
+        private static void keep(PriorityQueue<Entry> best, Entry entry) {
+            best.add(entry);
+            if (best.size() > MAX_SUGGESTIONS) {
+                best.poll();
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.game.service;
+
+import com.game.audit.AuditAction;
+import com.game.audit.AuditLog;
+import com.game.controller.NameCollation;
+import com.game.controller.PlayerOrder;
+import com.game.entity.ArchivedPlayer;
+import com.game.entity.Player;
+import com.game.repository.ArchivedPlayerRepository;
+import com.game.repository.PlayerRepository;
+import com.game.requests.PlayerFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/*
+ * Горячая и холодная части: раз в rpg.archive.interval-millis забаненные без изменений дольше
+ * rpg.archive.banned-days и все без изменений дольше rpg.archive.inactive-days переезжают из player
+ * в player_archive пачками по rpg.archive.batch-size, каждая пачка - своя транзакция на своем шарде.
+ * Из индексов в памяти (статистика, лидерборд, поиск) архивные игроки уходят как удаленные,
+ * но по id читаются по-прежнему (findById).
+ * Профиль logstore держит всех игроков в памяти, архива там нет.
+ */
+@Component
+@Profile("!logstore")
+public class PlayerArchive implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(PlayerArchive.class);
+
+    private final ArchivedPlayerRepository archivedPlayerRepository;
+    private final PlayerRepository playerRepository;
+    private final PlayerShards playerShards;
+    private final TransactionTemplate transaction;
+    private final PlayerChangePublisher changePublisher;
+    private final AuditLog auditLog;
+    private final NameCollation nameCollation;
+    private final ExperienceBuffer experienceBuffer;
+    private final int bannedDays;
+    private final int inactiveDays;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final int maxBatches;
+    private final ScheduledExecutorService archiver;
+
+    private final AtomicLong moved = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong restored = new AtomicLong();
+    private volatile long lastRunMoved;
+    private volatile long lastRunMillis;
+
+    public PlayerArchive(ArchivedPlayerRepository archivedPlayerRepository, PlayerRepository playerRepository,
+                         PlayerShards playerShards, PlatformTransactionManager transactionManager,
+                         PlayerChangePublisher changePublisher, AuditLog auditLog, NameCollation nameCollation,
+                         ExperienceBuffer experienceBuffer,
+                         @Value("${rpg.archive.interval-millis:0}") long intervalMillis,
+                         @Value("${rpg.archive.banned-days:30}") int bannedDays,
+                         @Value("${rpg.archive.inactive-days:0}") int inactiveDays,
+                         @Value("${rpg.archive.batch-size:500}") int batchSize,
+                         @Value("${rpg.archive.pause-millis:100}") long pauseMillis,
+                         @Value("${rpg.archive.max-batches:100}") int maxBatches) {
+        this.archivedPlayerRepository = archivedPlayerRepository;
+        this.playerRepository = playerRepository;
+        this.playerShards = playerShards;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.changePublisher = changePublisher;
+        this.auditLog = auditLog;
+        this.nameCollation = nameCollation;
+        this.experienceBuffer = experienceBuffer;
+        this.bannedDays = bannedDays;
+        this.inactiveDays = inactiveDays;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.maxBatches = maxBatches;
+        this.archiver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "player-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (intervalMillis > 0) {
+            archiver.scheduleWithFixedDelay(this::archiveQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Сколько игроков перенесено в архив за проход
+    public synchronized long archive() throws InterruptedException {
+        long started = System.nanoTime();
+        long total = 0;
+        int done = 0;
+        for (int shard = 0; shard < playerShards.shardCount() && done < maxBatches; shard++) {
+            int target = shard;
+            // Отсчет по часам базы, как и отметки updated
+            long now = playerShards.onShard(target, playerRepository::databaseTime).getTime();
+            Date bannedBefore = cutoff(now, bannedDays);
+            Date inactiveBefore = cutoff(now, inactiveDays);
+            while (done < maxBatches) {
+                List<Long> ids = playerShards.onShard(target, () -> archivedPlayerRepository
+                        .findArchivable(bannedBefore, inactiveBefore, batchSize)).stream()
+                        .map(Number::longValue)
+                        .collect(Collectors.toList());
+                if (ids.isEmpty()) {
+                    break;
+                }
+                // Событие удаления выбросит несброшенный опыт из буфера. Сброс обновит updated,
+                // и copyFromPlayers таких игроков пропустит: раз опыт начисляется, игрок активен
+                if (ids.stream().anyMatch(id -> experienceBuffer.pendingFor(id) != 0)) {
+                    experienceBuffer.flush();
+                }
+                int count = playerShards.onShard(target, () -> transaction.execute(status -> move(ids, bannedBefore, inactiveBefore)));
+                total += count;
+                moved.addAndGet(count);
+                batches.incrementAndGet();
+                done++;
+                if (ids.size() < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+        }
+        lastRunMoved = total;
+        lastRunMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        return total;
+    }
+
+    private int move(List<Long> ids, Date bannedBefore, Date inactiveBefore) {
+        archivedPlayerRepository.copyFromPlayers(ids, bannedBefore, inactiveBefore);
+        archivedPlayerRepository.removeFromPlayers(ids);
+        List<Long> archived = archivedPlayerRepository.findIdsIn(ids);
+        for (Long id : archived) {
+            changePublisher.deleted(id);
+            auditLog.record(AuditAction.ARCHIVE, id);
+        }
+        return archived.size();
+    }
+
+    // 0 дней - правило выключено
+    private static Date cutoff(long now, int days) {
+        return new Date(days > 0 ? now - TimeUnit.DAYS.toMillis(days) : 0);
+    }
+
+    private void archiveQuietly() {
+        try {
+            archive();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Player archiving failed, candidates stay in the hot table until the next attempt", e);
+        }
+    }
+
+    // null - в архиве такого игрока нет
+    public Player restore(long id) {
+        Player player = playerShards.onShard(playerShards.shardFor(id), () -> transaction.execute(status -> {
+            if (archivedPlayerRepository.copyToPlayers(id) == 0) {
+                return null;
+            }
+            archivedPlayerRepository.removeFromArchive(id);
+            Player restoredPlayer = playerRepository.findById(id).orElse(null);
+            changePublisher.saved(restoredPlayer);
+            auditLog.record(AuditAction.RESTORE, id);
+            return restoredPlayer;
+        }));
+        if (player != null) {
+            restored.incrementAndGet();
+        }
+        return player;
+    }
+
+    // null - в архиве такого игрока нет
+    public Player findById(long id) {
+        return playerShards.onShard(playerShards.shardFor(id), () -> archivedPlayerRepository.findById(id)
+                .map(ArchivedPlayer::toPlayer)
+                .orElse(null));
+    }
+
+    // Первые limit архивных игроков по фильтру в порядке order, со всех шардов
+    public List<Player> find(PlayerFilter filter, PlayerOrder order, int limit) {
+        List<List<Player>> pages = playerShards.onAllShards(() -> archivedPlayerRepository
+                .findFiltered(filter, order, PageRequest.of(0, limit)).stream()
+                .map(ArchivedPlayer::toPlayer)
+                .collect(Collectors.toList()));
+        return SortedMerge.merge(pages, PlayerOrder.comparator(order, nameCollation), 0, limit);
+    }
+
+    public long count(PlayerFilter filter) {
+        long count = 0;
+        for (long shard : playerShards.onAllShards(() -> archivedPlayerRepository.countFiltered(filter))) {
+            count += shard;
+        }
+        return count;
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("archivedPlayers", count(new PlayerFilter()));
+        metrics.put("moved", moved.get());
+        metrics.put("batches", batches.get());
+        metrics.put("restored", restored.get());
+        metrics.put("lastRunMoved", lastRunMoved);
+        metrics.put("lastRunMillis", lastRunMillis);
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        archiver.shutdownNow();
+    }
+}
@@ -0,0 +1,17 @@
+package com.game.service;
+
+import com.game.entity.Player;
+
+import java.util.Collection;
+
+// Внутренние индексы и кэши, которые PlayerService держит в синхронизации с базой
+public interface PlayerChangeListener {
+
+    // Игрок создан или изменен; вызывается после коммита транзакции
+    void playerSaved(Player player);
+
+    void playerDeleted(Long id);
+
+    // Полная перестройка: при старте и при сверке с базой
+    void reload(Collection<Player> players);
+}
@@ -0,0 +1,63 @@
+package com.game.service;
+
+import com.game.entity.Player;
+import com.game.snapshot.PlayerSnapshots;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+ * Рассылает изменения игроков слушателям. Внутри транзакции рассылка откладывается
+ * до коммита, чтобы откатившаяся запись не попала в индексы. При старте игроки берутся
+ * из снимка с догонкой изменений (PlayerSnapshots), если он настроен.
+ */
+@Component
+public class PlayerChangePublisher implements SmartInitializingSingleton {
+    private final ObjectProvider<PlayerChangeListener> listeners;
+    private final PlayerSnapshots playerSnapshots;
+
+    public PlayerChangePublisher(ObjectProvider<PlayerChangeListener> listeners, PlayerSnapshots playerSnapshots) {
+        this.listeners = listeners;
+        this.playerSnapshots = playerSnapshots;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        publish(playerSnapshots.warmStart());
+    }
+
+    public void saved(Player player) {
+        afterCommit(listener -> listener.playerSaved(player));
+    }
+
+    public void deleted(Long id) {
+        afterCommit(listener -> listener.playerDeleted(id));
+    }
+
+    // Перечитывает всех игроков со всех шардов и перестраивает слушателей
+    public void reload() {
+        publish(playerSnapshots.loadAll());
+    }
+
+    private void publish(List<Player> players) {
+        listeners.orderedStream().forEach(listener -> listener.reload(players));
+    }
+
+    private void afterCommit(Consumer<PlayerChangeListener> event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            listeners.orderedStream().forEach(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                listeners.orderedStream().forEach(event);
+            }
+        });
+    }
+}
@@ -0,0 +1,280 @@
+package com.game.service;
+
+import com.game.entity.Player;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Поток изменений игроков для GET /rest/players/events (Server-Sent Events).
+ * Запись в PlayerService только кладет событие в кольцевой буфер каждого подписчика;
+ * отправкой занимаются фоновые потоки, так что медленный клиент не тормозит запись.
+ * Переполнение буфера обрабатывается по rpg.events.overflow.
+ * Запись в сервлетный поток блокирующая, поэтому у каждого отправляющего подписчика свой поток
+ * (пул растет до max-subscribers, простаивающие потоки завершаются): завязший клиент держит только себя.
+ * Отправка дольше rpg.events.send-timeout-millis закрывает подписчика; поток освободится,
+ * когда контейнер оборвет запись по своему таймауту. Heartbeat не занимает слот в буфере:
+ * это флаг, который отправляется, только когда событий в очереди нет.
+ */
+@Component
+public class PlayerEventStream implements PlayerChangeListener, DisposableBean {
+    private final int bufferSize;
+    private final EventOverflow overflow;
+    private final int maxSubscribers;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final long sendTimeoutNanos;
+    private final ThreadPoolExecutor senders;
+
+    public PlayerEventStream(@Value("${rpg.events.buffer-size:256}") int bufferSize,
+                             @Value("${rpg.events.overflow:DROP_OLDEST}") EventOverflow overflow,
+                             @Value("${rpg.events.max-subscribers:100}") int maxSubscribers,
+                             @Value("${rpg.events.send-timeout-millis:10000}") long sendTimeoutMillis) {
+        this.bufferSize = bufferSize;
+        this.overflow = overflow;
+        this.maxSubscribers = maxSubscribers;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        // Без очереди: свободный поток или новый. Запас на закрытых по таймауту - они держат поток,
+        // пока контейнер не оборвет запись
+        this.senders = new ThreadPoolExecutor(0, Math.max(1, maxSubscribers) * 2, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "player-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // null - подписчиков уже слишком много
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        // Без таймаута: соединение живет, пока его не закроет клиент или переполнение
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        publish(new Event(sequence.incrementAndGet(), "player-saved", player));
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        publish(new Event(sequence.incrementAndGet(), "player-deleted", Collections.singletonMap("id", id)));
+    }
+
+    // Состояние перечитано из базы целиком - клиентам проще перезапросить страницу
+    @Override
+    public void reload(Collection<Player> players) {
+        publish(new Event(sequence.incrementAndGet(), "reload", Collections.emptyMap()));
+    }
+
+    // Пустой комментарий не дает прокси закрыть простаивающее соединение и вычищает отвалившихся клиентов
+    @Scheduled(fixedRateString = "${rpg.events.heartbeat-millis:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.heartbeat()) {
+                startDrain(subscriber);
+            }
+        }
+    }
+
+    // Клиент, который не принимает данные дольше таймаута, закрывается и больше не получает событий
+    @Scheduled(fixedRateString = "${rpg.events.send-timeout-millis:10000}")
+    public void expireStalledSenders() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.expireIfStalled(now);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        destroySubscribers();
+        senders.shutdownNow();
+    }
+
+    public void destroySubscribers() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    private void publish(Event event) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.offer(event)) {
+                startDrain(subscriber);
+            }
+        }
+    }
+
+    private void startDrain(Subscriber subscriber) {
+        try {
+            senders.execute(subscriber::drain);
+        } catch (RejectedExecutionException e) {
+            // Все потоки заняты завязшими клиентами - новых не обслужить
+            subscriber.rejected();
+        }
+    }
+
+    private static final class Event {
+        final long id;
+        final String name;
+        final Object data;
+
+        Event(long id, String name, Object data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        // Кольцевой буфер: head - самое старое событие
+        private final Event[] ring = new Event[bufferSize];
+        private int head;
+        private int size;
+        private long dropped;
+        private boolean heartbeatDue;
+        private boolean draining;
+        private boolean closed;
+        // Начало текущей отправки, 0 - отправки нет
+        private long sendingSince;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // true - нужно запустить отправку
+        synchronized boolean offer(Event event) {
+            if (closed) {
+                return false;
+            }
+            if (size == ring.length) {
+                if (overflow == EventOverflow.DISCONNECT) {
+                    close();
+                    return false;
+                }
+                head = (head + 1) % ring.length;
+                size--;
+                dropped++;
+            }
+            ring[(head + size) % ring.length] = event;
+            size++;
+            return startDraining();
+        }
+
+        synchronized boolean heartbeat() {
+            if (closed) {
+                return false;
+            }
+            heartbeatDue = true;
+            return startDraining();
+        }
+
+        synchronized void expireIfStalled(long now) {
+            if (sendingSince != 0 && now - sendingSince >= sendTimeoutNanos) {
+                close();
+            }
+        }
+
+        synchronized void rejected() {
+            draining = false;
+            close();
+        }
+
+        private boolean startDraining() {
+            if (draining) {
+                return false;
+            }
+            draining = true;
+            return true;
+        }
+
+        void drain() {
+            while (true) {
+                Event event;
+                long lost;
+                synchronized (this) {
+                    if (closed || size == 0 && !heartbeatDue) {
+                        draining = false;
+                        if (closed) {
+                            // Закрыли во время отправки - эмиттер освободился только сейчас
+                            emitter.complete();
+                        }
+                        return;
+                    }
+                    // Heartbeat нужен только простаивающему соединению
+                    event = null;
+                    if (size > 0) {
+                        event = ring[head];
+                        ring[head] = null;
+                        head = (head + 1) % ring.length;
+                        size--;
+                    }
+                    heartbeatDue = false;
+                    lost = dropped;
+                    dropped = 0;
+                    sendingSince = System.nanoTime();
+                }
+                try {
+                    if (lost > 0) {
+                        emitter.send(SseEmitter.event().name("overflow")
+                                .data(Collections.singletonMap("dropped", lost), MediaType.APPLICATION_JSON));
+                    }
+                    if (event == null) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        emitter.send(SseEmitter.event().id(String.valueOf(event.id)).name(event.name)
+                                .data(event.data, MediaType.APPLICATION_JSON));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Клиент ушел: дальше слать некуда
+                    close();
+                } finally {
+                    synchronized (this) {
+                        sendingSince = 0;
+                    }
+                }
+            }
+        }
+
+        // emitter.complete ждет монитор эмиттера, пока идет send: во время отправки эмиттер
+        // завершит поток отправки, а не поток записи игрока или планировщик
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.remove(this);
+            if (!draining) {
+                emitter.complete();
+            }
+        }
+    }
+}
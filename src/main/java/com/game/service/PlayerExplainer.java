@@ -0,0 +1,162 @@
+package com.game.service;
+
+import com.game.controller.PlayerField;
+import com.game.controller.PlayerOrder;
+import com.game.requests.PlayerFilter;
+import com.game.responses.QueryExplain;
+import com.game.responses.StatementExplain;
+import com.game.trace.StatementCapture;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryInfo;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Разбор выдачи GET /rest/players для подбора индексов: запрос выполняется обычным путем
+ * (триграммы, шарды, архив), StatementCapture записывает реальные SQL и параметры,
+ * затем каждый SELECT повторяется под EXPLAIN на том же шарде. Прочитанные строки:
+ * в H2 - scanCount из EXPLAIN ANALYZE, в MySQL - прирост счетчиков Handler_read% сессии
+ * при повторном выполнении. Доступ только с токеном rpg.admin.token: запрос выполняется дважды.
+ * Повтор идет в транзакции только для чтения, как и сама выдача: с репликами он попадает на реплику, а не на основную базу.
+ */
+@Component
+@Profile("!logstore")
+public class PlayerExplainer {
+    private static final Pattern H2_SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+
+    private final PlayerService playerService;
+    private final PlayerShards playerShards;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readOnly;
+    private final byte[] adminToken;
+
+    public PlayerExplainer(PlayerService playerService, PlayerShards playerShards, EntityManagerFactory entityManagerFactory,
+                           PlatformTransactionManager transactionManager, @Value("${rpg.admin.token:}") String adminToken) {
+        this.playerService = playerService;
+        this.playerShards = playerShards;
+        // Тот же источник, что у JPA: с маршрутизацией по шардам
+        this.jdbc = new JdbcTemplate(((EntityManagerFactoryInfo) entityManagerFactory).getDataSource());
+        this.readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        this.adminToken = adminToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Пустой rpg.admin.token - разбор выключен
+    public boolean isAllowed(String token) {
+        return adminToken.length > 0 && token != null
+                && MessageDigest.isEqual(adminToken, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public QueryExplain explain(PlayerFilter filter, List<PlayerField> fields, PlayerOrder order,
+                                int pageNumber, int pageSize, boolean includeArchived) {
+        List<StatementCapture.Statement> captured;
+        int rows;
+        long started = System.nanoTime();
+        try (StatementCapture capture = StatementCapture.start()) {
+            rows = playerService.findPlayers(filter, fields, order, pageNumber, pageSize, includeArchived).size();
+            captured = capture.statements();
+        }
+        double executionMillis = millis(System.nanoTime() - started);
+        List<StatementExplain> statements = new ArrayList<>();
+        for (StatementCapture.Statement statement : captured) {
+            statements.add(explain(statement));
+        }
+        return new QueryExplain(executionMillis, rows, statements);
+    }
+
+    private StatementExplain explain(StatementCapture.Statement statement) {
+        String sql = statement.getSql();
+        if (!sql.trim().toLowerCase(Locale.ROOT).startsWith("select")) {
+            return new StatementExplain(sql, statement.getParameters(), statement.getShard(),
+                    millis(statement.getNanos()), new ArrayList<>(), null);
+        }
+        ConnectionCallback<StatementExplain> callback = connection -> {
+            String product = connection.getMetaData().getDatabaseProductName();
+            List<Map<String, Object>> plan = rows(connection, "EXPLAIN " + sql, statement.getParameters());
+            Long rowsExamined = null;
+            if ("H2".equals(product)) {
+                rowsExamined = 0L;
+                for (Map<String, Object> row : rows(connection, "EXPLAIN ANALYZE " + sql, statement.getParameters())) {
+                    Matcher scanCount = H2_SCAN_COUNT.matcher(String.valueOf(row.values().iterator().next()));
+                    while (scanCount.find()) {
+                        rowsExamined += Long.parseLong(scanCount.group(1));
+                    }
+                }
+            } else if ("MySQL".equals(product)) {
+                rowsExamined = handlerReadsOf(connection, sql, statement.getParameters());
+            }
+            return new StatementExplain(sql, statement.getParameters(), statement.getShard(),
+                    millis(statement.getNanos()), plan, rowsExamined);
+        };
+        if (statement.getShard() == null) {
+            return readOnly.execute(status -> jdbc.execute(callback));
+        }
+        return playerShards.onShard(statement.getShard(), () -> readOnly.execute(status -> jdbc.execute(callback)));
+    }
+
+    // SHOW STATUS сам двигает счетчики - его собственный прирост вычитается
+    private static long handlerReadsOf(Connection connection, String sql, List<Object> parameters) throws SQLException {
+        long first = handlerReads(connection);
+        long second = handlerReads(connection);
+        rows(connection, sql, parameters);
+        long third = handlerReads(connection);
+        return Math.max(0, (third - second) - (second - first));
+    }
+
+    private static long handlerReads(Connection connection) throws SQLException {
+        long reads = 0;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SHOW SESSION STATUS LIKE 'Handler_read%'")) {
+            while (resultSet.next()) {
+                reads += resultSet.getLong(2);
+            }
+        }
+        return reads;
+    }
+
+    private static List<Map<String, Object>> rows(Connection connection, String sql, List<Object> parameters) throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                while (resultSet.next()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                        row.put(metaData.getColumnLabel(column), resultSet.getObject(column));
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
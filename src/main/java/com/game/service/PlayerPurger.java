@@ -0,0 +1,138 @@
+package com.game.service;
+
+import com.game.filter.RateLimitFilter;
+import com.game.repository.PlayerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Фоновая очистка мягко удаленных игроков (rpg.delete.soft): раз в rpg.purge.interval-millis
+ * стирает отмеченные строки пачками по rpg.purge.batch-size с паузой rpg.purge.pause-millis
+ * между ними, не больше rpg.purge.max-batches пачек за проход. Если одновременно обслуживается
+ * больше rpg.purge.max-in-flight запросов, проход откладывается до следующего раза.
+ * Свой поток, а не @Scheduled: паузы не должны задерживать остальные задачи по расписанию.
+ */
+@Component
+public class PlayerPurger implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(PlayerPurger.class);
+
+    private final PlayerRepository playerRepository;
+    private final PlayerShards playerShards;
+    private final RateLimitFilter rateLimitFilter;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final int maxBatches;
+    private final int maxInFlight;
+    private final ScheduledExecutorService purger;
+
+    private final AtomicLong purged = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private volatile long lastRunPurged;
+    private volatile long lastRunMillis;
+    private volatile long lastRunAt;
+
+    public PlayerPurger(PlayerRepository playerRepository, PlayerShards playerShards, RateLimitFilter rateLimitFilter,
+                        @Value("${rpg.purge.interval-millis:60000}") long intervalMillis,
+                        @Value("${rpg.purge.batch-size:200}") int batchSize,
+                        @Value("${rpg.purge.pause-millis:100}") long pauseMillis,
+                        @Value("${rpg.purge.max-batches:50}") int maxBatches,
+                        @Value("${rpg.purge.max-in-flight:8}") int maxInFlight) {
+        this.playerRepository = playerRepository;
+        this.playerShards = playerShards;
+        this.rateLimitFilter = rateLimitFilter;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.maxBatches = maxBatches;
+        this.maxInFlight = maxInFlight;
+        this.purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "player-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (intervalMillis > 0) {
+            purger.scheduleWithFixedDelay(this::purgeQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Сколько строк стерто за проход
+    public synchronized long purge() throws InterruptedException {
+        long started = System.nanoTime();
+        long removed = 0;
+        int done = 0;
+        passes:
+        for (int shard = 0; shard < playerShards.shardCount(); shard++) {
+            int target = shard;
+            while (done < maxBatches) {
+                if (rateLimitFilter.inFlight() > maxInFlight) {
+                    deferred.incrementAndGet();
+                    break passes;
+                }
+                List<Long> ids = new ArrayList<>();
+                playerShards.onShard(target, () -> playerRepository.findPurgeable(batchSize))
+                        .forEach(id -> ids.add(id.longValue()));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                int count = playerShards.onShard(target, () -> playerRepository.purge(ids));
+                removed += count;
+                purged.addAndGet(count);
+                batches.incrementAndGet();
+                done++;
+                if (ids.size() < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+        }
+        lastRunPurged = removed;
+        lastRunMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        lastRunAt = System.currentTimeMillis();
+        return removed;
+    }
+
+    private void purgeQuietly() {
+        try {
+            purge();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Player purge failed, marked rows stay until the next attempt", e);
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long backlog = 0;
+        for (long count : playerShards.onAllShards(playerRepository::countSoftDeleted)) {
+            backlog += count;
+        }
+        metrics.put("backlog", backlog);
+        metrics.put("purged", purged.get());
+        metrics.put("batches", batches.get());
+        metrics.put("deferredForLoad", deferred.get());
+        metrics.put("lastRunPurged", lastRunPurged);
+        metrics.put("lastRunMillis", lastRunMillis);
+        metrics.put("lastRunAt", lastRunAt);
+        // Скорость последнего прохода вместе с паузами - столько строк в секунду очистка реально снимает
+        metrics.put("lastRunRowsPerSecond", lastRunMillis > 0 ? lastRunPurged * 1000 / lastRunMillis : lastRunPurged);
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        purger.shutdownNow();
+    }
+}
@@ -1,11 +1,20 @@
 package com.game.service;
 
+import com.game.audit.AuditAction;
+import com.game.audit.AuditLog;
+import com.game.controller.NameCollation;
+import com.game.controller.PlayerField;
 import com.game.controller.PlayerOrder;
 import com.game.entity.Player;
 import com.game.entity.Profession;
 import com.game.entity.Race;
 import com.game.repository.PlayerRepository;
+import com.game.requests.PlayerFilter;
 import com.game.requests.PlayerRequest;
+import com.game.responses.PlayerLookupResult;
+import com.game.responses.PlayerView;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -13,34 +22,202 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class PlayerService {
     private final PlayerRepository playerRepository;
     private final PlayerOperations playerOperations;
+    private final PlayerShards playerShards;
+    private final PlayerChangePublisher changePublisher;
+    private final TrigramIndex trigramIndex;
+    private final ExperienceBuffer experienceBuffer;
+    private final QueryCoalescer queryCoalescer;
+    private final AuditLog auditLog;
+    private final int lookupChunkSize;
+    private final boolean softDelete;
+    private final PlayerArchive playerArchive;
+    private final NameCollation nameCollation;
 
-    public PlayerService(PlayerRepository playerRepository, PlayerOperations playerOperations) {
+    public PlayerService(PlayerRepository playerRepository, PlayerOperations playerOperations, PlayerShards playerShards,
+                         PlayerChangePublisher changePublisher, TrigramIndex trigramIndex,
+                         ExperienceBuffer experienceBuffer, QueryCoalescer queryCoalescer, AuditLog auditLog,
+                         ObjectProvider<PlayerArchive> playerArchive, NameCollation nameCollation,
+                         @Value("${rpg.lookup.chunk-size:500}") int lookupChunkSize,
+                         @Value("${rpg.delete.soft:false}") boolean softDelete) {
         this.playerRepository = playerRepository;
         this.playerOperations = playerOperations;
+        this.playerShards = playerShards;
+        this.changePublisher = changePublisher;
+        this.trigramIndex = trigramIndex;
+        this.experienceBuffer = experienceBuffer;
+        this.queryCoalescer = queryCoalescer;
+        this.auditLog = auditLog;
+        this.lookupChunkSize = lookupChunkSize;
+        this.softDelete = softDelete;
+        // В профиле logstore архива нет - includeArchived отдает только горячих игроков
+        this.playerArchive = playerArchive.getIfAvailable();
+        this.nameCollation = nameCollation;
     }
-    @Transactional
+    // Выдача GET /rest/players: сущности целиком или только колонки fields, с архивом или без
+    @Transactional(readOnly = true)
+    public List<?> findPlayers(PlayerFilter filter, List<PlayerField> fields, PlayerOrder order,
+                               Integer pageNumber, Integer pageSize, boolean includeArchived) {
+        if (includeArchived) {
+            List<Player> players = getFilteredPlayersWithArchive(filter, order, pageNumber, pageSize);
+            if (fields == null) {
+                return players;
+            }
+            // Архив не умеет проекции - колонки выбираются из уже слитых игроков
+            return players.stream()
+                    .map(player -> PlayerView.of(player, fields, fields.size()))
+                    .collect(Collectors.toList());
+        }
+        if (fields != null) {
+            return getFilteredPlayerViews(filter, fields, order, pageNumber, pageSize);
+        }
+        return getFilteredPlayers(filter.getName(), filter.getTitle(), filter.getRace(), filter.getProfession(),
+                filter.getAfter(), filter.getBefore(), filter.getBanned(), filter.getMinExperience(),
+                filter.getMaxExperience(), filter.getMinLevel(), filter.getMaxLevel(), order, pageNumber, pageSize);
+    }
+
+    @Transactional(readOnly = true)
     public List<Player> getFilteredPlayers(String name, String title, Race race, Profession profession,
         Long after, Long before, Boolean banned,
         Integer minExperience, Integer maxExperience,
         Integer minLevel, Integer maxLevel, PlayerOrder order,
         Integer pageNumber, Integer pageSize){
-        Date afterDate = null;
-        Date beforeDate = null;
-        if(after!=null){
-            afterDate = new Date(after);}
-        if(before!=null){
-            beforeDate = new Date(before);
-        }
+        // Одинаковые одновременные запросы выполняются один раз
+        PlayerFilter filter = new PlayerFilter(name, title, race, profession, after, before, banned,
+                minExperience, maxExperience, minLevel, maxLevel);
+        // Фильтры и сортировка видят опыт из базы, а в ответе учтены еще не записанные начисления
+        return experienceBuffer.read(() -> queryCoalescer.execute(() -> findFilteredPlayers(name, title, race, profession,
+                after, before, banned, minExperience, maxExperience, minLevel, maxLevel, order, pageNumber, pageSize),
+                "list", filter, order, pageNumber, pageSize).stream()
+                .map(experienceBuffer::withPending)
+                .collect(Collectors.toList()));
+    }
+
+    private List<Player> findFilteredPlayers(String name, String title, Race race, Profession profession,
+        Long after, Long before, Boolean banned,
+        Integer minExperience, Integer maxExperience,
+        Integer minLevel, Integer maxLevel, PlayerOrder order,
+        Integer pageNumber, Integer pageSize){
         Pageable pageable = PageRequest.of(pageNumber, pageSize);
         System.out.println(pageSize +"  "+pageNumber);
-        return playerRepository.findFilteredPlayers(name, title, race, profession, afterDate, beforeDate, banned, minExperience, maxExperience, minLevel, maxLevel, order,pageable);
+        PlayerFilter filter = new PlayerFilter(name, title, race, profession, after, before, banned,
+                minExperience, maxExperience, minLevel, maxLevel);
+        Set<Long> candidates = trigramIndex.candidates(name, title);
+        if (candidates != null) {
+            return findAmongCandidates(candidates, filter, order, pageNumber, pageSize);
+        }
+        if (!playerShards.isSharded()) {
+            return playerRepository.findFiltered(filter, null, order, pageable);
+        }
+        // Каждый шард отдает свои первые (pageNumber + 1) * pageSize строк в порядке ORDER BY p.<поле>, p.id,
+        // затем сливаем их в одну страницу тем же порядком
+        Pageable head = PageRequest.of(0, (pageNumber + 1) * pageSize);
+        List<List<Player>> pages = playerShards.onAllShards(() -> playerRepository.findFiltered(filter, null, order, head));
+        return SortedMerge.merge(pages, PlayerOrder.comparator(order, nameCollation), pageNumber * pageSize, pageSize);
+    }
+
+    // Горячие и архивные игроки одной выдачей: первые (pageNumber + 1) * pageSize строк каждой части сливаются в страницу
+    @Transactional(readOnly = true)
+    public List<Player> getFilteredPlayersWithArchive(PlayerFilter filter, PlayerOrder order,
+                                                      Integer pageNumber, Integer pageSize) {
+        if (playerArchive == null) {
+            return getFilteredPlayers(filter.getName(), filter.getTitle(), filter.getRace(), filter.getProfession(),
+                    filter.getAfter(), filter.getBefore(), filter.getBanned(), filter.getMinExperience(),
+                    filter.getMaxExperience(), filter.getMinLevel(), filter.getMaxLevel(), order, pageNumber, pageSize);
+        }
+        return experienceBuffer.read(() -> queryCoalescer.execute(() -> {
+            int head = (pageNumber + 1) * pageSize;
+            List<List<Player>> parts = new ArrayList<>();
+            parts.add(findFilteredPlayers(filter.getName(), filter.getTitle(), filter.getRace(), filter.getProfession(),
+                    filter.getAfter(), filter.getBefore(), filter.getBanned(), filter.getMinExperience(),
+                    filter.getMaxExperience(), filter.getMinLevel(), filter.getMaxLevel(), order, 0, head));
+            parts.add(playerArchive.find(filter, order, head));
+            return SortedMerge.merge(parts, PlayerOrder.comparator(order, nameCollation), pageNumber * pageSize, pageSize);
+        }, "archived-list", filter, order, pageNumber, pageSize).stream()
+                .map(experienceBuffer::withPending)
+                .collect(Collectors.toList()));
+    }
+
+    // Поиск по подстроке, суженный триграммным индексом: запрос идет только по id-кандидатам
+    private List<Player> findAmongCandidates(Set<Long> candidates, PlayerFilter filter, PlayerOrder order,
+                                             int pageNumber, int pageSize) {
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!playerShards.isSharded()) {
+            return playerRepository.findFiltered(filter, candidates, order, PageRequest.of(pageNumber, pageSize));
+        }
+        Pageable head = PageRequest.of(0, (pageNumber + 1) * pageSize);
+        List<List<Player>> pages = playerShards.onEachShard(shard -> {
+            List<Long> ids = candidatesOnShard(candidates, shard);
+            return ids.isEmpty() ? new ArrayList<Player>() : playerRepository.findFiltered(filter, ids, order, head);
+        });
+        return SortedMerge.merge(pages, PlayerOrder.comparator(order, nameCollation), pageNumber * pageSize, pageSize);
+    }
+
+    private List<Long> candidatesOnShard(Collection<Long> candidates, int shard) {
+        return candidates.stream()
+                .filter(id -> playerShards.shardFor(id) == shard)
+                .collect(Collectors.toList());
+    }
+
+    // Только запрошенные колонки, строками-проекциями вместо сущностей
+    @Transactional(readOnly = true)
+    public List<PlayerView> getFilteredPlayerViews(PlayerFilter filter, List<PlayerField> fields, PlayerOrder order,
+                                                   Integer pageNumber, Integer pageSize) {
+        return experienceBuffer.read(() -> queryCoalescer.execute(
+                () -> findFilteredPlayerViews(filter, fields, order, pageNumber, pageSize),
+                "views", filter, fields, order, pageNumber, pageSize).stream()
+                .map(experienceBuffer::withPending)
+                .collect(Collectors.toList()));
+    }
+
+    private List<PlayerView> findFilteredPlayerViews(PlayerFilter filter, List<PlayerField> fields, PlayerOrder order,
+                                                     Integer pageNumber, Integer pageSize) {
+        List<PlayerField> columns = new ArrayList<>(fields);
+        int visibleFields = columns.size();
+        // Для еще не записанных начислений к опыту и уровню нужны id и опыт, даже если их не просили
+        if (columns.contains(PlayerField.EXPERIENCE) || columns.contains(PlayerField.LEVEL)
+                || columns.contains(PlayerField.UNTIL_NEXT_LEVEL)) {
+            addHidden(columns, PlayerField.ID, PlayerField.EXPERIENCE);
+        }
+        Set<Long> candidates = trigramIndex.candidates(filter.getName(), filter.getTitle());
+        if (candidates != null && candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!playerShards.isSharded()) {
+            return playerRepository.findFilteredViews(filter, candidates, columns, visibleFields, order, PageRequest.of(pageNumber, pageSize));
+        }
+        // Для слияния страниц с шардов нужны id и поле сортировки, даже если их не просили
+        addHidden(columns, PlayerField.ID, PlayerField.of(order));
+        Pageable head = PageRequest.of(0, (pageNumber + 1) * pageSize);
+        List<List<PlayerView>> pages = playerShards.onEachShard(shard -> {
+            List<Long> ids = candidates == null ? null : candidatesOnShard(candidates, shard);
+            return ids != null && ids.isEmpty() ? new ArrayList<PlayerView>()
+                    : playerRepository.findFilteredViews(filter, ids, columns, visibleFields, order, head);
+        });
+        return SortedMerge.merge(pages, PlayerView.comparator(order, nameCollation), pageNumber * pageSize, pageSize);
+    }
+
+    private static void addHidden(List<PlayerField> columns, PlayerField... fields) {
+        for (PlayerField field : fields) {
+            if (!columns.contains(field)) {
+                columns.add(field);
+            }
+        }
     }
 
     @Transactional
@@ -65,7 +242,10 @@ public class PlayerService {
         player.setUntilNextLevel(newExpToNextLevel);
 
         // Сохраняем игрока в базе данных
-        return playerRepository.save(player);
+        Player saved = playerShards.onShard(playerShards.nextShardForInsert(), () -> playerRepository.save(player));
+        changePublisher.saved(saved);
+        auditLog.record(AuditAction.CREATE, saved.getId());
+        return saved;
     }
 
     public boolean isValidPlayerRequest(PlayerRequest player) {
@@ -101,18 +281,102 @@ public class PlayerService {
         return true;
     }
 
+    // Архивный игрок тоже находится: перенос в архив не должен быть заметен при чтении по id
+    @Transactional(readOnly = true)
     public Player getPlayerById(Long id) {
-        return playerRepository.findById(id).orElse(null);
+        Player player = experienceBuffer.read(() -> experienceBuffer.withPending(
+                playerShards.onShard(playerShards.shardFor(id), () -> playerRepository.findById(id).orElse(null))));
+        if (player == null && playerArchive != null) {
+            return playerArchive.findById(id);
+        }
+        return player;
+    }
+
+    // Пакетный поиск: игроки в порядке запроса (без повторов) и список ненайденных id
+    @Transactional(readOnly = true)
+    public PlayerLookupResult getPlayersByIds(List<Long> ids) {
+        return experienceBuffer.read(() -> lookup(ids));
     }
 
+    private PlayerLookupResult lookup(List<Long> ids) {
+        List<Long> requested = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, Player> found = new HashMap<>();
+        for (List<Player> players : playerShards.onEachShard(shard -> loadShard(shard, requested))) {
+            for (Player player : players) {
+                found.put(player.getId(), player);
+            }
+        }
+        List<Player> players = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            Player player = found.get(id);
+            if (player != null) {
+                players.add(experienceBuffer.withPending(player));
+            } else {
+                missing.add(id);
+            }
+        }
+        return new PlayerLookupResult(players, missing);
+    }
+
+    private List<Player> loadShard(int shard, List<Long> requested) {
+        List<Player> players = new ArrayList<>();
+        List<Long> chunk = new ArrayList<>(lookupChunkSize);
+        for (Long id : requested) {
+            if (id == null || playerShards.shardFor(id) != shard) {
+                continue;
+            }
+            chunk.add(id);
+            if (chunk.size() == lookupChunkSize) {
+                players.addAll(playerRepository.findAllById(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            players.addAll(playerRepository.findAllById(chunk));
+        }
+        return players;
+    }
+
+    // Одна транзакция: delete() не перечитывает найденного игрока через merge
+    @Transactional
     public boolean deletePlayerById(Long id) {
-        Player player = playerRepository.findById(id).orElse(null);
-        if(player==null) return false;
-        playerRepository.delete(player);
-        return true;
+        return playerShards.onShard(playerShards.shardFor(id), () -> {
+            if (softDelete) {
+                // Одна отметка вместо DELETE, саму строку позже сотрет PlayerPurger
+                if (playerRepository.markDeleted(id) == 0) return false;
+            } else {
+                Player player = playerRepository.findById(id).orElse(null);
+                if(player==null) return false;
+                playerRepository.delete(player);
+            }
+            changePublisher.deleted(id);
+            auditLog.record(AuditAction.DELETE, id);
+            return true;
+        });
     }
 
+    @Transactional(readOnly = true)
     public Integer countPlayersWithFilters(String name, String title, Race race, Profession profession, Long after, Long before, Boolean banned, Integer minExperience, Integer maxExperience, Integer minLevel, Integer maxLevel) {
+        PlayerFilter filter = new PlayerFilter(name, title, race, profession, after, before, banned,
+                minExperience, maxExperience, minLevel, maxLevel);
+        return queryCoalescer.execute(() -> countWithFilters(name, title, race, profession, after, before, banned,
+                minExperience, maxExperience, minLevel, maxLevel), "count", filter);
+    }
+
+    @Transactional(readOnly = true)
+    public Integer countPlayersWithArchive(PlayerFilter filter) {
+        int hot = countPlayersWithFilters(filter.getName(), filter.getTitle(), filter.getRace(), filter.getProfession(),
+                filter.getAfter(), filter.getBefore(), filter.getBanned(), filter.getMinExperience(),
+                filter.getMaxExperience(), filter.getMinLevel(), filter.getMaxLevel());
+        if (playerArchive == null) {
+            return hot;
+        }
+        Long archived = queryCoalescer.execute(() -> playerArchive.count(filter), "archived-count", filter);
+        return hot + archived.intValue();
+    }
+
+    private Integer countWithFilters(String name, String title, Race race, Profession profession, Long after, Long before, Boolean banned, Integer minExperience, Integer maxExperience, Integer minLevel, Integer maxLevel) {
         Date afterDate = null;
         Date beforeDate = null;
         if(after!=null){
@@ -120,13 +384,46 @@ public class PlayerService {
         if(before!=null){
             beforeDate = new Date(before);
         }
-        return playerRepository.countByFilters(name, title, race, profession, afterDate, beforeDate, banned, minExperience, maxExperience, minLevel, maxLevel);
+        Set<Long> candidates = trigramIndex.candidates(name, title);
+        if (candidates != null) {
+            if (candidates.isEmpty()) {
+                return 0;
+            }
+            PlayerFilter filter = new PlayerFilter(name, title, race, profession, after, before, banned,
+                    minExperience, maxExperience, minLevel, maxLevel);
+            return playerShards.onEachShard(shard -> {
+                List<Long> ids = playerShards.isSharded() ? candidatesOnShard(candidates, shard) : new ArrayList<>(candidates);
+                return ids.isEmpty() ? 0L : playerRepository.countFiltered(filter, ids);
+            }).stream().mapToInt(Long::intValue).sum();
+        }
+        Date shardAfter = afterDate;
+        Date shardBefore = beforeDate;
+        return playerShards.onAllShards(() -> playerRepository.countByFilters(
+                name, title, race, profession, shardAfter, shardBefore, banned, minExperience, maxExperience, minLevel, maxLevel))
+                .stream().mapToInt(Integer::intValue).sum();
+    }
+
+    // null - в архиве такого игрока нет
+    public Player restorePlayer(Long id) {
+        return playerArchive == null ? null : playerArchive.restore(id);
+    }
+
+    // false - игрока нет; опыт попадет в базу при ближайшем сбросе буфера
+    public boolean grantExperience(Long id, int delta) {
+        return experienceBuffer.add(id, delta);
     }
 
     @Transactional
     public Player updatePlayer(Long id, PlayerRequest playerRequest) {
+        return playerShards.onShard(playerShards.shardFor(id), () -> applyUpdate(id, playerRequest));
+    }
+
+    private Player applyUpdate(Long id, PlayerRequest playerRequest) {
         Player player = playerRepository.findById(id).orElse(null);
-        if(player!=null){
+        if (player == null) {
+            return null;
+        }
+        boolean wasBanned = Boolean.TRUE.equals(player.getBanned());
         if(playerRequest.getName()!=null) {
             player.setName(playerRequest.getName());
         } else playerRequest.setName(player.getName());
@@ -152,12 +449,17 @@ public class PlayerService {
             Date date = new Date(playerRequest.getBirthday());
             player.setBirthday(date);
         } else playerRequest.setBirthday(new Date(player.getBirthday()));
-        }
         if(!isValidPlayerRequest(playerRequest)){
-            return null;
+            // Игрок уже изменен в контексте персистентности - исключение откатывает транзакцию
+            throw new IllegalArgumentException("Invalid player update: " + id);
         }
         // Сохраняем игрока в базе данных
-        return playerRepository.save(player);
+        Player saved = playerRepository.save(player);
+        changePublisher.saved(saved);
+        // Смена статуса бана важнее остальных правок - в аудите это отдельное действие
+        boolean banned = Boolean.TRUE.equals(saved.getBanned());
+        auditLog.record(banned == wasBanned ? AuditAction.UPDATE : banned ? AuditAction.BAN : AuditAction.UNBAN, id);
+        return saved;
     }
 
 }
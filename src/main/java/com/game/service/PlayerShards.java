@@ -0,0 +1,119 @@
+package com.game.service;
+
+import com.game.datasource.ShardContext;
+import com.game.datasource.ShardDataSources;
+import com.game.trace.RequestTrace;
+import com.game.trace.StatementCapture;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+@Component
+public class PlayerShards implements DisposableBean {
+    private final int shardCount;
+    private final TransactionTemplate readOnlyTransaction;
+    private final AtomicInteger nextInsertShard = new AtomicInteger();
+    private final ExecutorService executor;
+
+    @Autowired
+    public PlayerShards(@Value("${rpg.datasource.shards:}") String[] shardUrls,
+                        PlatformTransactionManager transactionManager) {
+        this((int) Arrays.stream(shardUrls).filter(url -> !url.trim().isEmpty()).count(), transactionManager);
+    }
+
+    public PlayerShards(int shardCount, PlatformTransactionManager transactionManager) {
+        this.shardCount = Math.max(1, shardCount);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executor = isSharded() ? Executors.newFixedThreadPool(this.shardCount, runnable -> {
+            Thread thread = new Thread(runnable, "player-shards");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int shardFor(long id) {
+        return ShardDataSources.shardOf(id, shardCount);
+    }
+
+    // Новых игроков раскладываем по шардам по кругу
+    public int nextShardForInsert() {
+        return Math.floorMod(nextInsertShard.getAndIncrement(), shardCount);
+    }
+
+    public <T> T onShard(int shard, Supplier<T> action) {
+        Integer previous = ShardContext.current();
+        ShardContext.set(shard);
+        try {
+            return action.get();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    // Выполняет запрос на всех шардах параллельно, каждый в своей транзакции только для чтения
+    public <T> List<T> onAllShards(Supplier<T> query) {
+        return onEachShard(shard -> query.get());
+    }
+
+    // То же, но запрос знает номер шарда - например, чтобы взять только его id
+    public <T> List<T> onEachShard(IntFunction<T> query) {
+        if (!isSharded()) {
+            return Collections.singletonList(query.apply(0));
+        }
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            // Запросы к шардам попадают в трассировку HTTP-запроса и запись SQL, которые их начали
+            futures.add(executor.submit(RequestTrace.wrap(StatementCapture.wrap(
+                    () -> onShard(target, () -> readOnlyTransaction.execute(status -> query.apply(target)))))));
+        }
+        List<T> results = new ArrayList<>(shardCount);
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Запрос к шардам прерван", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
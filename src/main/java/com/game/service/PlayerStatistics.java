@@ -0,0 +1,240 @@
+package com.game.service;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerRepository;
+import com.game.responses.PlayerStats;
+import com.game.responses.StatsGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+ * Статистика по группам раса x профессия x бан. Держится в памяти и обновляется
+ * на каждую запись в PlayerService; раз в rpg.stats.reconcile-millis сверяется
+ * с GROUP BY в базе и перестраивается по его строкам, если разошлась (например, после правки базы вручную).
+ * Отметки игроков при этом не перечитываются: если разошлись и они, группа снова отклонится
+ * при следующей записи этого игрока, и ее поправит следующая сверка.
+ */
+@Component
+public class PlayerStatistics implements PlayerChangeListener {
+    private static final Logger log = LoggerFactory.getLogger(PlayerStatistics.class);
+
+    private final PlayerRepository playerRepository;
+    private final PlayerShards playerShards;
+
+    private Map<Long, Sample> players = new HashMap<>();
+    private Map<GroupKey, StatsSummary> groups = new HashMap<>();
+
+    public PlayerStatistics(PlayerRepository playerRepository, PlayerShards playerShards) {
+        this.playerRepository = playerRepository;
+        this.playerShards = playerShards;
+    }
+
+    // Любой из фильтров может быть null - тогда группы по нему не отбрасываются
+    public synchronized PlayerStats getStats(Race race, Profession profession, Boolean banned) {
+        restoreExtremes();
+        List<Map.Entry<GroupKey, StatsSummary>> matching = new ArrayList<>();
+        for (Map.Entry<GroupKey, StatsSummary> entry : groups.entrySet()) {
+            GroupKey key = entry.getKey();
+            if (!entry.getValue().isEmpty() && (race == null || key.race == race) && (profession == null || key.profession == profession)
+                    && (banned == null || key.banned == banned)) {
+                matching.add(entry);
+            }
+        }
+        matching.sort(Map.Entry.comparingByKey());
+
+        StatsSummary total = new StatsSummary();
+        List<StatsGroup> result = new ArrayList<>(matching.size());
+        for (Map.Entry<GroupKey, StatsSummary> entry : matching) {
+            GroupKey key = entry.getKey();
+            entry.getValue().addTo(total);
+            result.add(toGroup(key.race, key.profession, key.banned, entry.getValue()));
+        }
+        return new PlayerStats(toGroup(race, profession, banned, total), result);
+    }
+
+    @Override
+    public synchronized void playerSaved(Player player) {
+        Sample sample = new Sample(player);
+        Sample old = players.put(player.getId(), sample);
+        if (old != null && old.key.equals(sample.key)) {
+            group(sample.key).update(old.experience, old.level, sample.experience, sample.level);
+            return;
+        }
+        if (old != null) {
+            group(old.key).remove(old.experience, old.level);
+        }
+        group(sample.key).add(sample.experience, sample.level);
+    }
+
+    @Override
+    public synchronized void playerDeleted(Long id) {
+        remove(id);
+    }
+
+    @Override
+    public void reload(Collection<Player> all) {
+        Map<Long, Sample> newPlayers = new HashMap<>(all.size() * 2);
+        Map<GroupKey, StatsSummary> newGroups = new HashMap<>();
+        for (Player player : all) {
+            Sample sample = new Sample(player);
+            newPlayers.put(player.getId(), sample);
+            newGroups.computeIfAbsent(sample.key, key -> new StatsSummary()).add(sample.experience, sample.level);
+        }
+        synchronized (this) {
+            players = newPlayers;
+            groups = newGroups;
+        }
+    }
+
+    // true, если статистика разошлась с базой и была перестроена
+    @Scheduled(fixedDelayString = "${rpg.stats.reconcile-millis:300000}",
+            initialDelayString = "${rpg.stats.reconcile-millis:300000}")
+    public boolean reconcile() {
+        if (matches(aggregate())) {
+            return false;
+        }
+        // Запись между коммитом в базе и уведомлением выглядит как расхождение - перед перестройкой сверяемся еще раз
+        return rebuildIfDiverged(aggregate());
+    }
+
+    private Map<GroupKey, StatsSummary> aggregate() {
+        Map<GroupKey, StatsSummary> actual = new HashMap<>();
+        for (List<Object[]> rows : playerShards.onAllShards(playerRepository::aggregateByGroup)) {
+            for (Object[] row : rows) {
+                GroupKey key = new GroupKey((Race) row[0], (Profession) row[1], Boolean.TRUE.equals(row[2]));
+                actual.computeIfAbsent(key, k -> new StatsSummary()).addAggregate(intValue(row[3]), intValue(row[4]),
+                        ((Number) row[5]).longValue(), ((Number) row[6]).longValue(), intValue(row[7]), intValue(row[8]));
+            }
+        }
+        return actual;
+    }
+
+    // Сравнение и подмена под одной блокировкой: между ними уведомления не проходят.
+    // Записи, закоммиченные после чтения агрегата, подмена затрет - их поправит следующая сверка
+    private synchronized boolean rebuildIfDiverged(Map<GroupKey, StatsSummary> actual) {
+        if (matches(actual)) {
+            return false;
+        }
+        log.warn("Player statistics diverged from the database, rebuilding");
+        groups = actual;
+        return true;
+    }
+
+    private synchronized boolean matches(Map<GroupKey, StatsSummary> actual) {
+        restoreExtremes();
+        long nonEmpty = groups.values().stream().filter(summary -> !summary.isEmpty()).count();
+        if (nonEmpty != actual.size()) {
+            return false;
+        }
+        for (Map.Entry<GroupKey, StatsSummary> entry : actual.entrySet()) {
+            StatsSummary summary = groups.get(entry.getKey());
+            if (summary == null || !summary.sameAs(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Пустой уровень или опыт в базе - как 0 в отметках игроков
+    private static int intValue(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+
+    private StatsSummary group(GroupKey key) {
+        return groups.computeIfAbsent(key, k -> new StatsSummary());
+    }
+
+    // min/max групп, потерявших крайнего игрока, - один проход по игрокам и только когда такие группы есть
+    private void restoreExtremes() {
+        List<StatsSummary> stale = new ArrayList<>();
+        for (StatsSummary summary : groups.values()) {
+            if (summary.isExtremesStale()) {
+                summary.resetExtremes();
+                stale.add(summary);
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+        for (Sample sample : players.values()) {
+            StatsSummary summary = groups.get(sample.key);
+            if (summary != null && summary.isExtremesStale()) {
+                summary.include(sample.experience);
+            }
+        }
+        stale.forEach(StatsSummary::extremesRestored);
+    }
+
+    private void remove(Long id) {
+        Sample old = players.remove(id);
+        if (old != null) {
+            group(old.key).remove(old.experience, old.level);
+        }
+    }
+
+    private static StatsGroup toGroup(Race race, Profession profession, Boolean banned, StatsSummary summary) {
+        return new StatsGroup(race, profession, banned, summary.getCount(), summary.getSumExperience(),
+                summary.getMinExperience(), summary.getMaxExperience(),
+                StatsSummary.LEVEL_BUCKET, summary.getLevelHistogram(),
+                StatsSummary.EXPERIENCE_BUCKET, summary.getExperienceHistogram());
+    }
+
+    private static final class Sample {
+        final GroupKey key;
+        final int experience;
+        final int level;
+
+        Sample(Player player) {
+            this.key = new GroupKey(player.getRace(), player.getProfession(), Boolean.TRUE.equals(player.getBanned()));
+            this.experience = player.getExperience() != null ? player.getExperience() : 0;
+            this.level = player.getLevel() != null ? player.getLevel() : 0;
+        }
+    }
+
+    private static final class GroupKey implements Comparable<GroupKey> {
+        private static final Comparator<GroupKey> ORDER = Comparator
+                .comparing((GroupKey key) -> key.race, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(key -> key.profession, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(key -> key.banned);
+
+        final Race race;
+        final Profession profession;
+        final boolean banned;
+
+        GroupKey(Race race, Profession profession, boolean banned) {
+            this.race = race;
+            this.profession = profession;
+            this.banned = banned;
+        }
+
+        @Override
+        public int compareTo(GroupKey other) {
+            return ORDER.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof GroupKey)) return false;
+            GroupKey other = (GroupKey) o;
+            return race == other.race && profession == other.profession && banned == other.banned;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(race, profession, banned);
+        }
+    }
+}
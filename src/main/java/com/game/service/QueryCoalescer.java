@@ -0,0 +1,92 @@
+package com.game.service;
+
+import com.game.entity.Player;
+import com.game.trace.StatementCapture;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+ * Single-flight для одинаковых запросов: пока запрос с тем же ключом выполняется,
+ * остальные вызовы ждут его результат, а не идут в базу сами. Как только запрос
+ * завершился, ключ забывается - это не кэш. В ключ входит номер версии данных,
+ * который растет на каждую запись, поэтому после своей записи клиент не присоединится
+ * к запросу, начатому до нее. Под StatementCapture (разбор запроса) вызов всегда идет в базу сам:
+ * присоединившись к чужому запросу, он не записал бы ни одного SQL.
+ */
+@Component
+public class QueryCoalescer implements PlayerChangeListener {
+    private final boolean enabled;
+    private final ConcurrentHashMap<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public QueryCoalescer(@Value("${rpg.query.coalesce:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Supplier<T> query, Object... key) {
+        if (!enabled || StatementCapture.isActive()) {
+            return query.get();
+        }
+        Object[] versioned = Arrays.copyOf(key, key.length + 1);
+        versioned[key.length] = version.get();
+        List<Object> flightKey = Arrays.asList(versioned);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(flightKey, flight);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        executed.increment();
+        try {
+            T result = query.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    public Map<String, Long> metrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("executed", executed.sum());
+        metrics.put("coalesced", coalesced.sum());
+        return metrics;
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,17 @@
+package com.game.service;
+
+import java.util.Locale;
+
+// Нормализация текста для поисковых индексов: регистр не важен, ё не отличается от е
+final class SearchText {
+
+    private SearchText() {
+    }
+
+    static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+}
@@ -0,0 +1,151 @@
+package com.game.service;
+
+import java.util.Arrays;
+
+/*
+ * Сводка по группе игроков: количество, сумма и крайние значения опыта, гистограммы с фиксированными корзинами.
+ * Размер не зависит от числа игроков. Итог по нескольким группам копится в одной сводке через addTo.
+ */
+class StatsSummary {
+    static final int LEVEL_BUCKET = 10;
+    static final int LEVEL_BUCKETS = 45;
+    static final int EXPERIENCE_BUCKET = 1_000_000;
+    static final int EXPERIENCE_BUCKETS = 10;
+
+    private long count;
+    private long sumExperience;
+    private int minExperience = Integer.MAX_VALUE;
+    private int maxExperience = Integer.MIN_VALUE;
+    // Ушел игрок с крайним опытом: min/max из полей не восстановить, их пересчитывает PlayerStatistics
+    private boolean extremesStale;
+    private final int[] levelHistogram = new int[LEVEL_BUCKETS];
+    private final int[] experienceHistogram = new int[EXPERIENCE_BUCKETS];
+
+    void add(int experience, int level) {
+        change(experience, level, 1);
+        include(experience);
+    }
+
+    void remove(int experience, int level) {
+        if (count == 0) {
+            // Группа перестроена по базе без этого игрока - убирать нечего
+            return;
+        }
+        change(experience, level, -1);
+        if (count == 0) {
+            resetExtremes();
+            extremesStale = false;
+        } else if (experience == minExperience || experience == maxExperience) {
+            extremesStale = true;
+        }
+    }
+
+    // Игрок остался в группе, но опыт изменился. Начисления только растят опыт,
+    // поэтому рост максимума (и снижение минимума) пересчета не требует
+    void update(int oldExperience, int oldLevel, int experience, int level) {
+        change(oldExperience, oldLevel, -1);
+        change(experience, level, 1);
+        if (oldExperience == maxExperience && experience < oldExperience
+                || oldExperience == minExperience && experience > oldExperience) {
+            extremesStale = true;
+        }
+        include(experience);
+    }
+
+    boolean isExtremesStale() {
+        return extremesStale;
+    }
+
+    void resetExtremes() {
+        minExperience = Integer.MAX_VALUE;
+        maxExperience = Integer.MIN_VALUE;
+    }
+
+    void include(int experience) {
+        minExperience = Math.min(minExperience, experience);
+        maxExperience = Math.max(maxExperience, experience);
+    }
+
+    void extremesRestored() {
+        extremesStale = false;
+    }
+
+    // Добавляет сводку к итогу на месте, без копий
+    void addTo(StatsSummary total) {
+        total.count += count;
+        total.sumExperience += sumExperience;
+        if (count > 0) {
+            total.include(minExperience);
+            total.include(maxExperience);
+        }
+        for (int i = 0; i < LEVEL_BUCKETS; i++) {
+            total.levelHistogram[i] += levelHistogram[i];
+        }
+        for (int i = 0; i < EXPERIENCE_BUCKETS; i++) {
+            total.experienceHistogram[i] += experienceHistogram[i];
+        }
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getSumExperience() {
+        return sumExperience;
+    }
+
+    Integer getMinExperience() {
+        return count == 0 ? null : minExperience;
+    }
+
+    Integer getMaxExperience() {
+        return count == 0 ? null : maxExperience;
+    }
+
+    int[] getLevelHistogram() {
+        return levelHistogram.clone();
+    }
+
+    int[] getExperienceHistogram() {
+        return experienceHistogram.clone();
+    }
+
+    // Строка агрегата из базы: count игроков с опытом sumExperience в пределах [minExperience, maxExperience],
+    // все в одних корзинах уровня и опыта (номера корзин - до ограничения сверху)
+    void addAggregate(int levelBucket, int experienceBucket, long count, long sumExperience,
+                      int minExperience, int maxExperience) {
+        this.count += count;
+        this.sumExperience += sumExperience;
+        include(minExperience);
+        include(maxExperience);
+        levelHistogram[Math.max(0, Math.min(levelBucket, LEVEL_BUCKETS - 1))] += count;
+        experienceHistogram[Math.max(0, Math.min(experienceBucket, EXPERIENCE_BUCKETS - 1))] += count;
+    }
+
+    // Совпадают ли сводки полностью, вместе с гистограммами
+    boolean sameAs(StatsSummary other) {
+        return count == other.count && sumExperience == other.sumExperience
+                && equal(getMinExperience(), other.getMinExperience()) && equal(getMaxExperience(), other.getMaxExperience())
+                && Arrays.equals(levelHistogram, other.levelHistogram)
+                && Arrays.equals(experienceHistogram, other.experienceHistogram);
+    }
+
+    private void change(int experience, int level, int delta) {
+        count += delta;
+        sumExperience += (long) experience * delta;
+        levelHistogram[bucket(level, LEVEL_BUCKET, LEVEL_BUCKETS)] += delta;
+        experienceHistogram[bucket(experience, EXPERIENCE_BUCKET, EXPERIENCE_BUCKETS)] += delta;
+    }
+
+    private static int bucket(int value, int width, int buckets) {
+        return Math.max(0, Math.min(value / width, buckets - 1));
+    }
+
+    private static boolean equal(Integer a, Integer b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
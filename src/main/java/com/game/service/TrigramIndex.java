@@ -0,0 +1,218 @@
+package com.game.service;
+
+import com.game.controller.NameCollation;
+import com.game.entity.Player;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Триграммный индекс по имени и титулу для поиска подстроки. Отдает не ответ,
+ * а список id-кандидатов: LIKE в базе все равно применяется к ним, поэтому результат
+ * совпадает с прежним. Кандидаты - надмножество совпадений LIKE: текст сводится
+ * NameCollation.fold той же сортировки, что у базы (в prod - без регистра и диакритики).
+ * Индекс видит только записи через этот экземпляр, поэтому сужает поиск, лишь когда других
+ * писателей нет: rpg.search.single-writer или профиль logstore, который держит каталог один.
+ */
+@Component
+public class TrigramIndex implements PlayerChangeListener {
+    private static final int GRAM = 3;
+
+    private final int maxCandidates;
+    private final boolean singleWriter;
+    private final NameCollation nameCollation;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Document> documents = new HashMap<>();
+    private Map<String, Set<Long>> nameGrams = new HashMap<>();
+    private Map<String, Set<Long>> titleGrams = new HashMap<>();
+
+    @Autowired
+    public TrigramIndex(@Value("${rpg.search.max-candidates:2000}") int maxCandidates,
+                        @Value("${rpg.search.single-writer:false}") boolean singleWriter,
+                        NameCollation nameCollation, Environment environment) {
+        this(maxCandidates, singleWriter || environment.acceptsProfiles(Profiles.of("logstore")), nameCollation);
+    }
+
+    public TrigramIndex(int maxCandidates, boolean singleWriter, NameCollation nameCollation) {
+        this.maxCandidates = maxCandidates;
+        this.singleWriter = singleWriter;
+        this.nameCollation = nameCollation;
+    }
+
+    /*
+     * id игроков, у которых могут совпасть name и title (null - условие не задано).
+     * Неподходящая для индекса подстрока (короче триграммы, с символами шаблона LIKE)
+     * просто не сужает круг. null в ответе - сузить нечем или кандидатов слишком много,
+     * и запрос надо выполнять как раньше.
+     */
+    public Set<Long> candidates(String name, String title) {
+        if (!singleWriter) {
+            return null;
+        }
+        String nameKey = usable(name) ? nameCollation.fold(name) : null;
+        String titleKey = usable(title) ? nameCollation.fold(title) : null;
+        if (nameKey == null && titleKey == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            List<Set<Long>> postings = new ArrayList<>();
+            if (!collect(nameGrams, nameKey, postings) || !collect(titleGrams, titleKey, postings)) {
+                return new HashSet<>();
+            }
+            postings.sort(Comparator.comparingInt(Set::size));
+            Set<Long> result = new HashSet<>();
+            for (Long id : postings.get(0)) {
+                Document document = documents.get(id);
+                if (contains(postings, id) && (nameKey == null || document.name.contains(nameKey))
+                        && (titleKey == null || document.title.contains(titleKey))) {
+                    result.add(id);
+                    if (result.size() > maxCandidates) {
+                        return null;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        Document document = document(player);
+        lock.writeLock().lock();
+        try {
+            remove(player.getId());
+            add(player.getId(), document, documents, nameGrams, titleGrams);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        Map<Long, Document> newDocuments = new HashMap<>(players.size() * 2);
+        Map<String, Set<Long>> newNameGrams = new HashMap<>();
+        Map<String, Set<Long>> newTitleGrams = new HashMap<>();
+        for (Player player : players) {
+            add(player.getId(), document(player), newDocuments, newNameGrams, newTitleGrams);
+        }
+        lock.writeLock().lock();
+        try {
+            documents = newDocuments;
+            nameGrams = newNameGrams;
+            titleGrams = newTitleGrams;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Document document(Player player) {
+        return new Document(fold(player.getName()), fold(player.getTitle()));
+    }
+
+    private String fold(String text) {
+        return text == null ? "" : nameCollation.fold(text);
+    }
+
+    // Подстроки короче триграммы индексом не сужаются; %, _ и \ в LIKE значат шаблон, а не символ
+    private static boolean usable(String text) {
+        return text != null && text.length() >= GRAM
+                && text.indexOf('%') < 0 && text.indexOf('_') < 0 && text.indexOf('\\') < 0;
+    }
+
+    // false - какой-то триграммы нет ни у одного игрока, совпадений точно нет
+    private static boolean collect(Map<String, Set<Long>> grams, String key, List<Set<Long>> postings) {
+        if (key == null) {
+            return true;
+        }
+        for (String gram : grams(key)) {
+            Set<Long> ids = grams.get(gram);
+            if (ids == null) {
+                return false;
+            }
+            postings.add(ids);
+        }
+        return true;
+    }
+
+    private static boolean contains(List<Set<Long>> postings, Long id) {
+        for (int i = 1; i < postings.size(); i++) {
+            if (!postings.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static void add(Long id, Document document, Map<Long, Document> documents,
+                            Map<String, Set<Long>> nameGrams, Map<String, Set<Long>> titleGrams) {
+        documents.put(id, document);
+        for (String gram : grams(document.name)) {
+            nameGrams.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+        }
+        for (String gram : grams(document.title)) {
+            titleGrams.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void remove(Long id) {
+        Document old = documents.remove(id);
+        if (old == null) {
+            return;
+        }
+        unlink(nameGrams, old.name, id);
+        unlink(titleGrams, old.title, id);
+    }
+
+    private static void unlink(Map<String, Set<Long>> index, String text, Long id) {
+        for (String gram : grams(text)) {
+            Set<Long> ids = index.get(gram);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                index.remove(gram);
+            }
+        }
+    }
+
+    private static final class Document {
+        final String name;
+        final String title;
+
+        Document(String name, String title) {
+            this.name = name;
+            this.title = title;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.game.snapshot;
+
+import com.game.entity.Player;
+
+import java.util.Collection;
+
+// Содержимое снимка: игроки и отметка, до которой они точно совпадают с базой
+public final class PlayerSnapshot {
+    private final Collection<Player> players;
+    private final long maxId;
+    private final long highWaterMillis;
+
+    public PlayerSnapshot(Collection<Player> players, long maxId, long highWaterMillis) {
+        this.players = players;
+        this.maxId = maxId;
+        this.highWaterMillis = highWaterMillis;
+    }
+
+    public Collection<Player> getPlayers() {
+        return players;
+    }
+
+    // Наибольший id в снимке
+    public long getMaxId() {
+        return maxId;
+    }
+
+    // Время базы (player.updated), раньше которого все изменения уже в снимке
+    public long getHighWaterMillis() {
+        return highWaterMillis;
+    }
+}
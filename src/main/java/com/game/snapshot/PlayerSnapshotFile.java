@@ -0,0 +1,209 @@
+package com.game.snapshot;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/*
+ * Двоичный формат снимка таблицы player:
+ *   заголовок (48 байт): магия, версия формата, ширина строки, число строк, размер пула строк,
+ *                        наибольший id, отметка времени базы, CRC32 всего файла кроме самого поля CRC;
+ *   строки фиксированной ширины (45 байт): id, birthday, experience, level, untilNextLevel,
+ *                        ссылки в пул на name, title, race, profession и banned;
+ *   пул строк: длина (2 байта) + UTF-8, одинаковые строки хранятся один раз.
+ * Пишется во временный файл через отображение в память и атомарно подменяет предыдущий снимок.
+ */
+public final class PlayerSnapshotFile {
+    private static final int MAGIC = 0x52504753;
+    private static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 48;
+    static final int ROW_BYTES = 45;
+    private static final int CRC_OFFSET = 36;
+    private static final int NULL_REF = -1;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final byte NULL_BOOLEAN = 2;
+
+    private PlayerSnapshotFile() {
+    }
+
+    // Возвращает размер записанного файла
+    public static long write(Path file, PlayerSnapshot snapshot) throws IOException {
+        Collection<Player> players = snapshot.getPlayers();
+        Map<String, Integer> pool = new LinkedHashMap<>();
+        List<byte[]> poolEntries = new ArrayList<>();
+        int poolBytes = 0;
+        for (Player player : players) {
+            for (String value : strings(player)) {
+                if (value != null && !pool.containsKey(value)) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    if (bytes.length > 0xFFFF) {
+                        throw new IOException("Строка длиннее 65535 байт не помещается в снимок");
+                    }
+                    pool.put(value, poolBytes);
+                    poolEntries.add(bytes);
+                    poolBytes += 2 + bytes.length;
+                }
+            }
+        }
+        long size = HEADER_BYTES + (long) players.size() * ROW_BYTES + poolBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Снимок больше 2 ГБ не поддерживается");
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.position(HEADER_BYTES);
+            for (Player player : players) {
+                buffer.putLong(player.getId());
+                Long birthday = player.getBirthday();
+                buffer.putLong(birthday != null ? birthday : NULL_LONG);
+                buffer.putInt(orNull(player.getExperience()));
+                buffer.putInt(orNull(player.getLevel()));
+                buffer.putInt(orNull(player.getUntilNextLevel()));
+                for (String value : strings(player)) {
+                    buffer.putInt(value != null ? pool.get(value) : NULL_REF);
+                }
+                Boolean banned = player.getBanned();
+                buffer.put(banned == null ? NULL_BOOLEAN : (byte) (banned ? 1 : 0));
+            }
+            for (byte[] bytes : poolEntries) {
+                buffer.putShort((short) bytes.length);
+                buffer.put(bytes);
+            }
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            buffer.putInt(8, ROW_BYTES);
+            buffer.putInt(12, players.size());
+            buffer.putInt(16, poolBytes);
+            buffer.putLong(20, snapshot.getMaxId());
+            buffer.putLong(28, snapshot.getHighWaterMillis());
+            buffer.putInt(CRC_OFFSET, (int) checksum(buffer));
+            buffer.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    // Битый, обрезанный или чужой файл - IOException, снимок тогда просто не используется
+    public static PlayerSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Неверный размер снимка: " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION || buffer.getInt(8) != ROW_BYTES) {
+                throw new IOException("Файл " + file + " не является снимком игроков этой версии");
+            }
+            int rows = buffer.getInt(12);
+            int poolBytes = buffer.getInt(16);
+            if (rows < 0 || poolBytes < 0 || HEADER_BYTES + (long) rows * ROW_BYTES + poolBytes != size) {
+                throw new IOException("Снимок обрезан или поврежден: размер не сходится с заголовком");
+            }
+            if ((int) checksum(buffer) != buffer.getInt(CRC_OFFSET)) {
+                throw new IOException("Контрольная сумма снимка не сходится");
+            }
+
+            int poolStart = HEADER_BYTES + rows * ROW_BYTES;
+            Map<Integer, String> strings = new HashMap<>();
+            List<Player> players = new ArrayList<>(rows);
+            buffer.position(HEADER_BYTES);
+            for (int i = 0; i < rows; i++) {
+                Player player = new Player();
+                player.setId(buffer.getLong());
+                long birthday = buffer.getLong();
+                // Player.getBirthday разбирает дату из строки вида yyyy-MM-dd - нужен java.sql.Date
+                player.setBirthday(birthday != NULL_LONG ? new java.sql.Date(birthday) : null);
+                player.setExperience(fromNull(buffer.getInt()));
+                player.setLevel(fromNull(buffer.getInt()));
+                player.setUntilNextLevel(fromNull(buffer.getInt()));
+                player.setName(string(buffer, buffer.getInt(), poolStart, poolBytes, strings));
+                player.setTitle(string(buffer, buffer.getInt(), poolStart, poolBytes, strings));
+                String race = string(buffer, buffer.getInt(), poolStart, poolBytes, strings);
+                String profession = string(buffer, buffer.getInt(), poolStart, poolBytes, strings);
+                try {
+                    player.setRace(race != null ? Race.valueOf(race) : null);
+                    player.setProfession(profession != null ? Profession.valueOf(profession) : null);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Снимок содержит неизвестную расу или профессию", e);
+                }
+                byte banned = buffer.get();
+                player.setBanned(banned == NULL_BOOLEAN ? null : banned == 1);
+                players.add(player);
+            }
+            return new PlayerSnapshot(players, buffer.getLong(20), buffer.getLong(28));
+        }
+    }
+
+    private static String[] strings(Player player) {
+        return new String[]{player.getName(), player.getTitle(),
+                player.getRace() != null ? player.getRace().name() : null,
+                player.getProfession() != null ? player.getProfession().name() : null};
+    }
+
+    private static String string(ByteBuffer buffer, int ref, int poolStart, int poolBytes,
+                                 Map<Integer, String> strings) throws IOException {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        String cached = strings.get(ref);
+        if (cached != null) {
+            return cached;
+        }
+        if (ref < 0 || ref + 2 > poolBytes) {
+            throw new IOException("Ссылка за пределы пула строк: " + ref);
+        }
+        int length = buffer.getShort(poolStart + ref) & 0xFFFF;
+        if (ref + 2 + length > poolBytes) {
+            throw new IOException("Строка выходит за пределы пула: " + ref);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(poolStart + ref + 2);
+        view.get(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        strings.put(ref, value);
+        return value;
+    }
+
+    private static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        ByteBuffer view = buffer.duplicate();
+        view.position(0).limit(CRC_OFFSET);
+        crc.update(view);
+        view = buffer.duplicate();
+        view.position(CRC_OFFSET + 4).limit(buffer.capacity());
+        crc.update(view);
+        return crc.getValue();
+    }
+
+    private static int orNull(Integer value) {
+        return value != null ? value : NULL_INT;
+    }
+
+    private static Integer fromNull(int value) {
+        return value != NULL_INT ? value : null;
+    }
+}
@@ -0,0 +1,196 @@
+package com.game.snapshot;
+
+import com.game.entity.Player;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerShards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/*
+ * Теплый старт: игроки читаются из двоичного снимка (rpg.snapshot.file), а из базы догружаются
+ * только строки, измененные после отметки снимка (player.updated) или с id больше сохраненного;
+ * удаленные находятся сравнением списка id. Снимок перезаписывается раз в rpg.snapshot.interval-millis
+ * и при остановке. Отметка берется по часам базы с запасом catch-up-margin-millis на транзакции,
+ * которые начались раньше, а закоммитились позже.
+ */
+@Component
+public class PlayerSnapshots implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(PlayerSnapshots.class);
+
+    private final PlayerRepository playerRepository;
+    private final PlayerShards playerShards;
+    private final Path file;
+    private final long marginMillis;
+    private final Object writeLock = new Object();
+
+    // Копия таблицы на момент последней загрузки или догонки, по возрастанию id
+    private final TreeMap<Long, Player> players = new TreeMap<>();
+    private long highWaterMillis;
+    private long maxId;
+
+    private String source = "database";
+    private long loadMillis;
+    private int loadedFromSnapshot;
+    private int caughtUp;
+    private int removed;
+    private long writes;
+    private long writeFailures;
+    private long lastWriteBytes;
+    private long lastWriteMillis;
+
+    public PlayerSnapshots(PlayerRepository playerRepository, PlayerShards playerShards,
+                           @Value("${rpg.snapshot.file:}") String file,
+                           @Value("${rpg.snapshot.catch-up-margin-millis:60000}") long marginMillis) {
+        this.playerRepository = playerRepository;
+        this.playerShards = playerShards;
+        this.file = file.trim().isEmpty() ? null : Paths.get(file.trim());
+        this.marginMillis = marginMillis;
+    }
+
+    // Снимок плюс догонка; без снимка или если он поврежден - полное чтение базы
+    public synchronized List<Player> warmStart() {
+        if (file == null || !Files.exists(file)) {
+            return loadAll();
+        }
+        long started = System.nanoTime();
+        PlayerSnapshot snapshot;
+        try {
+            snapshot = PlayerSnapshotFile.read(file);
+        } catch (IOException e) {
+            log.warn("Player snapshot {} is unusable, loading players from the database: {}", file, e.getMessage());
+            return loadAll();
+        }
+        players.clear();
+        for (Player player : snapshot.getPlayers()) {
+            players.put(player.getId(), player);
+        }
+        highWaterMillis = snapshot.getHighWaterMillis();
+        maxId = snapshot.getMaxId();
+        loadedFromSnapshot = players.size();
+        catchUp();
+        source = "snapshot";
+        loadMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Loaded {} players from snapshot {} and {} changed rows from the database in {} ms",
+                loadedFromSnapshot, file, caughtUp, loadMillis);
+        return new ArrayList<>(players.values());
+    }
+
+    public synchronized List<Player> loadAll() {
+        long started = System.nanoTime();
+        long mark = databaseTime() - marginMillis;
+        players.clear();
+        playerShards.onAllShards(playerRepository::findAll).forEach(shard -> shard.forEach(p -> players.put(p.getId(), p)));
+        highWaterMillis = mark;
+        maxId = players.isEmpty() ? 0 : players.lastKey();
+        source = "database";
+        loadedFromSnapshot = 0;
+        caughtUp = players.size();
+        removed = 0;
+        loadMillis = (System.nanoTime() - started) / 1_000_000;
+        return new ArrayList<>(players.values());
+    }
+
+    // Приводит копию к состоянию базы, читая только изменения после отметки
+    public synchronized void catchUp() {
+        long mark = databaseTime() - marginMillis;
+        Date since = new Date(highWaterMillis);
+        long afterId = maxId;
+        List<Player> changed = new ArrayList<>();
+        playerShards.onAllShards(() -> playerRepository.findChangedSince(afterId, since)).forEach(changed::addAll);
+        Set<Long> ids = new HashSet<>();
+        playerShards.onAllShards(playerRepository::findAllIds).forEach(ids::addAll);
+
+        int before = players.size();
+        players.keySet().retainAll(ids);
+        removed = before - players.size();
+        for (Player player : changed) {
+            players.put(player.getId(), player);
+        }
+        caughtUp = changed.size();
+        highWaterMillis = mark;
+        maxId = players.isEmpty() ? 0 : Math.max(maxId, players.lastKey());
+    }
+
+    @Scheduled(fixedDelayString = "${rpg.snapshot.interval-millis:600000}",
+            initialDelayString = "${rpg.snapshot.interval-millis:600000}")
+    public void write() throws IOException {
+        if (file == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            PlayerSnapshot snapshot;
+            synchronized (this) {
+                catchUp();
+                snapshot = new PlayerSnapshot(new ArrayList<>(players.values()), maxId, highWaterMillis);
+            }
+            long started = System.nanoTime();
+            try {
+                long bytes = PlayerSnapshotFile.write(file, snapshot);
+                synchronized (this) {
+                    writes++;
+                    lastWriteBytes = bytes;
+                    lastWriteMillis = (System.nanoTime() - started) / 1_000_000;
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    writeFailures++;
+                }
+                throw e;
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("file", file != null ? file.toString() : null);
+        metrics.put("source", source);
+        metrics.put("loadMillis", loadMillis);
+        metrics.put("loadedFromSnapshot", loadedFromSnapshot);
+        metrics.put("caughtUp", caughtUp);
+        metrics.put("removed", removed);
+        metrics.put("players", players.size());
+        metrics.put("maxId", maxId);
+        metrics.put("highWaterMillis", highWaterMillis);
+        metrics.put("writes", writes);
+        metrics.put("writeFailures", writeFailures);
+        metrics.put("lastWriteBytes", lastWriteBytes);
+        metrics.put("lastWriteMillis", lastWriteMillis);
+        return metrics;
+    }
+
+    // При остановке сохраняем свежий снимок, чтобы следующий старт догонял как можно меньше
+    @Override
+    public void destroy() {
+        try {
+            write();
+        } catch (RuntimeException | IOException e) {
+            log.warn("Could not write player snapshot on shutdown", e);
+        }
+    }
+
+    // На шардах часы могут расходиться - берем самые отстающие
+    private long databaseTime() {
+        long earliest = Long.MAX_VALUE;
+        for (Date time : playerShards.onAllShards(playerRepository::databaseTime)) {
+            earliest = Math.min(earliest, time.getTime());
+        }
+        return earliest;
+    }
+}
@@ -0,0 +1,90 @@
+package com.game.trace;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.AsyncHandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * Фазы Spring MVC для RequestTrace: разбор параметров запроса (bind) и запись ответа
+ * (serialize - конвертер сообщений пишет тело). Обертки ставятся вокруг готовых
+ * резолверов RequestMappingHandlerAdapter, порядок и выбор резолвера не меняются.
+ */
+public class HandlerTracingPostProcessor implements BeanPostProcessor {
+    private final boolean enabled;
+
+    public HandlerTracingPostProcessor(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof RequestMappingHandlerAdapter) {
+            RequestMappingHandlerAdapter adapter = (RequestMappingHandlerAdapter) bean;
+            List<HandlerMethodArgumentResolver> resolvers = adapter.getArgumentResolvers();
+            List<HandlerMethodReturnValueHandler> handlers = adapter.getReturnValueHandlers();
+            if (resolvers != null) {
+                adapter.setArgumentResolvers(resolvers.stream()
+                        .map(TimedArgumentResolver::new).collect(Collectors.toList()));
+            }
+            if (handlers != null) {
+                // Async-обработчики не оборачиваются: по их типу выбирается обработчик асинхронного ответа
+                adapter.setReturnValueHandlers(handlers.stream()
+                        .map(handler -> handler instanceof AsyncHandlerMethodReturnValueHandler
+                                ? handler : new TimedReturnValueHandler(handler))
+                        .collect(Collectors.toList()));
+            }
+        }
+        return bean;
+    }
+
+    private static final class TimedArgumentResolver implements HandlerMethodArgumentResolver {
+        private final HandlerMethodArgumentResolver delegate;
+
+        TimedArgumentResolver(HandlerMethodArgumentResolver delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean supportsParameter(MethodParameter parameter) {
+            return delegate.supportsParameter(parameter);
+        }
+
+        @Override
+        public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                      NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+            try (RequestTrace.Span ignored = RequestTrace.span(RequestTrace.BIND)) {
+                return delegate.resolveArgument(parameter, mavContainer, webRequest, binderFactory);
+            }
+        }
+    }
+
+    private static final class TimedReturnValueHandler implements HandlerMethodReturnValueHandler {
+        private final HandlerMethodReturnValueHandler delegate;
+
+        TimedReturnValueHandler(HandlerMethodReturnValueHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean supportsReturnType(MethodParameter returnType) {
+            return delegate.supportsReturnType(returnType);
+        }
+
+        @Override
+        public void handleReturnValue(Object returnValue, MethodParameter returnType, ModelAndViewContainer mavContainer,
+                                      NativeWebRequest webRequest) throws Exception {
+            try (RequestTrace.Span ignored = RequestTrace.span(RequestTrace.SERIALIZE)) {
+                delegate.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+            }
+        }
+    }
+}
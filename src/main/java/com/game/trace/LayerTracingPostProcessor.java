@@ -0,0 +1,48 @@
+package com.game.trace;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+/*
+ * Отрезки RequestTrace вокруг вызовов слоев (PlayerService - service, PlayerRepository - repository).
+ * Совет встает первым в цепочку уже готового прокси, снаружи транзакции: время слоя включает
+ * ее открытие и коммит. Бин без прокси получает свой.
+ */
+public class LayerTracingPostProcessor implements BeanPostProcessor {
+    private final Map<Class<?>, String> layers;
+
+    public LayerTracingPostProcessor(Map<Class<?>, String> layers) {
+        this.layers = layers;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        for (Map.Entry<Class<?>, String> layer : layers.entrySet()) {
+            if (layer.getKey().isInstance(bean)) {
+                return traced(bean, layer.getValue());
+            }
+        }
+        return bean;
+    }
+
+    private static Object traced(Object bean, String phase) {
+        MethodInterceptor advice = invocation -> {
+            try (RequestTrace.Span ignored = RequestTrace.span(phase)) {
+                return invocation.proceed();
+            }
+        };
+        if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+            ((Advised) bean).addAdvice(0, advice);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(!Proxy.isProxyClass(bean.getClass()));
+        proxyFactory.addAdvice(advice);
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,213 @@
+package com.game.trace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Трассировка одного HTTP-запроса: суммарное время по фазам и число SQL-запросов.
+ * Фазы вложены (service включает repository, тот - sql и hydrate), поэтому их сумма больше total.
+ * Вне запроса current() - null, и каждая точка замера сводится к одной проверке ThreadLocal.
+ * Отдельные отрезки запоминаются только у запросов из выборки (rpg.trace.sample-rate).
+ * Запросы к шардам идут в своих потоках - PlayerShards переносит туда трассировку через wrap(),
+ * и время параллельных фаз суммируется. Server-Timing учитывает и незакрытые отрезки: заголовок
+ * уходит с первыми байтами тела, когда сериализация еще идет.
+ */
+public final class RequestTrace {
+    public static final String BIND = "bind";
+    public static final String SERVICE = "service";
+    public static final String REPOSITORY = "repository";
+    public static final String SQL = "sql";
+    public static final String HYDRATE = "hydrate";
+    public static final String SERIALIZE = "serialize";
+    private static final String[] PHASES = {BIND, SERVICE, REPOSITORY, SQL, HYDRATE, SERIALIZE};
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final Span NOOP = new Span(null, null, 0);
+
+    private final String traceId;
+    private final boolean sampled;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, LongAdder> phases = new ConcurrentHashMap<>();
+    private final LongAdder statements = new LongAdder();
+    private final List<Span> spans;
+    private final Set<Span> open = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Integer> depths = new ConcurrentHashMap<>();
+
+    private RequestTrace(String traceId, boolean sampled) {
+        this.traceId = traceId;
+        this.sampled = sampled;
+        this.spans = sampled ? new ArrayList<>() : null;
+    }
+
+    public static RequestTrace begin(String traceId, boolean sampled) {
+        RequestTrace trace = new RequestTrace(traceId, sampled);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    // Отрезок фазы текущего запроса; закрывается try-with-resources
+    public static Span span(String phase) {
+        RequestTrace trace = CURRENT.get();
+        return trace == null ? NOOP : new Span(trace, phase, System.nanoTime());
+    }
+
+    // Уже измеренное время, например чтение ResultSet от executeQuery до close
+    public static void record(String phase, long nanos) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.add(phase, nanos);
+        }
+    }
+
+    public static void statementExecuted() {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.statements.increment();
+        }
+    }
+
+    // Задача для другого потока продолжает трассировку текущего запроса
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null) {
+            return task;
+        }
+        return () -> {
+            RequestTrace previous = CURRENT.get();
+            CURRENT.set(trace);
+            try {
+                return task.call();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    public long statements() {
+        return statements.sum();
+    }
+
+    public long phaseNanos(String phase) {
+        LongAdder nanos = phases.get(phase);
+        return nanos == null ? 0 : nanos.sum();
+    }
+
+    // Server-Timing: sql;dur=1.25;desc="3 statements", ..., total;dur=4.10 (миллисекунды)
+    public String serverTiming() {
+        long now = System.nanoTime();
+        Map<String, Long> running = new HashMap<>();
+        for (Span span : open) {
+            running.merge(span.phase, now - span.start, Long::sum);
+        }
+        StringBuilder header = new StringBuilder();
+        for (String phase : PHASES) {
+            LongAdder nanos = phases.get(phase);
+            Long current = running.get(phase);
+            if (nanos == null && current == null) {
+                continue;
+            }
+            long total = (nanos != null ? nanos.sum() : 0) + (current != null ? current : 0);
+            header.append(phase).append(";dur=").append(millis(total));
+            if (SQL.equals(phase)) {
+                header.append(";desc=\"").append(statements.sum()).append(" statements\"");
+            }
+            header.append(", ");
+        }
+        return header.append("total;dur=").append(millis(now - startNanos)).toString();
+    }
+
+    // Отрезки выбранного в выборку запроса по времени начала: смещение, длительность, фаза, поток
+    public List<String> describeSpans() {
+        List<String> lines = new ArrayList<>();
+        if (spans == null) {
+            return lines;
+        }
+        List<Span> ordered;
+        synchronized (spans) {
+            ordered = new ArrayList<>(spans);
+        }
+        ordered.sort(Comparator.comparingLong(span -> span.start));
+        for (Span span : ordered) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < span.depth; i++) {
+                line.append("  ");
+            }
+            lines.add(line.append('+').append(millis(span.start - startNanos)).append("ms ")
+                    .append(span.phase).append(' ').append(millis(span.nanos)).append("ms [")
+                    .append(span.thread).append(']').toString());
+        }
+        return lines;
+    }
+
+    private void add(String phase, long nanos) {
+        phases.computeIfAbsent(phase, key -> new LongAdder()).add(nanos);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    public static final class Span implements AutoCloseable {
+        private final RequestTrace trace;
+        private final String phase;
+        private final long start;
+        private String thread;
+        private int depth;
+        private long nanos;
+
+        private Span(RequestTrace trace, String phase, long start) {
+            this.trace = trace;
+            this.phase = phase;
+            this.start = start;
+            if (trace != null) {
+                trace.open.add(this);
+            }
+            if (trace != null && trace.sampled) {
+                long threadId = Thread.currentThread().getId();
+                this.thread = Thread.currentThread().getName();
+                this.depth = trace.depths.merge(threadId, 1, Integer::sum) - 1;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (trace == null) {
+                return;
+            }
+            nanos = System.nanoTime() - start;
+            trace.add(phase, nanos);
+            trace.open.remove(this);
+            if (trace.sampled) {
+                trace.depths.merge(Thread.currentThread().getId(), -1, Integer::sum);
+                synchronized (trace.spans) {
+                    trace.spans.add(this);
+                }
+            }
+        }
+    }
+}
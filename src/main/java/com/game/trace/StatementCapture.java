@@ -0,0 +1,105 @@
+package com.game.trace;
+
+import com.game.datasource.ShardContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/*
+ * Запись SQL-запросов, выполненных в потоке между start() и close(): текст, параметры
+ * в порядке номеров, шард и время выполнения. Пишет TracingDataSource; вне записи
+ * стоимость - одна проверка ThreadLocal.
+ */
+public final class StatementCapture implements AutoCloseable {
+    private static final ThreadLocal<StatementCapture> CURRENT = new ThreadLocal<>();
+
+    private final StatementCapture previous;
+    private final List<Statement> statements = Collections.synchronizedList(new ArrayList<>());
+
+    private StatementCapture(StatementCapture previous) {
+        this.previous = previous;
+    }
+
+    public static StatementCapture start() {
+        StatementCapture capture = new StatementCapture(CURRENT.get());
+        CURRENT.set(capture);
+        return capture;
+    }
+
+    static StatementCapture current() {
+        return CURRENT.get();
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    // Задача для другого потока пишет запросы в ту же запись
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        StatementCapture capture = CURRENT.get();
+        if (capture == null) {
+            return task;
+        }
+        return () -> {
+            StatementCapture outer = CURRENT.get();
+            CURRENT.set(capture);
+            try {
+                return task.call();
+            } finally {
+                CURRENT.set(outer);
+            }
+        };
+    }
+
+    public List<Statement> statements() {
+        synchronized (statements) {
+            return new ArrayList<>(statements);
+        }
+    }
+
+    void add(String sql, List<Object> parameters, long nanos) {
+        statements.add(new Statement(sql, parameters, ShardContext.current(), nanos));
+    }
+
+    @Override
+    public void close() {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    public static final class Statement {
+        private final String sql;
+        private final List<Object> parameters;
+        private final Integer shard;
+        private final long nanos;
+
+        Statement(String sql, List<Object> parameters, Integer shard, long nanos) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.shard = shard;
+            this.nanos = nanos;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<Object> getParameters() {
+            return parameters;
+        }
+
+        // null - запрос шел без выбора шарда (одна база)
+        public Integer getShard() {
+            return shard;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
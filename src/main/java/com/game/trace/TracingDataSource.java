@@ -0,0 +1,127 @@
+package com.game.trace;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Замеры JDBC для RequestTrace: время выполнения запросов (sql), их число и чтение результата
+ * от возврата executeQuery до закрытия запроса (hydrate - в это время Hibernate собирает сущности).
+ * Для StatementCapture запоминаются текст запроса и параметры. Вне HTTP-запроса и записи
+ * прокси только передают вызовы дальше.
+ */
+public class TracingDataSource extends DelegatingDataSource {
+
+    public TracingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return traced(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return traced(super.getConnection(username, password));
+    }
+
+    private static Connection traced(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement) {
+                        // prepareStatement(sql, ...) - текст известен сразу, у createStatement - при execute(sql)
+                        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                        return traced((Statement) result, method.getReturnType(), sql);
+                    }
+                    return result;
+                });
+    }
+
+    // Statement, PreparedStatement или CallableStatement - прокси того же типа, что вернул драйвер
+    private static Object traced(Statement statement, Class<?> type, String sql) {
+        TracedStatement traced = new TracedStatement(statement, sql);
+        return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type}, traced::invoke);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static final class TracedStatement {
+        private final Statement statement;
+        private final String sql;
+        // Параметры по номерам (с 1) - только пока идет запись StatementCapture
+        private final List<Object> parameters = new ArrayList<>();
+        // Начало чтения результата последнего executeQuery, 0 - результат не читается
+        private long readingSince;
+
+        TracedStatement(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            StatementCapture capture = StatementCapture.current();
+            if (RequestTrace.current() == null && capture == null) {
+                return TracingDataSource.invoke(statement, method, args);
+            }
+            if (capture != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+            } else if ("clearParameters".equals(name)) {
+                parameters.clear();
+            }
+            if (name.startsWith("execute")) {
+                finishReading();
+                Object result;
+                long started = System.nanoTime();
+                try (RequestTrace.Span ignored = RequestTrace.span(RequestTrace.SQL)) {
+                    result = TracingDataSource.invoke(statement, method, args);
+                }
+                if (capture != null) {
+                    String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                    capture.add(text, new ArrayList<>(parameters), System.nanoTime() - started);
+                }
+                RequestTrace.statementExecuted();
+                if ("executeQuery".equals(name)) {
+                    readingSince = System.nanoTime();
+                }
+                return result;
+            }
+            if ("close".equals(name)) {
+                finishReading();
+            }
+            return TracingDataSource.invoke(statement, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, value);
+        }
+
+        private void finishReading() {
+            if (readingSince != 0) {
+                RequestTrace.record(RequestTrace.HYDRATE, System.nanoTime() - readingSince);
+                readingSince = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.game.audit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertFalse;
+import static org.springframework.test.util.AssertionErrors.assertNull;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class AuditLogTest {
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("audit-test");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    //test1
+    @Test
+    public void ringBufferKeepsOrderAndRejectsWhenFull() throws Exception {
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue("Свободный слот должен приниматься.", buffer.offer(record(i, AuditAction.UPDATE)));
+            }
+            assertFalse("Полный буфер не должен принимать запись.", buffer.offer(record(99, AuditAction.UPDATE)));
+            for (int i = 0; i < 4; i++) {
+                assertEquals("Записи должны выходить в порядке поступления.", (long) i, buffer.poll().getPlayerId());
+            }
+            assertNull("Пустой буфер ничего не отдает.", buffer.poll());
+        }
+    }
+
+    //test2
+    @Test
+    public void concurrentProducersLoseNothing() throws Exception {
+        AuditRingBuffer buffer = new AuditRingBuffer(1024);
+        int producers = 4;
+        int perProducer = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                long base = (long) p * perProducer;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(record(base + i, AuditAction.CREATE))) {
+                            Thread.yield();
+                        }
+                    }
+                }));
+            }
+            Set<Long> received = new HashSet<>();
+            while (received.size() < producers * perProducer) {
+                AuditRecord record = buffer.poll();
+                if (record != null) {
+                    assertTrue("Запись не должна приходить дважды.", received.add(record.getPlayerId()));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertNull("Лишних записей быть не должно.", buffer.poll());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //test3
+    @Test
+    public void segmentsRotateAndKeepOnlyRetained() throws Exception {
+        try (AuditSegments segments = new AuditSegments(directory, AuditSegments.MIN_SEGMENT_BYTES, 2)) {
+            for (int i = 0; i < 1000; i++) {
+                segments.append(record(i % 10, AuditAction.UPDATE));
+            }
+            assertEquals("Хранятся только последние сегменты.", 2, segments.segmentCount());
+            List<AuditRecord> history = segments.read(7);
+            assertFalse("Свежие записи должны читаться.", history.isEmpty());
+            assertTrue("Старые сегменты должны быть удалены.", history.size() < 100);
+            for (int i = 1; i < history.size(); i++) {
+                assertTrue("История должна идти в порядке записи.",
+                        history.get(i - 1).getTimestamp() < history.get(i).getTimestamp());
+            }
+        }
+    }
+
+    //test4
+    @Test
+    public void restartContinuesAfterTornRecord() throws Exception {
+        try (AuditSegments segments = new AuditSegments(directory, AuditSegments.MIN_SEGMENT_BYTES, 4)) {
+            segments.append(record(5, AuditAction.CREATE));
+            segments.append(record(5, AuditAction.BAN));
+        }
+        // Имитируем сбой посреди записи: длина есть, тела и CRC нет
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.getFileName().toString().endsWith(".log")).findFirst().get();
+        }
+        int end = 2 * (AuditRecord.HEADER_BYTES + "tester".length());
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(end);
+            file.writeInt(100);
+            file.writeInt(12345);
+            file.writeLong(1L);
+        }
+
+        try (AuditSegments segments = new AuditSegments(directory, AuditSegments.MIN_SEGMENT_BYTES, 4)) {
+            segments.append(record(5, AuditAction.DELETE));
+            List<AuditAction> actions = segments.read(5).stream().map(AuditRecord::getAction).collect(Collectors.toList());
+            assertEquals("Оборванная запись должна быть затерта, новые - дописаны после целых.",
+                    Arrays.asList(AuditAction.CREATE, AuditAction.BAN, AuditAction.DELETE), actions);
+        }
+    }
+
+    //test5
+    @Test
+    public void writerThreadPersistsRecords() throws Exception {
+        AuditLog auditLog = new AuditLog(true, directory.toString(), 1024, AuditSegments.MIN_SEGMENT_BYTES, 4,
+                FsyncPolicy.BATCH, 1000);
+        try {
+            auditLog.record(AuditAction.CREATE, 42);
+            auditLog.record(AuditAction.UPDATE, 43);
+            auditLog.record(AuditAction.DELETE, 42);
+            assertTrue("Писатель должен успеть перенести записи на диск.", auditLog.flush(5000));
+
+            List<AuditRecord> history = auditLog.history(42);
+            assertEquals("Должны прочитаться только записи игрока.", 2, history.size());
+            assertEquals("Вне HTTP-запроса действует system.", "system", history.get(0).getActor());
+            assertEquals("Неверное действие.", AuditAction.DELETE, history.get(1).getAction());
+        } finally {
+            auditLog.destroy();
+        }
+    }
+
+    //test6
+    @Test
+    public void indexedHistorySeesLaterAppendsAndClaimedClients() throws Exception {
+        try (AuditSegments segments = new AuditSegments(directory, AuditSegments.MIN_SEGMENT_BYTES, 4)) {
+            segments.append(record(3, AuditAction.CREATE));
+            segments.append(record(4, AuditAction.CREATE));
+            assertEquals("Первое чтение строит индекс сегмента.", 1, segments.read(3).size());
+            segments.append(new AuditRecord(clock++, 3, AuditAction.BAN, "10.0.0.1", "moderator"));
+            segments.append(record(4, AuditAction.UPDATE));
+
+            List<AuditRecord> history = segments.read(3);
+            assertEquals("Индекс должен дочитать записи, добавленные после прошлого запроса.", 2, history.size());
+            assertNull("Без заголовка заявленного клиента нет.", history.get(0).getClaimedClient());
+            assertEquals("Адрес и заявленный клиент хранятся раздельно.", "10.0.0.1", history.get(1).getActor());
+            assertEquals("Заявленный клиент должен читаться.", "moderator", history.get(1).getClaimedClient());
+            assertEquals("Записи чужого игрока не смешиваются.", 2, segments.read(4).size());
+        }
+    }
+
+    private static long clock = 1_000_000L;
+
+    private static AuditRecord record(long playerId, AuditAction action) {
+        return new AuditRecord(clock++, playerId, action, "tester");
+    }
+}
@@ -0,0 +1,67 @@
+package com.game.audit;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Замер цены AuditLog.record() на пути запроса и пропускной способности писателя.
+ * Политика fsync переключается аргументом (ALWAYS, BATCH, INTERVAL, NEVER):
+ *
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/classes:target/test-classes:$(cat target/cp.txt) com.game.audit.AuditOverheadBenchmark INTERVAL
+ */
+public class AuditOverheadBenchmark {
+    private static final int RECORDS = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        FsyncPolicy fsync = args.length > 0 ? FsyncPolicy.valueOf(args[0]) : FsyncPolicy.INTERVAL;
+        Path directory = Files.createTempDirectory("audit-bench");
+        AuditLog auditLog = new AuditLog(true, directory.toString(), 65536, 16 * 1024 * 1024, 8, fsync, 1000);
+        try {
+            // Прогрев JIT
+            run(auditLog, 1, RECORDS);
+            auditLog.flush(60_000);
+
+            for (int threads : new int[]{1, 4, 8}) {
+                long started = System.nanoTime();
+                long callNanos = run(auditLog, threads, RECORDS / threads);
+                boolean drained = auditLog.flush(60_000);
+                long total = System.nanoTime() - started;
+                System.out.printf("fsync=%s потоков=%d: record() %5d нс/вызов, до диска %8.0f записей/с%s%n",
+                        fsync, threads, callNanos / RECORDS, RECORDS * 1e9 / total, drained ? "" : " (не успел)");
+            }
+            System.out.println(auditLog.metrics());
+        } finally {
+            auditLog.destroy();
+        }
+    }
+
+    // Суммарное время внутри record() по всем потокам
+    private static long run(AuditLog auditLog, int threads, int perThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    long started = System.nanoTime();
+                    for (int i = 0; i < perThread; i++) {
+                        auditLog.record(AuditAction.UPDATE, i & 1023);
+                    }
+                    return System.nanoTime() - started;
+                }));
+            }
+            long sum = 0;
+            for (Future<Long> future : futures) {
+                sum += future.get();
+            }
+            return sum;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
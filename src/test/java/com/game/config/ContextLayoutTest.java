@@ -0,0 +1,44 @@
+package com.game.config;
+
+import com.game.controller.PlayerController;
+import com.game.service.PlayerService;
+import org.junit.Test;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertFalse;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ContextLayoutTest {
+
+    //test1
+    @Test
+    public void contextsDoNotOverlap() throws Exception {
+        WebApplicationContext web = StartupBenchmark.start(new MockServletContext());
+        try {
+            WebApplicationContext root = (WebApplicationContext) web.getParent();
+            assertEquals("Контроллеры не должны создаваться в корневом контексте.",
+                    0, root.getBeanNamesForType(PlayerController.class).length);
+            ConfigurableListableBeanFactory servletBeans = ((AnnotationConfigWebApplicationContext) web).getBeanFactory();
+            assertEquals("Сервисы не должны создаваться второй раз в контексте DispatcherServlet.",
+                    0, servletBeans.getBeanNamesForType(PlayerService.class).length);
+            assertFalse("Контекст DispatcherServlet не должен поднимать вторую JPA.",
+                    servletBeans.containsLocalBean("entityManagerFactory"));
+
+            MockMvcBuilders.webAppContextSetup(web).build()
+                    .perform(get("/rest/players/count"))
+                    .andExpect(status().isOk());
+            assertTrue("Время до первого запроса должно быть замерено.",
+                    root.getBean(StartupMetrics.class).getFirstRequestMillis() > 0);
+        } finally {
+            ((AnnotationConfigWebApplicationContext) web).close();
+            ((AnnotationConfigWebApplicationContext) web.getParent()).close();
+        }
+    }
+}
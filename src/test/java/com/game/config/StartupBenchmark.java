@@ -0,0 +1,62 @@
+package com.game.config;
+
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.lang.management.ManagementFactory;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/*
+ * Замер времени до первого ответа: корневой контекст и контекст DispatcherServlet
+ * поднимаются так же, как в MyWebAppInit, на встроенной H2 (профиль dev).
+ * Каждый замер - в отдельной JVM, режимы переключаются системными свойствами:
+ *
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *        -Drpg.startup.lazy-init=true -Drpg.startup.background-jpa=true com.game.config.StartupBenchmark
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        long mainStart = System.currentTimeMillis();
+
+        WebApplicationContext web = start(new MockServletContext());
+        long refreshed = System.currentTimeMillis();
+
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(web).build();
+        int status = mockMvc.perform(get("/rest/players/count")).andReturn().getResponse().getStatus();
+        long firstResponse = System.currentTimeMillis();
+
+        System.out.printf("lazy-init=%s background-jpa=%s%n",
+                System.getProperty("rpg.startup.lazy-init", "false"), System.getProperty("rpg.startup.background-jpa", "false"));
+        System.out.printf("JVM до main:          %6d мс%n", mainStart - jvmStart);
+        System.out.printf("подъем контекстов:    %6d мс%n", refreshed - mainStart);
+        System.out.printf("первый запрос (%d):   %6d мс%n", status, firstResponse - refreshed);
+        System.out.printf("время до ответа:      %6d мс от старта JVM%n", firstResponse - jvmStart);
+
+        ((AnnotationConfigWebApplicationContext) web).close();
+        ((AnnotationConfigWebApplicationContext) web.getParent()).close();
+    }
+
+    // Та же раскладка, что в MyWebAppInit: AppConfig в корневом контексте, WebConfig - в дочернем
+    static WebApplicationContext start(MockServletContext servletContext) {
+        AnnotationConfigWebApplicationContext root = new AnnotationConfigWebApplicationContext();
+        root.register(AppConfig.class);
+        root.setServletContext(servletContext);
+        root.getEnvironment().setActiveProfiles("dev");
+        root.refresh();
+        servletContext.setAttribute(WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE, root);
+
+        AnnotationConfigWebApplicationContext web = new AnnotationConfigWebApplicationContext();
+        web.register(WebConfig.class);
+        web.setParent(root);
+        web.setServletContext(servletContext);
+        web.refresh();
+        return web;
+    }
+}
@@ -3,24 +3,37 @@ package com.game.controller;
 import com.game.config.AppConfig;
 import com.game.config.MyWebAppInit;
 import com.game.config.WebConfig;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Player;
+import com.game.logstore.LogStructuredPlayerRepository;
+import com.game.service.PlayerChangePublisher;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ActiveProfilesResolver;
 import org.springframework.test.context.ContextConfiguration;
-import org.springframework.test.context.jdbc.Sql;
-import org.springframework.test.context.jdbc.SqlConfig;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.context.WebApplicationContext;
 
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
 @RunWith(SpringJUnit4ClassRunner.class)
-@ActiveProfiles("dev")
+// dev - H2 из test.sql, mvn -P logstore test гоняет те же тесты на хранилище без базы
+@ActiveProfiles(resolver = AbstractTest.TestProfile.class)
 @ContextConfiguration(classes = {AppConfig.class, MyWebAppInit.class, WebConfig.class})
 @WebAppConfiguration
-@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
 public abstract class AbstractTest {
 
     WebApplicationContext context;
@@ -33,6 +46,9 @@ public abstract class AbstractTest {
 
     @Before
     public void setup() {
+        resetPlayers();
+        // Данные пересозданы в обход PlayerService - перестраиваем индексы в памяти
+        context.getBean(PlayerChangePublisher.class).reload();
         mockMvc = MockMvcBuilders
                 .webAppContextSetup(context)
                 .addFilter(((request, response, chain) -> {
@@ -41,4 +57,40 @@ public abstract class AbstractTest {
                 }))
                 .build();
     }
+
+    private void resetPlayers() {
+        if (context.containsBean("dataSource")) {
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("test.sql"));
+            populator.setSqlScriptEncoding("UTF-8");
+            populator.execute(context.getBean("dataSource", DataSource.class));
+            return;
+        }
+        // Без базы - те же 40 игроков, что в test.sql, и нумерация новых снова с 41
+        LogStructuredPlayerRepository store = context.getBean(LogStructuredPlayerRepository.class);
+        store.truncate();
+        List<Player> players = new ArrayList<>();
+        for (PlayerInfoTest info : new TestsHelper().getAllPlayers()) {
+            Player player = new Player();
+            player.setId(info.id);
+            player.setName(info.name);
+            player.setTitle(info.title);
+            player.setRace(info.race);
+            player.setProfession(info.profession);
+            player.setBirthday(new Date(info.birthday));
+            player.setBanned(info.banned);
+            player.setExperience(info.experience);
+            player.setLevel(info.level);
+            player.setUntilNextLevel(info.untilNextLevel);
+            players.add(player);
+        }
+        // Одной транзакцией - одна запись журнала
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).execute(status -> store.saveAll(players));
+    }
+
+    public static class TestProfile implements ActiveProfilesResolver {
+        @Override
+        public String[] resolve(Class<?> testClass) {
+            return new String[]{System.getProperty("rpg.test.profile", "dev")};
+        }
+    }
 }
@@ -0,0 +1,119 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.service.ExperienceBuffer;
+import com.game.service.PlayerArchive;
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.sql.DataSource;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertFalse;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Перенос по расписанию выключен - тесты запускают его сами; маленькие пачки, чтобы проход шел в несколько
+@TestPropertySource(properties = {"rpg.archive.interval-millis=0", "rpg.archive.inactive-days=365",
+        "rpg.archive.batch-size=2", "rpg.archive.pause-millis=0"})
+public class ArchiveTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void inactiveAndLongBannedPlayersMoveToArchive() throws Exception {
+        Assume.assumeTrue("Архив есть только у хранилища в базе", context.containsBean("dataSource"));
+        JdbcTemplate jdbc = new JdbcTemplate(context.getBean("dataSource", DataSource.class));
+        // 1 и 2 давно неактивны, 3 забанен больше месяца, 6 не забанен и неактивен всего месяц
+        jdbc.update("UPDATE player SET updated = DATEADD('DAY', -400, updated) WHERE id IN (1, 2)");
+        jdbc.update("UPDATE player SET updated = DATEADD('DAY', -40, updated) WHERE id IN (3, 6)");
+        // Счетчики архива общие для тестов контекста
+        long batchesBefore = (Long) context.getBean(PlayerArchive.class).metrics().get("batches");
+
+        assertEquals("В архив уходят только неактивные и давно забаненные.", 3L,
+                context.getBean(PlayerArchive.class).archive());
+
+        JsonNode archived = mapper.readTree(mockMvc.perform(get("/rest/players/1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertEquals("Архивный игрок читается по id как раньше.", "Ниус", archived.get("name").asText());
+        mockMvc.perform(get("/rest/players/6")).andExpect(status().isOk());
+        assertEquals("Архивные игроки не считаются по умолчанию.", "37",
+                mockMvc.perform(get("/rest/players/count")).andReturn().getResponse().getContentAsString());
+        assertEquals("С includeArchived считаются обе части.", "40",
+                mockMvc.perform(get("/rest/players/count").param("includeArchived", "true"))
+                        .andReturn().getResponse().getContentAsString());
+
+        JsonNode all = list("includeArchived", "true", "pageSize", "100");
+        assertEquals("С includeArchived в списке обе части.", 40, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals("Части сливаются в общем порядке.", i + 1L, all.get(i).get("id").asLong());
+        }
+        JsonNode page = list("includeArchived", "true", "pageSize", "2", "pageNumber", "0", "fields", "id,name");
+        assertEquals("Проекция работает и для архива.", "Ниус", page.get(0).get("name").asText());
+        assertFalse("В проекции только запрошенные поля.", page.get(0).has("level"));
+        assertEquals("Фильтры применяются и к архиву.", 1,
+                list("includeArchived", "true", "name", "Ниус").size());
+
+        String restored = mockMvc.perform(post("/rest/players/1/restore"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Восстановленный игрок сохраняет свои данные.", "Ниус", mapper.readTree(restored).get("name").asText());
+        mockMvc.perform(post("/rest/players/1/restore")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/rest/players/1")).andExpect(status().isOk());
+
+        JsonNode metrics = mapper.readTree(mockMvc.perform(get("/rest/admin/metrics"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("archive");
+        assertEquals("В архиве остаются двое.", 2L, metrics.get("archivedPlayers").asLong());
+        assertEquals("Перенос шел пачками по batch-size.", 2L, metrics.get("batches").asLong() - batchesBefore);
+        assertEquals("Восстановление должно попасть в метрики.", 1L, metrics.get("restored").asLong());
+    }
+
+    //test2
+    @Test
+    public void restoreOfUnknownPlayerIsNotFound() throws Exception {
+        mockMvc.perform(post("/rest/players/1/restore")).andExpect(status().isNotFound());
+        mockMvc.perform(post("/rest/players/0/restore")).andExpect(status().isBadRequest());
+        assertEquals("Пока архив пуст, includeArchived отдает только горячих игроков.", "40",
+                mockMvc.perform(get("/rest/players/count").param("includeArchived", "true"))
+                        .andReturn().getResponse().getContentAsString());
+    }
+
+    //test3
+    @Test
+    public void pendingExperienceKeepsPlayerHot() throws Exception {
+        Assume.assumeTrue("Архив есть только у хранилища в базе", context.containsBean("dataSource"));
+        JdbcTemplate jdbc = new JdbcTemplate(context.getBean("dataSource", DataSource.class));
+        jdbc.update("UPDATE player SET updated = DATEADD('DAY', -400, updated) WHERE id IN (1, 2)");
+        ExperienceBuffer buffer = context.getBean(ExperienceBuffer.class);
+        assertTrue("Начисление должно принять известного игрока.", buffer.add(1, 500));
+
+        assertEquals("Игрок с начислениями в буфере в архив не уходит.", 1L,
+                context.getBean(PlayerArchive.class).archive());
+        JsonNode player = mapper.readTree(mockMvc.perform(get("/rest/players/1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertEquals("Начисление не должно потеряться.", 58347 + 500, player.get("experience").asInt());
+        assertEquals("Игрок 2 ушел в архив.", "39",
+                mockMvc.perform(get("/rest/players/count")).andReturn().getResponse().getContentAsString());
+        mockMvc.perform(get("/rest/players/2")).andExpect(status().isOk());
+    }
+
+    private JsonNode list(String... params) throws Exception {
+        MockHttpServletRequestBuilder request = get("/rest/players");
+        for (int i = 0; i < params.length; i += 2) {
+            request.param(params[i], params[i + 1]);
+        }
+        return mapper.readTree(mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+}
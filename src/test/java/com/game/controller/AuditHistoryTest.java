@@ -0,0 +1,93 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.audit.AuditLog;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class AuditHistoryTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void writesAreAuditedWithClient() throws Exception {
+        // Журнал переживает перезагрузку тестовых данных, поэтому смотрим только свежие записи
+        long start = System.currentTimeMillis();
+        String created = mockMvc.perform(post("/rest/players/").with(from("10.0.0.1"))
+                .header("X-Client-Id", "moderator-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Аудитор\",\"title\":\"Проверяющий\",\"race\":\"HUMAN\",\"profession\":\"CLERIC\"," +
+                        "\"birthday\":988625750000,\"banned\":false,\"experience\":1000}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long id = mapper.readTree(created).get("id").asLong();
+
+        mockMvc.perform(post("/rest/players/" + id).with(from("10.0.0.2")).header("X-Client-Id", "moderator-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"banned\":true}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/rest/players/" + id).with(from("10.0.0.2")).header("X-Client-Id", "moderator-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Снова в строю\",\"banned\":false}"))
+                .andExpect(status().isOk());
+        // Невалидное изменение откатывается и в аудит не попадает
+        mockMvc.perform(post("/rest/players/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Слишком длинное имя\",\"banned\":false}"))
+                .andExpect(status().isBadRequest());
+        // Чужое имя в заголовке не меняет того, кто записан в actor
+        mockMvc.perform(delete("/rest/players/" + id).with(from("10.0.0.3")).header("X-Client-Id", "moderator-2"))
+                .andExpect(status().isOk());
+
+        List<JsonNode> history = new ArrayList<>();
+        for (JsonNode entry : history(id)) {
+            if (entry.get("timestamp").asLong() >= start) {
+                history.add(entry);
+            }
+        }
+        List<String> actions = new ArrayList<>();
+        for (JsonNode entry : history) {
+            actions.add(entry.get("action").asText());
+        }
+        assertEquals("Неверная история изменений.", Arrays.asList("CREATE", "BAN", "UNBAN", "DELETE"), actions);
+        assertEquals("Должен сохраняться адрес клиента, сделавшего изменение.", "10.0.0.2", history.get(1).get("actor").asText());
+        assertEquals("Заявленный клиент хранится отдельно.", "moderator-2", history.get(1).get("claimedClient").asText());
+        assertEquals("Заголовок не подменяет автора удаления.", "10.0.0.3", history.get(3).get("actor").asText());
+    }
+
+    //test2
+    @Test
+    public void historyOfUnknownPlayerIsEmpty() throws Exception {
+        assertEquals("У неизвестного игрока нет истории.", 0, history(987654).size());
+        mockMvc.perform(get("/rest/players/0/history")).andExpect(status().isBadRequest());
+    }
+
+    private static RequestPostProcessor from(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+
+    private JsonNode history(long id) throws Exception {
+        assertTrue("Аудит должен успеть записаться.", context.getBean(AuditLog.class).flush(5000));
+        String content = mockMvc.perform(get("/rest/players/" + id + "/history"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(content);
+    }
+}
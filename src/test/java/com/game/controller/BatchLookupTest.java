@@ -0,0 +1,73 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BatchLookupTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TypeReference<List<PlayerInfoTest>> typeReference = new TypeReference<List<PlayerInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void getByIdsKeepsRequestOrderAndReportsMissing() throws Exception {
+        String content = mockMvc.perform(get("/rest/players?ids=14,999,3,14"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode result = mapper.readTree(content);
+        List<PlayerInfoTest> actual = mapper.convertValue(result.get("players"), typeReference);
+        List<PlayerInfoTest> expected = Arrays.asList(testsHelper.getPlayerInfosById(14), testsHelper.getPlayerInfosById(3));
+        assertEquals("Игроки должны возвращаться в порядке запроса.", expected, actual);
+        assertEquals("Ненайденные id должны попадать в missing.", Collections.singletonList(999L),
+                mapper.convertValue(result.get("missing"), new TypeReference<List<Long>>() {
+                }));
+    }
+
+    //test2
+    @Test
+    public void postLookupReturnsAllPlayers() throws Exception {
+        String ids = LongStream.rangeClosed(1, 40).boxed().map(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+        String content = mockMvc.perform(post("/rest/players/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(ids))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<PlayerInfoTest> actual = mapper.convertValue(mapper.readTree(content).get("players"), typeReference);
+        assertEquals("Пакетный поиск должен вернуть всех игроков.", testsHelper.getAllPlayers(), actual);
+    }
+
+    //test3
+    @Test
+    public void lookupWithInvalidIdsIsBadRequest() throws Exception {
+        mockMvc.perform(post("/rest/players/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1, 0]"))
+                .andExpect(status().isBadRequest());
+
+        String tooMany = LongStream.rangeClosed(1, 5001).boxed().map(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+        mockMvc.perform(post("/rest/players/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(tooMany))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,178 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Player;
+import com.game.repository.PlayerRepository;
+import com.game.service.ExperienceBuffer;
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ExperienceGrantTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void pendingGrantsAreVisibleAndFlushed() throws Exception {
+        PlayerInfoTest player = testsHelper.getPlayerInfosById(7);
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/rest/players/7/experience")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"delta\": 1000}"))
+                    .andExpect(status().isAccepted());
+        }
+        int experience = player.experience + 3000;
+
+        String content = mockMvc.perform(get("/rest/players/7"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode actual = mapper.readTree(content);
+        assertEquals("Чтение должно учитывать начисления в буфере.", experience, actual.get("experience").asInt());
+        assertEquals("Уровень должен пересчитываться с учетом буфера.", level(experience), actual.get("level").asInt());
+
+        context.getBean(ExperienceBuffer.class).flush();
+        Player stored = stored(7);
+        assertEquals("Опыт должен быть записан в базу.", experience, stored.getExperience().intValue());
+        assertEquals("Уровень должен быть записан в базу.", level(experience), stored.getLevel().intValue());
+        assertEquals("До следующего уровня должно быть пересчитано.",
+                50 * (level(experience) + 1) * (level(experience) + 2) - experience, stored.getUntilNextLevel().intValue());
+    }
+
+    //test2
+    @Test
+    public void concurrentGrantsAreNotLost() throws Exception {
+        ExperienceBuffer buffer = context.getBean(ExperienceBuffer.class);
+        int threads = 8;
+        int grants = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < grants; i++) {
+                        buffer.add(12, 1);
+                    }
+                }));
+            }
+            // Сбросы идут параллельно с начислениями
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    buffer.flush();
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        buffer.flush();
+
+        int expected = testsHelper.getPlayerInfosById(12).experience + threads * grants;
+        assertEquals("Ни одно начисление не должно потеряться.", expected,
+                stored(12).getExperience().intValue());
+    }
+
+    //test3
+    @Test
+    public void invalidGrantsAreRejected() throws Exception {
+        for (String body : new String[]{"{\"delta\": 0}", "{\"delta\": -5}", "{}", "{\"delta\": 10000001}"}) {
+            mockMvc.perform(post("/rest/players/1/experience")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(body))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(post("/rest/players/999/experience")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": 10}"))
+                .andExpect(status().isNotFound());
+    }
+
+    //test4
+    @Test
+    public void pendingGrantsAreVisibleInProjections() throws Exception {
+        mockMvc.perform(post("/rest/players/7/experience")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": 250000}"))
+                .andExpect(status().isAccepted());
+        JsonNode full = mapper.readTree(mockMvc.perform(get("/rest/players/7"))
+                .andReturn().getResponse().getContentAsString());
+        // Без id и опыта в fields - они выбираются скрыто; выдача по id, седьмая строка - игрок 7
+        JsonNode view = mapper.readTree(mockMvc.perform(get("/rest/players")
+                        .param("fields", "name,level,untilNextLevel").param("pageSize", "40"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get(6);
+        assertEquals("Проекция не должна показывать лишние колонки.", 3, view.size());
+        assertEquals("Уровень в проекции должен учитывать буфер.", full.get("level").asInt(), view.get("level").asInt());
+        assertEquals("До следующего уровня в проекции должно учитывать буфер.",
+                full.get("untilNextLevel").asInt(), view.get("untilNextLevel").asInt());
+        // Буфер общий для всех тестов контекста - не оставляем начисления следующим
+        context.getBean(ExperienceBuffer.class).flush();
+    }
+
+    //test5
+    @Test
+    public void flushDoesNotOverwriteConcurrentEdit() throws Exception {
+        Assume.assumeTrue("Блокировки строк есть только у хранилища в базе", context.containsBean("dataSource"));
+        ExperienceBuffer buffer = context.getBean(ExperienceBuffer.class);
+        PlayerRepository repository = context.getBean(PlayerRepository.class);
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        int experience = stored(7).getExperience() + 1000;
+        buffer.add(7, 1000);
+
+        CountDownLatch edited = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Правка держит строку, пока сброс уже идет, и коммитится второй
+            Future<?> edit = executor.submit(() -> transaction.execute(status -> {
+                Player player = repository.findById(7L).get();
+                player.setName("Правка");
+                repository.saveAndFlush(player);
+                edited.countDown();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            edited.await();
+            buffer.flush();
+            edit.get();
+        } finally {
+            executor.shutdown();
+        }
+        Player stored = stored(7);
+        assertEquals("Сброс опыта не должен затирать правку игрока.", "Правка", stored.getName());
+        assertEquals("Начисление должно записаться поверх правки.", experience, stored.getExperience().intValue());
+        assertEquals("Уровень должен соответствовать опыту.", level(experience), stored.getLevel().intValue());
+    }
+
+    // Прямо из репозитория, мимо буфера опыта в PlayerService
+    private Player stored(long id) {
+        return context.getBean(PlayerRepository.class).findById(id).get();
+    }
+
+    private static int level(int experience) {
+        return (int) ((Math.sqrt(2500 + 200 * experience) - 50) / 100);
+    }
+}
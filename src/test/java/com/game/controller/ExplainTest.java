@@ -0,0 +1,47 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = "rpg.admin.token=test-token")
+public class ExplainTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void explainRequiresAdminToken() throws Exception {
+        Assume.assumeTrue("Разбор есть только у хранилища в базе", context.containsBean("dataSource"));
+        mockMvc.perform(get("/rest/admin/explain")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/rest/admin/explain").header("X-Admin-Token", "wrong")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/rest/admin/explain").header("X-Admin-Token", "test-token").param("fields", "nope"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test2
+    @Test
+    public void explainReturnsSqlPlanAndRowsExamined() throws Exception {
+        Assume.assumeTrue("Разбор есть только у хранилища в базе", context.containsBean("dataSource"));
+        String body = mockMvc.perform(get("/rest/admin/explain").header("X-Admin-Token", "test-token")
+                        .param("race", "HUMAN").param("minLevel", "5").param("order", "LEVEL").param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode explain = new ObjectMapper().readTree(body);
+        assertEquals("Разбор возвращает число строк выдачи.", 2, explain.get("rowsReturned").asInt());
+        JsonNode statements = explain.get("statements");
+        assertTrue("Должен быть хотя бы один SQL-запрос: " + body, statements.size() >= 1);
+
+        JsonNode select = statements.get(0);
+        assertTrue("Запрос читает таблицу player: " + body, select.get("sql").asText().toLowerCase().contains("player"));
+        assertTrue("Разбирается запрос с сортировкой: " + body, select.get("sql").asText().toLowerCase().contains("order by"));
+        assertTrue("Фильтры передаются параметрами: " + body, select.get("parameters").size() >= 2);
+        assertTrue("План не должен быть пустым: " + body, select.get("plan").size() >= 1);
+        assertTrue("Прочитано не меньше строк, чем возвращено: " + body, select.get("rowsExamined").asLong() >= 2);
+    }
+}
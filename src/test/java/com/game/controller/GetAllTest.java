@@ -11,7 +11,11 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.springframework.test.util.AssertionErrors.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -172,4 +176,30 @@ public class GetAllTest extends AbstractTest {
 
         assertEquals("Возвращается не правильный результат при запросе GET /rest/players с параметрами after, before, minExperience и maxExperience.", expected, actual);
     }
-}
\ No newline at end of file
+
+    //test9
+    @Test
+    public void getAllOrderedByEveryPlayerOrder() throws Exception {
+        Map<PlayerOrder, Comparator<PlayerInfoTest>> orders = new LinkedHashMap<>();
+        orders.put(PlayerOrder.ID, Comparator.comparing(info -> info.id));
+        orders.put(PlayerOrder.NAME, Comparator.comparing(info -> info.name));
+        orders.put(PlayerOrder.EXPERIENCE, Comparator.comparing(info -> info.experience));
+        orders.put(PlayerOrder.BIRTHDAY, Comparator.comparing(info -> info.birthday));
+        orders.put(PlayerOrder.LEVEL, Comparator.comparing(info -> info.level));
+        for (Map.Entry<PlayerOrder, Comparator<PlayerInfoTest>> order : orders.entrySet()) {
+            String contentAsString = mockMvc.perform(get("/rest/players")
+                            .param("order", order.getKey().name()).param("pageNumber", "1").param("pageSize", "7"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            List<PlayerInfoTest> actual = mapper.readValue(contentAsString, typeReference);
+            // Равные значения идут по id
+            List<PlayerInfoTest> sorted = testsHelper.getAllPlayers().stream()
+                    .sorted(order.getValue().thenComparing(info -> info.id))
+                    .collect(Collectors.toList());
+            List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByPage(1, 7, sorted);
+            assertEquals("Возвращается не правильный результат при запросе GET /rest/players с параметром order="
+                    + order.getKey() + ".", expected, actual);
+        }
+    }
+}
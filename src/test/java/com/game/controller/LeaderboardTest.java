@@ -0,0 +1,90 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class LeaderboardTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void topByExperienceMatchesSortedPlayers() throws Exception {
+        String content = mockMvc.perform(get("/rest/players/leaderboard?by=experience&top=15"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<Long> expected = testsHelper.getAllPlayers().stream()
+                .sorted(Comparator.comparing((PlayerInfoTest p) -> p.experience).reversed().thenComparing(p -> p.id))
+                .limit(15)
+                .map(p -> p.id)
+                .collect(Collectors.toList());
+        List<Long> actual = new ArrayList<>();
+        for (JsonNode entry : mapper.readTree(content)) {
+            actual.add(entry.get("id").asLong());
+        }
+        assertEquals("Топ должен быть отсортирован по опыту по убыванию, затем по id.", expected, actual);
+    }
+
+    //test2
+    @Test
+    public void rankCountsPlayersWithMoreExperience() throws Exception {
+        List<PlayerInfoTest> players = testsHelper.getAllPlayers();
+        for (PlayerInfoTest player : players) {
+            String content = mockMvc.perform(get("/rest/players/" + player.id + "/rank"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            long expected = 1 + players.stream().filter(p -> p.experience > player.experience).count();
+            JsonNode rank = mapper.readTree(content);
+            assertEquals("Неверное место игрока " + player.id, expected, rank.get("rank").asLong());
+            assertEquals("Неверное общее число игроков.", (long) players.size(), rank.get("total").asLong());
+        }
+    }
+
+    //test3
+    @Test
+    public void leaderboardFollowsCreateAndDelete() throws Exception {
+        String created = mockMvc.perform(post("/rest/players/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Лидер\",\"title\":\"Новый\",\"race\":\"HUMAN\",\"profession\":\"WARRIOR\"," +
+                        "\"birthday\":988625750000,\"banned\":false,\"experience\":9999999}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long id = mapper.readTree(created).get("id").asLong();
+
+        String top = mockMvc.perform(get("/rest/players/leaderboard?top=1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Новый игрок должен стать первым.", id, mapper.readTree(top).get(0).get("id").asLong());
+
+        mockMvc.perform(delete("/rest/players/" + id)).andExpect(status().isOk());
+        mockMvc.perform(get("/rest/players/" + id + "/rank")).andExpect(status().isNotFound());
+    }
+
+    //test4
+    @Test
+    public void invalidParametersAreBadRequest() throws Exception {
+        mockMvc.perform(get("/rest/players/leaderboard?by=gold")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players/leaderboard?top=0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players/leaderboard?top=1001")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players/0/rank")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players/999/rank")).andExpect(status().isNotFound());
+    }
+}
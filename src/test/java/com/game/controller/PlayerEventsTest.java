@@ -0,0 +1,80 @@
+package com.game.controller;
+
+import com.game.service.PlayerEventStream;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class PlayerEventsTest extends AbstractTest {
+
+    @After
+    public void closeSubscribers() {
+        context.getBean(PlayerEventStream.class).destroySubscribers();
+    }
+
+    //test1
+    @Test
+    public void deleteIsStreamed() throws Exception {
+        MockHttpServletResponse stream = subscribe();
+
+        mockMvc.perform(delete("/rest/players/5")).andExpect(status().isOk());
+
+        assertTrue("Подписчик должен получить событие удаления.",
+                await(stream, "event:player-deleted\ndata:{\"id\":5}"));
+    }
+
+    //test2
+    @Test
+    public void updateIsStreamedWithPlayer() throws Exception {
+        MockHttpServletResponse stream = subscribe();
+
+        mockMvc.perform(post("/rest/players/3")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Обновлен\"}"))
+                .andExpect(status().isOk());
+
+        assertTrue("Подписчик должен получить измененного игрока.", await(stream, "event:player-saved"));
+        assertTrue("Событие должно содержать новые данные.", await(stream, "\"name\":\"Обновлен\""));
+    }
+
+    //test3
+    @Test
+    public void invalidUpdateIsNotStreamed() throws Exception {
+        MockHttpServletResponse stream = subscribe();
+
+        mockMvc.perform(post("/rest/players/3")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"experience\":-1}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/rest/players/4")).andExpect(status().isOk());
+
+        assertTrue("Подписчик должен получить следующее событие.", await(stream, "event:player-deleted"));
+        assertTrue("Отклоненное изменение не должно попадать в поток.",
+                !stream.getContentAsString().contains("player-saved"));
+    }
+
+    private MockHttpServletResponse subscribe() throws Exception {
+        return mockMvc.perform(get("/rest/players/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+    }
+
+    private static boolean await(MockHttpServletResponse stream, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            if (stream.getContentAsString().contains(expected)) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+}
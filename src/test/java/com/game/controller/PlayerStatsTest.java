@@ -0,0 +1,138 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerStatistics;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertFalse;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class PlayerStatsTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void totalsMatchAllPlayers() throws Exception {
+        JsonNode total = stats("").get("total");
+        List<PlayerInfoTest> players = testsHelper.getAllPlayers();
+
+        assertEquals("Неверное количество игроков.", (long) players.size(), total.get("count").asLong());
+        assertEquals("Неверная сумма опыта.", players.stream().mapToLong(p -> p.experience).sum(), total.get("sumExperience").asLong());
+        assertEquals("Неверный минимальный опыт.", players.stream().mapToInt(p -> p.experience).min().getAsInt(), total.get("minExperience").asInt());
+        assertEquals("Неверный максимальный опыт.", players.stream().mapToInt(p -> p.experience).max().getAsInt(), total.get("maxExperience").asInt());
+
+        int histogramSum = 0;
+        for (JsonNode bucket : total.get("levelHistogram")) {
+            histogramSum += bucket.asInt();
+        }
+        assertEquals("Гистограмма уровней должна покрывать всех игроков.", players.size(), histogramSum);
+    }
+
+    //test2
+    @Test
+    public void groupFilterMatchesPlayers() throws Exception {
+        JsonNode result = stats("?race=ORC&banned=false");
+        List<PlayerInfoTest> expected = testsHelper.getAllPlayers().stream()
+                .filter(p -> p.race == Race.ORC && !p.banned)
+                .collect(Collectors.toList());
+
+        assertEquals("Неверное количество орков без бана.", (long) expected.size(), result.get("total").get("count").asLong());
+        for (JsonNode group : result.get("groups")) {
+            assertEquals("В выборку попала чужая раса.", "ORC", group.get("race").asText());
+            Profession profession = Profession.valueOf(group.get("profession").asText());
+            long count = expected.stream().filter(p -> p.profession == profession).count();
+            assertEquals("Неверное количество в группе " + profession, count, group.get("count").asLong());
+        }
+    }
+
+    //test3
+    @Test
+    public void statsFollowWrites() throws Exception {
+        long before = stats("?race=GIANT&profession=DRUID&banned=true").get("total").get("count").asLong();
+
+        mockMvc.perform(post("/rest/players/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Великан\",\"title\":\"Друид\",\"race\":\"GIANT\",\"profession\":\"DRUID\"," +
+                        "\"birthday\":988625750000,\"banned\":true,\"experience\":1000}"))
+                .andExpect(status().isOk());
+
+        long after = stats("?race=GIANT&profession=DRUID&banned=true").get("total").get("count").asLong();
+        assertEquals("Новый игрок должен попасть в свою группу.", before + 1, after);
+    }
+
+    //test4
+    @Test
+    public void reconcileRebuildsAfterDirectDatabaseChange() throws Exception {
+        PlayerStatistics statistics = context.getBean(PlayerStatistics.class);
+        assertFalse("Без изменений в базе сверка не должна ничего перестраивать.", statistics.reconcile());
+
+        // Репозиторий напрямую, мимо PlayerService и уведомлений об изменениях
+        context.getBean(PlayerRepository.class).deleteById(1L);
+        assertTrue("Сверка должна заметить расхождение с базой.", statistics.reconcile());
+
+        long expected = testsHelper.getAllPlayers().size() - 1;
+        assertEquals("После сверки статистика должна совпадать с базой.", expected, stats("").get("total").get("count").asLong());
+        assertFalse("Перестроенная статистика совпадает с базой и при следующей сверке.", statistics.reconcile());
+
+        // Уровень меняет только гистограмму - сверка должна заметить и это
+        PlayerRepository repository = context.getBean(PlayerRepository.class);
+        Player player = repository.findById(7L).orElseThrow(IllegalStateException::new);
+        int before = stats("").get("total").get("levelHistogram").get(44).asInt();
+        player.setLevel(440);
+        repository.save(player);
+        assertTrue("Сверка должна заметить расхождение гистограммы.", statistics.reconcile());
+        JsonNode total = stats("").get("total");
+        assertEquals("Гистограмма уровней перестраивается по базе.", before + 1, total.get("levelHistogram").get(44).asInt());
+        assertEquals("Количество не меняется.", expected, total.get("count").asLong());
+    }
+
+    //test5
+    @Test
+    public void unknownRaceIsBadRequest() throws Exception {
+        mockMvc.perform(get("/rest/players/stats?race=DWARF_LORD")).andExpect(status().isBadRequest());
+    }
+
+    //test6
+    @Test
+    public void extremesFollowRemovalOfExtremePlayers() throws Exception {
+        String group = "?race=ELF&profession=SORCERER&banned=false";
+        assertEquals("Неверный максимум группы.", 163743, stats(group).get("total").get("maxExperience").asInt());
+
+        // Уходит игрок с максимальным опытом, затем следующему снижают опыт ниже всех
+        mockMvc.perform(delete("/rest/players/6")).andExpect(status().isOk());
+        assertEquals("Максимум должен пересчитаться после удаления.", 152996, stats(group).get("total").get("maxExperience").asInt());
+        mockMvc.perform(post("/rest/players/22")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"experience\":100}"))
+                .andExpect(status().isOk());
+        JsonNode total = stats(group).get("total");
+        assertEquals("Максимум должен пересчитаться после снижения опыта.", 91676, total.get("maxExperience").asInt());
+        assertEquals("Минимум должен учесть сниженный опыт.", 100, total.get("minExperience").asInt());
+        assertEquals("Общий максимум складывается из групп.", 174414, stats("").get("total").get("maxExperience").asInt());
+    }
+
+    private JsonNode stats(String query) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/stats" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(content);
+    }
+}
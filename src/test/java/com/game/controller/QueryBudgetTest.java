@@ -0,0 +1,133 @@
+package com.game.controller;
+
+import com.game.controller.utils.SqlStatements;
+import com.game.controller.utils.TestsHelper;
+import com.game.service.PlayerArchive;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Бюджеты SQL-запросов на вызов каждого эндпоинта PlayerController. Увеличение бюджета - осознанное решение в ревью
+public class QueryBudgetTest extends AbstractTest {
+
+    @Before
+    public void onlyWithDatabase() {
+        Assume.assumeTrue("SQL-запросы есть только у хранилища в базе", context.containsBean("dataSource"));
+    }
+
+    //test1
+    @Test
+    public void getPlayersBudget() throws Exception {
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players").param("pageSize", "5"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players", 1, 0, 0, 0);
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players").param("name", "ар").param("minLevel", "5"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players?name", 1, 0, 0, 0);
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players").param("fields", "id,name,level"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players?fields", 1, 0, 0, 0);
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players").param("includeArchived", "true"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players?includeArchived", 2, 0, 0, 0);
+    }
+
+    //test2
+    @Test
+    public void lookupBudget() throws Exception {
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players").param("ids", "1,2,3,4,5,6,7,8,9,10"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players?ids", 1, 0, 0, 0);
+        SqlStatements.of(() -> mockMvc.perform(post("/rest/players/lookup")
+                .contentType(MediaType.APPLICATION_JSON).content("[1, 2, 3, 100500]"))
+                .andExpect(status().isOk()))
+                .assertBudget("POST /rest/players/lookup", 1, 0, 0, 0);
+    }
+
+    //test3
+    @Test
+    public void inMemoryReadsBudget() throws Exception {
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players/leaderboard").param("top", "15"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players/leaderboard", 0, 0, 0, 0);
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players/7/rank"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players/{id}/rank", 0, 0, 0, 0);
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players/suggest").param("prefix", "А"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players/suggest", 0, 0, 0, 0);
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players/stats"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players/stats", 0, 0, 0, 0);
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players/7/history"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players/{id}/history", 0, 0, 0, 0);
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players/events"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players/events", 0, 0, 0, 0);
+    }
+
+    //test4
+    @Test
+    public void countBudget() throws Exception {
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players/count").param("race", "HUMAN"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players/count", 1, 0, 0, 0);
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players/count").param("includeArchived", "true"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players/count?includeArchived", 2, 0, 0, 0);
+    }
+
+    //test5
+    @Test
+    public void getPlayerBudget() throws Exception {
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players/7"))
+                .andExpect(status().isOk()))
+                .assertBudget("GET /rest/players/{id}", 1, 0, 0, 0);
+        // Промах по горячей таблице проверяется и в архиве
+        SqlStatements.of(() -> mockMvc.perform(get("/rest/players/100500"))
+                .andExpect(status().isNotFound()))
+                .assertBudget("GET /rest/players/{id} 404", 2, 0, 0, 0);
+    }
+
+    //test6
+    @Test
+    public void writesBudget() throws Exception {
+        SqlStatements.of(() -> mockMvc.perform(post("/rest/players")
+                .contentType(MediaType.APPLICATION_JSON).content(TestsHelper.NORMAL_JSON))
+                .andExpect(status().isOk()))
+                .assertBudget("POST /rest/players", 0, 1, 0, 0);
+        SqlStatements.of(() -> mockMvc.perform(post("/rest/players/7")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Новое\", \"experience\": 1000}"))
+                .andExpect(status().isOk()))
+                .assertBudget("POST /rest/players/{id}", 1, 0, 1, 0);
+        // Начисление уходит в буфер, запись в базу - в фоновом потоке, вне бюджета запроса
+        SqlStatements.of(() -> mockMvc.perform(post("/rest/players/7/experience")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"delta\": 1000}"))
+                .andExpect(status().isAccepted()))
+                .assertBudget("POST /rest/players/{id}/experience", 0, 0, 0, 0);
+        SqlStatements.of(() -> mockMvc.perform(delete("/rest/players/7"))
+                .andExpect(status().isOk()))
+                .assertBudget("DELETE /rest/players/{id}", 1, 0, 0, 1);
+    }
+
+    //test7
+    @Test
+    public void restoreBudget() throws Exception {
+        new JdbcTemplate(context.getBean("dataSource", DataSource.class))
+                .update("UPDATE player SET banned = TRUE, updated = DATEADD('DAY', -40, updated) WHERE id = 1");
+        context.getBean(PlayerArchive.class).archive();
+        SqlStatements.of(() -> mockMvc.perform(post("/rest/players/1/restore"))
+                .andExpect(status().isOk()))
+                .assertBudget("POST /rest/players/{id}/restore", 1, 1, 0, 1);
+    }
+}
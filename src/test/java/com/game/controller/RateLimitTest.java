@@ -0,0 +1,134 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.filter.RateLimitFilter;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNotNull;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class RateLimitTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void expensiveBudgetIsSeparateFromCheap() throws Exception {
+        MockMvc limited = MockMvcBuilders.webAppContextSetup(context)
+                .addFilter(context.getBean(RateLimitFilter.class))
+                .build();
+        // Пачка из 20 дорогих запросов проходит, дальше бюджет пополняется 5 запросами в секунду.
+        // Каждый запрос с новым X-Client-Id: бюджет считается по адресу, и отказ все равно наступает
+        int admitted = 0;
+        MvcResult rejected = null;
+        while (rejected == null && admitted < 100) {
+            MvcResult result = limited.perform(get("/rest/players/count").with(from("10.0.0.1"))
+                    .header("X-Client-Id", "fresh-" + admitted)).andReturn();
+            if (result.getResponse().getStatus() == 429) {
+                rejected = result;
+            } else {
+                admitted++;
+            }
+        }
+        assertNotNull("Частые дорогие запросы должны получать 429.", rejected);
+        assertTrue("Вся пачка должна пройти до отказа.", admitted >= 20);
+        assertNotNull("Отказ должен подсказывать, когда повторить.", rejected.getResponse().getHeader("Retry-After"));
+
+        limited.perform(get("/rest/players/1").with(from("10.0.0.1")))
+                .andExpect(status().isOk());
+        limited.perform(get("/rest/players/count").with(from("10.0.0.2")))
+                .andExpect(status().isOk());
+
+        String metrics = mockMvc.perform(get("/rest/admin/metrics"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue("Отказ должен попасть в метрики.",
+                new ObjectMapper().readTree(metrics).get("rateLimit").get("throttledExpensive").asLong() >= 1);
+    }
+
+    //test2
+    @Test
+    public void concurrencyLimitShedsLoad() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(true, 1000, 1000, 1000, 1000, 1, 100);
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slow = executor.submit(() -> {
+                filter.doFilter(request("/rest/players/1"), new MockHttpServletResponse(), (req, res) -> {
+                    inside.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                return null;
+            });
+            assertTrue("Первый запрос должен начаться.", inside.await(5, TimeUnit.SECONDS));
+
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request("/rest/players/2"), response, (req, res) -> {
+            });
+            assertEquals("Сверх лимита одновременных запросов - 503.", 503, response.getStatus());
+            assertEquals("Отказ должен содержать Retry-After.", "1", response.getHeader("Retry-After"));
+
+            release.countDown();
+            slow.get();
+            MockHttpServletResponse after = new MockHttpServletResponse();
+            filter.doFilter(request("/rest/players/3"), after, (req, res) -> {
+            });
+            assertEquals("После завершения запроса место освобождается.", 200, after.getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //test3
+    @Test
+    public void clientMapIsBounded() throws Exception {
+        // Свои ведра у двух адресов, дальше - одно общее на всех
+        RateLimitFilter filter = new RateLimitFilter(true, 0.001, 1, 0.001, 1, 10, 2);
+        for (String address : new String[]{"10.0.0.1", "10.0.0.2", "10.0.0.3"}) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request("/rest/players/1", address), response, (req, res) -> {
+            });
+            assertEquals("Первый запрос адреса проходит: " + address, 200, response.getStatus());
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("/rest/players/1", "10.0.0.4"), response, (req, res) -> {
+        });
+        assertEquals("Адреса сверх max-clients делят общий бюджет.", 429, response.getStatus());
+        assertEquals("Карта ведер не растет сверх max-clients.", 2L, filter.metrics().get("clients").longValue());
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return request(uri, "10.0.0.9");
+    }
+
+    private static MockHttpServletRequest request(String uri, String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRemoteAddr(address);
+        return request;
+    }
+
+    private static RequestPostProcessor from(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.filter.CompressionFilter;
+import org.junit.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ResponseFormatTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final TypeReference<List<PlayerInfoTest>> typeReference = new TypeReference<List<PlayerInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void getAllAsSmile() throws Exception {
+        byte[] body = mockMvc.perform(get("/rest/players?pageSize=10").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<PlayerInfoTest> actual = new ObjectMapper(new SmileFactory()).readValue(body, typeReference);
+        assertEquals("Smile-ответ должен содержать ту же страницу, что и JSON.", expectedPage(), actual);
+    }
+
+    //test2
+    @Test
+    public void getAllAsCborByFormatParameter() throws Exception {
+        byte[] body = mockMvc.perform(get("/rest/players?pageSize=10&format=cbor"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<PlayerInfoTest> actual = new ObjectMapper(new CBORFactory()).readValue(body, typeReference);
+        assertEquals("CBOR-ответ должен содержать ту же страницу, что и JSON.", expectedPage(), actual);
+    }
+
+    //test3
+    @Test
+    public void getAllAsColumnarJson() throws Exception {
+        String body = mockMvc.perform(get("/rest/players?pageSize=10").accept("application/vnd.rpg.columnar+json"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode columns = new ObjectMapper().readTree(body).get("columns");
+        List<PlayerInfoTest> expected = expectedPage();
+        assertEquals("Неверное число строк в колоночном ответе.", expected.size(), columns.get("id").size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("Колонка id не совпадает.", expected.get(i).id, columns.get("id").get(i).asLong());
+            assertEquals("Колонка name не совпадает.", expected.get(i).name, columns.get("name").get(i).asText());
+            assertEquals("Колонка level не совпадает.", expected.get(i).level, columns.get("level").get(i).asInt());
+        }
+    }
+
+    //test4
+    @Test
+    public void largeResponseIsGzipped() throws Exception {
+        MockMvc compressing = MockMvcBuilders.webAppContextSetup(context)
+                .addFilter(context.getBean(CompressionFilter.class))
+                .build();
+        MvcResult result = compressing.perform(get("/rest/players?pageSize=10").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals("Большой ответ должен сжиматься.", "gzip", result.getResponse().getHeader("Content-Encoding"));
+        byte[] body = StreamUtils.copyToByteArray(
+                new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray())));
+        List<PlayerInfoTest> actual = new ObjectMapper().readValue(new String(body, StandardCharsets.UTF_8), typeReference);
+        assertEquals("Сжатый ответ должен распаковываться в ту же страницу.", expectedPage(), actual);
+    }
+
+    //test5
+    @Test
+    public void smallResponseIsNotCompressed() throws Exception {
+        MockMvc compressing = MockMvcBuilders.webAppContextSetup(context)
+                .addFilter(context.getBean(CompressionFilter.class))
+                .build();
+        MvcResult result = compressing.perform(get("/rest/players/count").header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertNull("Ответ меньше порога не сжимается.", result.getResponse().getHeader("Content-Encoding"));
+        assertEquals("Неверное количество игроков.", String.valueOf(testsHelper.getAllPlayers().size()),
+                result.getResponse().getContentAsString());
+    }
+
+    //test6
+    @Test
+    public void columnarJsonMatchesRowJson() throws Exception {
+        for (String query : new String[]{"?pageSize=10", "?pageSize=10&fields=birthday,race,banned,untilNextLevel"}) {
+            JsonNode rows = new ObjectMapper().readTree(mockMvc.perform(get("/rest/players" + query))
+                    .andReturn().getResponse().getContentAsString());
+            JsonNode columns = new ObjectMapper().readTree(mockMvc.perform(get("/rest/players" + query)
+                    .accept("application/vnd.rpg.columnar+json"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString()).get("columns");
+            List<String> names = new ArrayList<>();
+            columns.fieldNames().forEachRemaining(names::add);
+            List<String> expectedNames = new ArrayList<>();
+            rows.get(0).fieldNames().forEachRemaining(expectedNames::add);
+            assertEquals("Колонки должны идти в порядке полей строки: " + query, expectedNames, names);
+            for (int i = 0; i < rows.size(); i++) {
+                for (String name : names) {
+                    assertEquals("Значение " + name + " не совпадает: " + query, rows.get(i).get(name), columns.get(name).get(i));
+                }
+            }
+        }
+    }
+
+    private List<PlayerInfoTest> expectedPage() {
+        return testsHelper.getPlayerInfosByPage(0, 10, testsHelper.getAllPlayers());
+    }
+}
@@ -0,0 +1,92 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.filter.RateLimitFilter;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerPurger;
+import com.game.service.PlayerShards;
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Очистка по расписанию выключена - тесты запускают ее сами
+@TestPropertySource(properties = {"rpg.delete.soft=true", "rpg.purge.interval-millis=0"})
+public class SoftDeleteTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void softDeletedPlayerIsHiddenUntilPurged() throws Exception {
+        mockMvc.perform(delete("/rest/players/5")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/rest/players/5")).andExpect(status().isNotFound());
+        mockMvc.perform(delete("/rest/players/5")).andExpect(status().isNotFound());
+        assertEquals("Удаленный игрок не должен считаться.", "39",
+                mockMvc.perform(get("/rest/players/count")).andReturn().getResponse().getContentAsString());
+        assertEquals("Удаленный игрок не должен попадать в список.", 0L,
+                countInList(mockMvc.perform(get("/rest/players").param("pageSize", "100"))
+                        .andReturn().getResponse().getContentAsString(), 5));
+
+        // В хранилище logstore удаление сразу окончательное - очищать нечего
+        long expectedBacklog = context.containsBean("dataSource") ? 1 : 0;
+        assertEquals("Отмеченная строка должна ждать очистки.", expectedBacklog, purge().get("backlog").asLong());
+
+        assertEquals("Очистка должна стереть отмеченную строку.", expectedBacklog, context.getBean(PlayerPurger.class).purge());
+        assertEquals("После очистки отмеченных строк не остается.", 0L, purge().get("backlog").asLong());
+        mockMvc.perform(get("/rest/players/5")).andExpect(status().isNotFound());
+    }
+
+    //test2
+    @Test
+    public void purgeIsBatchedAndYieldsToLoad() throws Exception {
+        Assume.assumeTrue("Отмеченные строки бывают только в базе", context.containsBean("dataSource"));
+        for (int id = 1; id <= 5; id++) {
+            mockMvc.perform(delete("/rest/players/" + id)).andExpect(status().isOk());
+        }
+        PlayerRepository repository = context.getBean(PlayerRepository.class);
+        PlayerShards shards = context.getBean(PlayerShards.class);
+        RateLimitFilter rateLimitFilter = context.getBean(RateLimitFilter.class);
+
+        PlayerPurger busy = new PlayerPurger(repository, shards, rateLimitFilter, 0, 2, 0, 2, -1);
+        PlayerPurger limited = new PlayerPurger(repository, shards, rateLimitFilter, 0, 2, 0, 2, 8);
+        try {
+            assertEquals("Под нагрузкой проход откладывается.", 0L, busy.purge());
+            assertEquals("Отложенный проход должен попасть в метрики.", 1L, busy.metrics().get("deferredForLoad"));
+
+            assertEquals("За проход не больше max-batches пачек.", 4L, limited.purge());
+            assertEquals("Пачки по batch-size.", 2L, limited.metrics().get("batches"));
+            assertEquals("Остаток ждет следующего прохода.", 1L, limited.metrics().get("backlog"));
+            assertEquals("Следующий проход дочищает остаток.", 1L, limited.purge());
+            assertEquals("Отмеченных строк не осталось.", 0L, repository.countSoftDeleted());
+        } finally {
+            busy.destroy();
+            limited.destroy();
+        }
+        assertEquals("Остальные игроки на месте.", "35",
+                mockMvc.perform(get("/rest/players/count")).andReturn().getResponse().getContentAsString());
+    }
+
+    private JsonNode purge() throws Exception {
+        String content = mockMvc.perform(get("/rest/admin/metrics"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(content).get("purge");
+    }
+
+    private long countInList(String content, long id) throws Exception {
+        long count = 0;
+        for (JsonNode player : mapper.readTree(content)) {
+            if (player.get("id").asLong() == id) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,75 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class SparseFieldsTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void getAllWithFieldsReturnsOnlyRequestedColumns() throws Exception {
+        String content = mockMvc.perform(get("/rest/players?fields=id,name,level&name=ра&pageNumber=1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode rows = mapper.readTree(content);
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByPage(1, 3,
+                testsHelper.getPlayerInfosByName("ра", testsHelper.getAllPlayers()));
+        assertEquals("Неверное число строк при запросе с параметром fields.", expected.size(), rows.size());
+        for (int i = 0; i < expected.size(); i++) {
+            JsonNode row = rows.get(i);
+            assertEquals("Должны возвращаться только запрошенные поля.", Arrays.asList("id", "name", "level"), fieldNames(row));
+            assertEquals("Неверный id.", expected.get(i).id, row.get("id").asLong());
+            assertEquals("Неверное имя.", expected.get(i).name, row.get("name").asText());
+            assertEquals("Неверный уровень.", expected.get(i).level, row.get("level").asInt());
+        }
+    }
+
+    //test2
+    @Test
+    public void getAllWithFieldsKeepsOrder() throws Exception {
+        String content = mockMvc.perform(get("/rest/players?fields=id,experience&order=EXPERIENCE&pageSize=5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<Long> actual = new ArrayList<>();
+        mapper.readTree(content).forEach(row -> actual.add(row.get("id").asLong()));
+        List<Long> expected = testsHelper.getAllPlayers().stream()
+                .sorted(Comparator.comparing((PlayerInfoTest player) -> player.experience).thenComparing(player -> player.id))
+                .limit(5)
+                .map(player -> player.id)
+                .collect(Collectors.toList());
+        assertEquals("Проекция должна сортироваться так же, как полный список.", expected, actual);
+    }
+
+    //test3
+    @Test
+    public void getAllWithUnknownFieldIsBadRequest() throws Exception {
+        mockMvc.perform(get("/rest/players?fields=id,password"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static List<String> fieldNames(JsonNode row) {
+        List<String> names = new ArrayList<>();
+        Iterator<String> iterator = row.fieldNames();
+        iterator.forEachRemaining(names::add);
+        return names;
+    }
+}
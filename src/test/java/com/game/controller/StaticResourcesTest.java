@@ -0,0 +1,43 @@
+package com.game.controller;
+
+import org.junit.Test;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class StaticResourcesTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void fingerprintedUrlsAreImmutable() throws Exception {
+        String url = context.getBean(ResourceUrlProvider.class).getForLookupPath("/resources/scripts.js");
+        assertTrue("В имени файла должен быть хеш содержимого: " + url, url.matches("/resources/scripts-[0-9a-f]{32}\\.js"));
+
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "public, max-age=31536000, immutable"));
+        String nested = context.getBean(ResourceUrlProvider.class)
+                .getForLookupPath("/resources/bootstrap-4.3.1-dist/css/bootstrap.min.css");
+        mockMvc.perform(get(nested))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "public, max-age=31536000, immutable"));
+    }
+
+    //test2
+    @Test
+    public void plainUrlsAreRevalidated() throws Exception {
+        mockMvc.perform(get("/resources/scripts.js"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"));
+        // Несуществующий файл не должен закрепиться в кэше браузера
+        mockMvc.perform(get("/resources/scripts-00000000000000000000000000000000.js"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist("Cache-Control"));
+        mockMvc.perform(get("/resources/missing.js"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist("Cache-Control"));
+    }
+}
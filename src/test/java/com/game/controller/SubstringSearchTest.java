@@ -0,0 +1,110 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Player;
+import com.game.service.TrigramIndex;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNotNull;
+import static org.springframework.test.util.AssertionErrors.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Индекс сужает поиск, только если этот экземпляр - единственный писатель
+@TestPropertySource(properties = "rpg.search.single-writer=true")
+public class SubstringSearchTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TypeReference<List<PlayerInfoTest>> typeReference = new TypeReference<List<PlayerInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void nameSearchMatchesLike() throws Exception {
+        for (String name : new String[]{"ан", "ара", "Эль", "эль", "ллин", "%", "а_и", "xyz"}) {
+            List<PlayerInfoTest> expected = name.contains("%") || name.contains("_")
+                    ? null : testsHelper.getPlayerInfosByName(name, testsHelper.getAllPlayers());
+            List<PlayerInfoTest> actual = search("name", name);
+            if (expected != null) {
+                assertEquals("Неверный результат поиска по имени " + name, expected, actual);
+            }
+            assertEquals("Количество должно совпадать со списком для " + name, actual.size(), count("name", name));
+        }
+    }
+
+    //test2
+    @Test
+    public void titleSearchMatchesLike() throws Exception {
+        for (String title : new String[]{"Воин", "воин", "ель", "Эльфёнок", "Эльфенок", "ой"}) {
+            List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByTitle(title, testsHelper.getAllPlayers());
+            assertEquals("Неверный результат поиска по титулу " + title, expected, search("title", title));
+            assertEquals("Неверное количество для титула " + title, expected.size(), count("title", title));
+        }
+    }
+
+    //test3
+    @Test
+    public void indexFollowsRename() throws Exception {
+        TrigramIndex index = context.getBean(TrigramIndex.class);
+        assertNotNull("Подстрока из трех букв должна сужаться индексом.", index.candidates("Ниу", null));
+        assertNull("Подстрока короче триграммы не сужается.", index.candidates("Ни", null));
+
+        mockMvc.perform(post("/rest/players/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Квазимодо\"}"))
+                .andExpect(status().isOk());
+
+        assertEquals("Старое имя не должно находиться.", 0, search("name", "Ниус").size());
+        assertEquals("Новое имя должно находиться.", 1, search("name", "зимод").size());
+    }
+
+    //test4
+    @Test
+    public void candidatesFollowCollation() {
+        Player player = new Player();
+        player.setId(1L);
+        player.setName("Café");
+        player.setTitle("Ёжик");
+        TrigramIndex generalCi = new TrigramIndex(2000, true, NameCollation.GENERAL_CI);
+        generalCi.reload(Collections.singletonList(player));
+        assertEquals("utf8_general_ci не различает диакритику - café должен быть кандидатом.",
+                Collections.singleton(1L), generalCi.candidates("cafe", null));
+        assertEquals("utf8_general_ci не различает регистр и ё/е.",
+                Collections.singleton(1L), generalCi.candidates(null, "ежи"));
+
+        TrigramIndex binary = new TrigramIndex(2000, true, NameCollation.BINARY);
+        binary.reload(Collections.singletonList(player));
+        assertEquals("Бинарная сортировка различает регистр.", 0, binary.candidates("caf", null).size());
+
+        TrigramIndex shared = new TrigramIndex(2000, false, NameCollation.GENERAL_CI);
+        shared.reload(Collections.singletonList(player));
+        assertNull("Без единственного писателя поиск не сужается.", shared.candidates("Caf", null));
+    }
+
+    private List<PlayerInfoTest> search(String param, String value) throws Exception {
+        String content = mockMvc.perform(get("/rest/players")
+                .param(param, value)
+                .param("pageSize", "100"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(content, typeReference);
+    }
+
+    private int count(String param, String value) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/count").param(param, value))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Integer.parseInt(content);
+    }
+}
@@ -0,0 +1,79 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class SuggestTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void suggestionsAreRankedByLevel() throws Exception {
+        for (String prefix : new String[]{"а", "Ар", "Э", "дж", "н"}) {
+            List<Long> expected = testsHelper.getAllPlayers().stream()
+                    .filter(p -> p.name.toLowerCase(Locale.ROOT).startsWith(prefix.toLowerCase(Locale.ROOT)))
+                    .sorted(Comparator.comparing((PlayerInfoTest p) -> p.level).reversed().thenComparing(p -> p.id))
+                    .limit(5)
+                    .map(p -> p.id)
+                    .collect(Collectors.toList());
+            assertEquals("Неверные подсказки для префикса " + prefix, expected, suggest(prefix, 5));
+        }
+    }
+
+    //test2
+    @Test
+    public void yoIsFoldedToYe() throws Exception {
+        String created = mockMvc.perform(post("/rest/players/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Ёжик\",\"title\":\"В тумане\",\"race\":\"HOBBIT\",\"profession\":\"ROGUE\"," +
+                        "\"birthday\":988625750000,\"banned\":false,\"experience\":1000}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long id = mapper.readTree(created).get("id").asLong();
+
+        assertEquals("ё и е должны совпадать.", id, suggest("ЕЖ", 1).get(0));
+        assertEquals("Префикс с ё тоже должен находить игрока.", id, suggest("ёжи", 1).get(0));
+
+        mockMvc.perform(delete("/rest/players/" + id)).andExpect(status().isOk());
+        assertEquals("Удаленный игрок не должен подсказываться.", 0, suggest("еж", 1).size());
+    }
+
+    //test3
+    @Test
+    public void invalidParametersAreBadRequest() throws Exception {
+        mockMvc.perform(get("/rest/players/suggest")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players/suggest").param("prefix", " ")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players/suggest").param("prefix", "а").param("limit", "21")).andExpect(status().isBadRequest());
+    }
+
+    private List<Long> suggest(String prefix, int limit) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/suggest")
+                .param("prefix", prefix)
+                .param("limit", String.valueOf(limit)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode suggestion : mapper.readTree(content)) {
+            ids.add(suggestion.get("id").asLong());
+        }
+        return ids;
+    }
+}
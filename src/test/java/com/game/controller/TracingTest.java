@@ -0,0 +1,121 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.filter.TracingFilter;
+import com.game.trace.RequestTrace;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNotNull;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class TracingTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void serverTimingBreaksDownPhases() throws Exception {
+        MvcResult result = traced().perform(get("/rest/players").param("pageSize", "5"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("Тело ответа не должно теряться при буферизации.", 5,
+                new ObjectMapper().readTree(result.getResponse().getContentAsString()).size());
+        assertNotNull("Ответ должен содержать номер трассировки.", result.getResponse().getHeader(TracingFilter.TRACE_ID));
+
+        String timing = result.getResponse().getHeader(TracingFilter.SERVER_TIMING);
+        assertNotNull("Ответ должен содержать Server-Timing.", timing);
+        for (String phase : new String[]{"bind", "service", "repository", "serialize", "total"}) {
+            assertTrue("В Server-Timing нет фазы " + phase + ": " + timing, timing.contains(phase + ";dur="));
+        }
+        if (context.containsBean("dataSource")) {
+            Matcher statements = Pattern.compile("sql;dur=[0-9.]+;desc=\"(\\d+) statements\"").matcher(timing);
+            assertTrue("В Server-Timing должно быть число SQL-запросов: " + timing, statements.find());
+            assertTrue("Список игроков читается из базы.", Integer.parseInt(statements.group(1)) >= 1);
+            assertTrue("Чтение результата должно попасть в hydrate: " + timing, timing.contains("hydrate;dur="));
+        }
+    }
+
+    //test2
+    @Test
+    public void clientTraceIdIsKeptWhenValid() throws Exception {
+        MockMvc traced = traced();
+        assertEquals("Корректный номер от клиента должен сохраняться.", "client-42",
+                traced.perform(get("/rest/players/1").header(TracingFilter.TRACE_ID, "client-42"))
+                        .andReturn().getResponse().getHeader(TracingFilter.TRACE_ID));
+        String generated = traced.perform(get("/rest/players/1").header(TracingFilter.TRACE_ID, "bad id; x=1"))
+                .andReturn().getResponse().getHeader(TracingFilter.TRACE_ID);
+        assertTrue("Некорректный номер заменяется новым: " + generated, generated.matches("[0-9a-f]{32}"));
+        assertNotNull("Ответ 404 тоже получает Server-Timing.",
+                traced.perform(get("/rest/players/100500")).andExpect(status().isNotFound())
+                        .andReturn().getResponse().getHeader(TracingFilter.SERVER_TIMING));
+    }
+
+    //test3
+    @Test
+    public void sampledRequestKeepsSpans() throws Exception {
+        AtomicReference<RequestTrace> seen = new AtomicReference<>();
+        new TracingFilter(true, 1).doFilter(new MockHttpServletRequest("GET", "/rest/players"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    seen.set(RequestTrace.current());
+                    try (RequestTrace.Span service = RequestTrace.span(RequestTrace.SERVICE)) {
+                        try (RequestTrace.Span sql = RequestTrace.span(RequestTrace.SQL)) {
+                            RequestTrace.statementExecuted();
+                        }
+                    }
+                });
+        List<String> spans = seen.get().describeSpans();
+        assertEquals("Запрос из выборки хранит все отрезки.", 2, spans.size());
+        assertTrue("Отрезки идут по времени начала: " + spans, spans.get(0).contains(" service "));
+        assertTrue("Вложенный отрезок сдвинут: " + spans, spans.get(1).startsWith("  +") && spans.get(1).contains(" sql "));
+        assertEquals("После запроса трассировка снимается с потока.", null, RequestTrace.current());
+
+        seen.set(null);
+        new TracingFilter(true, 0).doFilter(new MockHttpServletRequest("GET", "/rest/players"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    seen.set(RequestTrace.current());
+                    try (RequestTrace.Span service = RequestTrace.span(RequestTrace.SERVICE)) {
+                        RequestTrace.statementExecuted();
+                    }
+                });
+        assertTrue("Без выборки отрезки не хранятся.", seen.get().describeSpans().isEmpty());
+        assertEquals("Без выборки считаются только суммы.", 1L, seen.get().statements());
+    }
+
+    //test4
+    @Test
+    public void largeBodyIsStreamed() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<Boolean> committed = new AtomicReference<>();
+        AtomicReference<String> timing = new AtomicReference<>();
+        new TracingFilter(true, 0).doFilter(new MockHttpServletRequest("GET", "/rest/players"), response,
+                (request, wrapped) -> {
+                    try (RequestTrace.Span serialize = RequestTrace.span(RequestTrace.SERIALIZE)) {
+                        wrapped.getOutputStream().write(new byte[64 * 1024]);
+                        committed.set(response.isCommitted());
+                        timing.set(response.getHeader(TracingFilter.SERVER_TIMING));
+                    }
+                });
+        assertTrue("Большое тело не должно копиться в памяти до конца обработки.", committed.get());
+        assertNotNull("Server-Timing ставится перед первыми байтами тела.", timing.get());
+        assertTrue("Идущая сериализация учитывается в Server-Timing: " + timing.get(),
+                timing.get().contains("serialize;dur="));
+        assertEquals("Тело не должно теряться.", 64 * 1024, response.getContentAsByteArray().length);
+    }
+
+    private MockMvc traced() {
+        return MockMvcBuilders.webAppContextSetup(context)
+                .addFilter(context.getBean(TracingFilter.class))
+                .build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.game.controller;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerShards;
+import com.game.snapshot.PlayerSnapshots;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class WarmStartTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void snapshotIsCaughtUpWithDatabase() throws Exception {
+        Path directory = Files.createTempDirectory("warm-start");
+        Path file = directory.resolve("players.snapshot");
+        try {
+            // Отметка снимка должна оказаться позже загрузки test.sql
+            Thread.sleep(20);
+            snapshots(file).write();
+            int saved = repository().findAll().size();
+
+            Thread.sleep(20);
+            // Изменения мимо PlayerService - снимок о них не знает
+            Player renamed = repository().findById(3L).get();
+            renamed.setName("Переименован");
+            renamed.setExperience(5);
+            repository().save(renamed);
+            repository().deleteById(4L);
+            Player added = new Player();
+            added.setName("Новичок");
+            added.setTitle("Из базы");
+            added.setRace(Race.ELF);
+            added.setProfession(Profession.DRUID);
+            added.setBirthday(java.sql.Date.valueOf("2001-01-01"));
+            added.setBanned(false);
+            added.setExperience(10);
+            added.setLevel(0);
+            added.setUntilNextLevel(90);
+            repository().save(added);
+
+            PlayerSnapshots restarted = snapshots(file);
+            List<Player> players = restarted.warmStart();
+            assertEquals("После догонки снимок должен совпадать с базой.",
+                    describe(repository().findAll()), describe(players));
+
+            Map<String, Object> metrics = restarted.metrics();
+            assertEquals("Игроки должны браться из снимка.", "snapshot", metrics.get("source"));
+            assertEquals("Из снимка должны прочитаться все сохраненные игроки.", saved, metrics.get("loadedFromSnapshot"));
+            assertEquals("Из базы догружаются только измененные и новые строки.", 2, metrics.get("caughtUp"));
+            assertEquals("Удаленный игрок должен исчезнуть.", 1, metrics.get("removed"));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    //test2
+    @Test
+    public void missingSnapshotFallsBackToDatabase() throws Exception {
+        Path directory = Files.createTempDirectory("warm-start");
+        try {
+            PlayerSnapshots snapshots = snapshots(directory.resolve("absent.snapshot"));
+            assertEquals("Без снимка игроки читаются из базы.",
+                    describe(repository().findAll()), describe(snapshots.warmStart()));
+            assertEquals("Источник - база.", "database", snapshots.metrics().get("source"));
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private PlayerSnapshots snapshots(Path file) {
+        return new PlayerSnapshots(repository(), context.getBean(PlayerShards.class), file.toString(), 0);
+    }
+
+    private PlayerRepository repository() {
+        return context.getBean(PlayerRepository.class);
+    }
+
+    private static List<String> describe(List<Player> players) {
+        return players.stream()
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .map(p -> p.getId() + "|" + p.getName() + "|" + p.getTitle() + "|" + p.getRace() + "|" + p.getProfession()
+                        + "|" + p.getBirthday() + "|" + p.getBanned() + "|" + p.getExperience() + "|" + p.getLevel())
+                .collect(Collectors.toList());
+    }
+}
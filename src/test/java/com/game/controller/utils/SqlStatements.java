@@ -0,0 +1,86 @@
+package com.game.controller.utils;
+
+import com.game.trace.StatementCapture;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.fail;
+
+/*
+ * SQL-запросы одного вызова эндпоинта: их перехватывает TracingDataSource (rpg.trace.enabled=true)
+ * через StatementCapture. Бюджет - точное число запросов каждого типа, лишний поход в базу
+ * (второй findById, N+1 по связям) валит тест со списком всех выполненных запросов.
+ */
+public final class SqlStatements {
+
+    public enum Type {SELECT, INSERT, UPDATE, DELETE, OTHER}
+
+    public interface Call {
+        void run() throws Exception;
+    }
+
+    private final List<StatementCapture.Statement> statements;
+
+    private SqlStatements(List<StatementCapture.Statement> statements) {
+        this.statements = statements;
+    }
+
+    public static SqlStatements of(Call call) throws Exception {
+        try (StatementCapture capture = StatementCapture.start()) {
+            call.run();
+            return new SqlStatements(capture.statements());
+        }
+    }
+
+    public int count(Type type) {
+        return counts().getOrDefault(type, 0);
+    }
+
+    // Порядок: SELECT, INSERT, UPDATE, DELETE; прочие запросы (SET, CALL...) бюджетом запрещены
+    public void assertBudget(String endpoint, int selects, int inserts, int updates, int deletes) {
+        Map<Type, Integer> expected = new EnumMap<>(Type.class);
+        expected.put(Type.SELECT, selects);
+        expected.put(Type.INSERT, inserts);
+        expected.put(Type.UPDATE, updates);
+        expected.put(Type.DELETE, deletes);
+        expected.put(Type.OTHER, 0);
+        Map<Type, Integer> actual = new EnumMap<>(Type.class);
+        for (Type type : Type.values()) {
+            actual.put(type, count(type));
+        }
+        if (!expected.equals(actual)) {
+            fail("Бюджет SQL-запросов " + endpoint + ": ожидалось " + expected + ", выполнено " + actual + describe());
+        }
+    }
+
+    private Map<Type, Integer> counts() {
+        Map<Type, Integer> counts = new EnumMap<>(Type.class);
+        for (StatementCapture.Statement statement : statements) {
+            counts.merge(typeOf(statement.getSql()), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private String describe() {
+        List<String> lines = new ArrayList<>();
+        for (StatementCapture.Statement statement : statements) {
+            lines.add((statement.getShard() != null ? "[" + statement.getShard() + "] " : "") + statement.getSql());
+        }
+        return lines.stream().collect(Collectors.joining("\n  ", "\n  ", ""));
+    }
+
+    private static Type typeOf(String sql) {
+        String head = sql.trim().toUpperCase(Locale.ROOT);
+        for (Type type : Type.values()) {
+            if (head.startsWith(type.name())) {
+                return type;
+            }
+        }
+        return Type.OTHER;
+    }
+}
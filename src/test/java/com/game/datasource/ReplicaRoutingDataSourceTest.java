@@ -0,0 +1,121 @@
+package com.game.datasource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase firstReplica;
+    private EmbeddedDatabase secondReplica;
+
+    @Before
+    public void setUp() {
+        // Чтобы различать базы, в каждой оставляем свое число игроков
+        primary = database();
+        firstReplica = database();
+        secondReplica = database();
+        new JdbcTemplate(firstReplica).update("DELETE FROM player WHERE id > 10");
+        new JdbcTemplate(secondReplica).update("DELETE FROM player WHERE id > 20");
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        primary.shutdown();
+        firstReplica.shutdown();
+        secondReplica.shutdown();
+    }
+
+    @Test
+    public void readOnlyTransactionGoesToReplica() {
+        DataSource dataSource = routing(ReplicaSelection.ROUND_ROBIN, 0, firstReplica);
+
+        assertEquals("Запрос на чтение должен идти в реплику", 10, count(dataSource, true));
+        assertEquals("Запись должна идти в основную базу", 40, count(dataSource, false));
+    }
+
+    @Test
+    public void roundRobinAlternatesReplicas() {
+        DataSource dataSource = routing(ReplicaSelection.ROUND_ROBIN, 0, firstReplica, secondReplica);
+
+        Set<Integer> counts = new HashSet<>(Arrays.asList(count(dataSource, true), count(dataSource, true)));
+        assertEquals("Чтения должны распределяться по обеим репликам", new HashSet<>(Arrays.asList(10, 20)), counts);
+    }
+
+    @Test
+    public void leastConnectionsSkipsBusyReplica() {
+        DataSource dataSource = routing(ReplicaSelection.LEAST_CONNECTIONS, 0, firstReplica, secondReplica);
+        TransactionTemplate readOnly = transactionTemplate(dataSource, true);
+
+        // Пока первая реплика держит соединение, второе чтение должно уйти во вторую
+        int nested = readOnly.execute(outer -> {
+            new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM player", Integer.class);
+            return count(dataSource, true);
+        });
+        assertEquals("Чтение должно уйти в свободную реплику", 20, nested);
+    }
+
+    @Test
+    public void clientReadsOwnWritesFromPrimary() {
+        DataSource dataSource = routing(ReplicaSelection.ROUND_ROBIN, 60_000, firstReplica);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Client-Id", "admin-1");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        assertEquals("До записи чтение идет в реплику", 10, count(dataSource, true));
+        count(dataSource, false);
+        assertEquals("После своей записи клиент читает из основной базы", 40, count(dataSource, true));
+
+        request.removeHeader("X-Client-Id");
+        request.addHeader("X-Client-Id", "admin-2");
+        assertEquals("Другие клиенты продолжают читать из реплики", 10, count(dataSource, true));
+    }
+
+    private DataSource routing(ReplicaSelection selection, long stickinessMillis, DataSource... replicas) {
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, Arrays.asList(replicas), selection, stickinessMillis));
+    }
+
+    private int count(DataSource dataSource, boolean readOnly) {
+        return transactionTemplate(dataSource, readOnly).execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM player", Integer.class));
+    }
+
+    private TransactionTemplate transactionTemplate(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        template.setReadOnly(readOnly);
+        if (readOnly) {
+            template.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+        }
+        return template;
+    }
+
+    private EmbeddedDatabase database() {
+        return new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(H2)
+                .setScriptEncoding("UTF-8")
+                .addScript("test.sql")
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.game.launcher;
+
+import org.apache.catalina.core.StandardThreadExecutor;
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class EmbeddedServerTest {
+
+    //test1
+    @Test
+    public void servesApiAndPageOnConfiguredConnector() throws Exception {
+        ServerSettings settings = new ServerSettings();
+        settings.setPort(0);
+        settings.setProfile("dev");
+        settings.setMaxThreads(16);
+        settings.setAcceptCount(50);
+        EmbeddedServer server = new EmbeddedServer(settings);
+        server.start();
+        try {
+            Http11NioProtocol protocol = (Http11NioProtocol) server.getConnector().getProtocolHandler();
+            assertEquals("Пул рабочих потоков должен браться из настроек.",
+                    16, ((StandardThreadExecutor) protocol.getExecutor()).getMaxThreads());
+            assertEquals("Очередь соединений должна браться из настроек.", 50, protocol.getAcceptCount());
+
+            String count = get(server, "/rest/players/count");
+            assertTrue("API должно отвечать через встроенный сервер.", Integer.parseInt(count) > 0);
+            String page = get(server, "/");
+            assertTrue("Главная страница должна рендериться из JSP.", page.contains("processSearch"));
+            assertTrue("Ссылки на статику должны содержать хеш содержимого.",
+                    Pattern.compile("/resources/scripts-[0-9a-f]{32}\\.js\"").matcher(page).find());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static String get(EmbeddedServer server, String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        try {
+            assertEquals("Неверный статус для " + path, 200, connection.getResponseCode());
+            try (InputStream body = connection.getInputStream()) {
+                return StreamUtils.copyToString(body, StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
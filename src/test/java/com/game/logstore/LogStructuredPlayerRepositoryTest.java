@@ -0,0 +1,275 @@
+package com.game.logstore;
+
+import com.game.controller.PlayerOrder;
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.requests.PlayerFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertFalse;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.util.AssertionErrors.fail;
+
+public class LogStructuredPlayerRepositoryTest {
+    private Path directory;
+    private final List<LogStructuredPlayerRepository> opened = new ArrayList<>();
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("logstore-test");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        for (LogStructuredPlayerRepository store : opened) {
+            store.destroy();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    //test1
+    @Test
+    public void journalIsReplayedAfterCrash() throws Exception {
+        LogStructuredPlayerRepository store = open(directory.resolve("live"));
+        for (int i = 1; i <= 3; i++) {
+            store.save(player("Игрок" + i, Race.ELF, i * 100));
+        }
+        Player renamed = store.findById(2L).get();
+        renamed.setName("Переименован");
+        store.save(renamed);
+        store.deleteById(3L);
+
+        // Копия каталога без закрытия хранилища - как после падения процесса
+        LogStructuredPlayerRepository recovered = open(crashCopy(directory.resolve("live")));
+        assertEquals("После падения должны остаться все закоммиченные изменения.",
+                describe(store.findAll()), describe(recovered.findAll()));
+        assertFalse("Удаленный игрок не должен вернуться.", recovered.existsById(3L));
+        assertEquals("Нумерация должна продолжиться после последнего id.", 4L,
+                recovered.save(player("Новый", Race.HUMAN, 1)).getId());
+    }
+
+    //test2
+    @Test
+    public void tornTailIsDiscarded() throws Exception {
+        LogStructuredPlayerRepository store = open(directory.resolve("live"));
+        store.save(player("Первый", Race.ORC, 10));
+        store.save(player("Второй", Race.ORC, 20));
+
+        Path copy = crashCopy(directory.resolve("live"));
+        List<Long> segments = WriteAheadLog.segmentNumbers(copy);
+        // Недописанная запись: заголовок есть, данных меньше заявленного
+        try (RandomAccessFile file = new RandomAccessFile(
+                WriteAheadLog.segmentPath(copy, segments.get(segments.size() - 1)).toFile(), "rw")) {
+            file.seek(file.length());
+            file.writeInt(1000);
+            file.writeInt(12345);
+            file.write(new byte[7]);
+        }
+        LogStructuredPlayerRepository recovered = open(copy);
+        assertEquals("Оборванный хвост журнала должен отбрасываться.", 2L, recovered.count());
+        recovered.save(player("Третий", Race.ORC, 30));
+
+        LogStructuredPlayerRepository again = open(crashCopy(copy));
+        assertEquals("Запись после обрезки хвоста должна читаться.", 3L, again.count());
+    }
+
+    //test3
+    @Test
+    public void compactionReplacesJournalWithSnapshot() throws Exception {
+        Path live = directory.resolve("live");
+        LogStructuredPlayerRepository store = open(live);
+        for (int i = 0; i < 50; i++) {
+            store.save(player("Игрок" + i, i % 2 == 0 ? Race.DWARF : Race.GIANT, i));
+        }
+        store.compact();
+        assertEquals("Журнал до снимка должен удаляться.", 1, WriteAheadLog.segmentNumbers(live).size());
+        store.save(player("После снимка", Race.HOBBIT, 5));
+        store.deleteById(1L);
+
+        LogStructuredPlayerRepository recovered = open(crashCopy(live));
+        assertEquals("Снимок и журнал после него должны дать то же состояние.",
+                describe(store.findAll()), describe(recovered.findAll()));
+        assertEquals("Метрики должны учитывать сворачивание.", 1L, store.metrics().get("compactions"));
+
+        store.destroy();
+        opened.remove(store);
+        try (Stream<Path> files = Files.list(live)) {
+            assertEquals("При остановке журнал сворачивается в один снимок.", 1L,
+                    files.filter(file -> file.getFileName().toString().startsWith("snapshot-")).count());
+        }
+        assertEquals("После остановки игроки читаются из снимка.", 50L, open(live).count());
+    }
+
+    //test4
+    @Test
+    public void transactionIsAtomic() throws Exception {
+        LogStructuredPlayerRepository store = open(directory.resolve("live"));
+        TransactionTemplate transaction = new TransactionTemplate(new LogStoreTransactionManager(store));
+        long records = (Long) store.metrics().get("walRecords");
+
+        transaction.execute(status -> {
+            Player saved = store.save(player("Откат", Race.HUMAN, 1));
+            assertTrue("Своя транзакция видит незакоммиченного игрока.", store.findById(saved.getId()).isPresent());
+            status.setRollbackOnly();
+            return null;
+        });
+        assertEquals("Откаченная транзакция ничего не оставляет.", 0L, store.count());
+
+        transaction.execute(status -> store.saveAll(Stream.of("А", "Б", "В")
+                .map(name -> player(name, Race.HUMAN, 1)).collect(Collectors.toList())));
+        assertEquals("Коммит применяет все изменения.", 3L, store.count());
+        assertEquals("Транзакция пишется в журнал одной записью.", records + 1, store.metrics().get("walRecords"));
+    }
+
+    //test5
+    @Test
+    public void concurrentCommitsShareFsync() throws Exception {
+        LogStructuredPlayerRepository store = open(directory.resolve("live"));
+        int threads = 8;
+        int saves = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < saves; i++) {
+                        store.save(player("Поток", Race.ELF, i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals("Все игроки должны сохраниться.", (long) threads * saves, store.count());
+        long records = (Long) store.metrics().get("walRecords");
+        long groups = (Long) store.metrics().get("walGroups");
+        assertEquals("Каждый коммит - запись журнала.", (long) threads * saves, records);
+        assertTrue("Одновременные коммиты должны делить fsync: " + groups + " из " + records, groups < records);
+    }
+
+    //test6
+    @Test
+    public void filteredQueriesMatchScan() throws Exception {
+        LogStructuredPlayerRepository store = open(directory.resolve("live"));
+        Race[] races = Race.values();
+        for (int i = 0; i < 60; i++) {
+            Player player = player("Имя" + (i % 7), races[i % races.length], (i * 37) % 500);
+            player.setBanned(i % 3 == 0);
+            store.save(player);
+        }
+        PlayerFilter filter = new PlayerFilter();
+        filter.setRace(Race.ELF);
+        filter.setBanned(false);
+        filter.setName("мя");
+        List<Player> expected = store.findAll().stream()
+                .filter(p -> p.getRace() == Race.ELF && !p.getBanned() && p.getName().contains("мя"))
+                .sorted(Comparator.comparing(Player::getExperience).thenComparing(Player::getId))
+                .collect(Collectors.toList());
+
+        List<Player> page = store.findFiltered(filter, null, PlayerOrder.EXPERIENCE, PageRequest.of(1, 2));
+        assertEquals("Вторая страница по опыту должна совпадать с полным перебором.",
+                describe(expected.subList(2, Math.min(4, expected.size()))), describe(page));
+        assertEquals("Количество должно совпадать с перебором.", (long) expected.size(), store.countFiltered(filter, null));
+
+        // Как LIKE в базе: _ - любой один символ
+        filter.setName("Им_1");
+        assertEquals("Подстановка _ должна работать как в LIKE.",
+                expected.stream().filter(p -> p.getName().equals("Имя1")).count(), store.countFiltered(filter, null));
+    }
+
+    //test7
+    @Test
+    public void failedWriteStopsJournal() throws Exception {
+        Path live = directory.resolve("live");
+        LogStructuredPlayerRepository store = open(live);
+        store.save(player("Первый", Race.ELF, 10));
+        store.save(player("Второй", Race.ELF, 20));
+
+        // Открытые файлы остаются у хранилища, а новый сегмент создать негде: на месте каталога файл
+        Path moved = directory.resolve("moved");
+        Files.move(live, moved);
+        Files.createFile(live);
+        try {
+            store.compact();
+            fail("Переключение сегмента должно упасть.");
+        } catch (IOException expected) {
+            // журнал остановлен
+        }
+        for (int i = 0; i < 2; i++) {
+            try {
+                store.save(player("Потерян", Race.ELF, 30));
+                fail("После ошибки записи журнал не принимает изменения.");
+            } catch (DataAccessResourceFailureException expected) {
+                // хранилище только для чтения
+            }
+        }
+        assertEquals("Неудавшаяся запись не должна попасть в таблицу.", 2L, store.count());
+        assertEquals("Хранилище должно отметить ошибку.", true, store.metrics().get("failed"));
+        assertEquals("В журнале только записи до ошибки.", 2L, open(crashCopy(moved)).count());
+    }
+
+    private LogStructuredPlayerRepository open(Path dir) throws IOException {
+        LogStructuredPlayerRepository store = new LogStructuredPlayerRepository(dir.toString(), true, 200, 1 << 20);
+        opened.add(store);
+        return store;
+    }
+
+    private Path crashCopy(Path source) throws IOException {
+        Path copy = Files.createTempDirectory(directory, "crash");
+        try (Stream<Path> files = Files.list(source)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                if (!file.getFileName().toString().equals("lock")) {
+                    Files.copy(file, copy.resolve(file.getFileName()));
+                }
+            }
+        }
+        return copy;
+    }
+
+    private static Player player(String name, Race race, int experience) {
+        Player player = new Player();
+        player.setName(name);
+        player.setTitle("Титул");
+        player.setRace(race);
+        player.setProfession(Profession.WARRIOR);
+        player.setBirthday(java.sql.Date.valueOf("2005-06-07"));
+        player.setBanned(false);
+        player.setExperience(experience);
+        player.setLevel(0);
+        player.setUntilNextLevel(100);
+        return player;
+    }
+
+    private static List<String> describe(List<Player> players) {
+        return players.stream()
+                .map(p -> p.getId() + "|" + p.getName() + "|" + p.getRace() + "|" + p.getBirthday() + "|" + p.getExperience())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,154 @@
+package com.game.service;
+
+import com.game.controller.NameCollation;
+import com.game.controller.PlayerOrder;
+import com.game.datasource.ShardDataSources;
+import com.game.datasource.ShardRoutingDataSource;
+import com.game.entity.Player;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+public class PlayerShardsTest {
+    private static final int SHARDS = 3;
+
+    private final List<EmbeddedDatabase> databases = new ArrayList<>();
+    private DataSource dataSource;
+    private PlayerShards playerShards;
+
+    @Before
+    public void setUp() {
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                    .generateUniqueName(true)
+                    .setType(H2)
+                    .setScriptEncoding("UTF-8")
+                    .addScript("test.sql")
+                    .build();
+            new JdbcTemplate(database).update("DELETE FROM player");
+            ShardDataSources.interleaveIdentity(database, i, SHARDS);
+            databases.add(database);
+            shards.add(database);
+        }
+        dataSource = new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shards));
+        playerShards = new PlayerShards(SHARDS, new DataSourceTransactionManager(dataSource));
+        for (int i = 0; i < 30; i++) {
+            insert("player" + i, (i * 7919) % 1000);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        playerShards.destroy();
+        databases.forEach(EmbeddedDatabase::shutdown);
+    }
+
+    @Test
+    public void idsAreInterleavedAndRoutedToOwningShard() {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            List<Long> ids = new JdbcTemplate(databases.get(shard)).queryForList("SELECT id FROM player", Long.class);
+            assertEquals("Новые игроки должны раскладываться по шардам поровну", 10, ids.size());
+            for (Long id : ids) {
+                assertEquals("id должен указывать на шард, где лежит игрок", shard, playerShards.shardFor(id));
+            }
+        }
+        long id = new JdbcTemplate(databases.get(1)).queryForObject("SELECT MIN(id) FROM player", Long.class);
+        String name = playerShards.onShard(playerShards.shardFor(id), () -> new JdbcTemplate(dataSource)
+                .queryForObject("SELECT name FROM player WHERE id = ?", String.class, id));
+        assertEquals("Чтение по id должно идти в один шард", "player1", name);
+    }
+
+    @Test
+    public void scatterGatherMergesPagesAndCounts() {
+        int total = playerShards.onAllShards(() -> new JdbcTemplate(dataSource)
+                .queryForObject("SELECT COUNT(*) FROM player", Integer.class))
+                .stream().mapToInt(Integer::intValue).sum();
+        assertEquals("Количество должно суммироваться по всем шардам", 30, total);
+
+        int pageNumber = 2;
+        int pageSize = 4;
+        List<List<Player>> pages = playerShards.onAllShards(() -> new JdbcTemplate(dataSource).query(
+                "SELECT id, name, experience FROM player ORDER BY experience, id LIMIT ?",
+                (rs, row) -> player(rs.getLong("id"), rs.getString("name"), rs.getInt("experience")),
+                (pageNumber + 1) * pageSize));
+        List<Long> merged = SortedMerge.merge(pages, PlayerOrder.comparator(PlayerOrder.EXPERIENCE),
+                pageNumber * pageSize, pageSize).stream().map(Player::getId).collect(Collectors.toList());
+
+        List<Long> expected = databases.stream()
+                .flatMap(database -> new JdbcTemplate(database).query("SELECT id, name, experience FROM player",
+                        (rs, row) -> player(rs.getLong("id"), rs.getString("name"), rs.getInt("experience"))).stream())
+                .sorted(PlayerOrder.comparator(PlayerOrder.EXPERIENCE))
+                .skip(pageNumber * pageSize)
+                .limit(pageSize)
+                .map(Player::getId)
+                .collect(Collectors.toList());
+        assertEquals("Слияние страниц шардов должно совпадать с общей сортировкой", expected, merged);
+    }
+
+    @Test
+    public void mergeHandlesShortAndEmptyLists() {
+        List<List<Player>> lists = Arrays.asList(
+                Arrays.asList(player(1, "a", 1), player(4, "d", 4)),
+                new ArrayList<>(),
+                Arrays.asList(player(2, "b", 2)));
+        List<Long> merged = SortedMerge.merge(lists, PlayerOrder.comparator(null), 1, 10)
+                .stream().map(Player::getId).collect(Collectors.toList());
+        assertEquals(Arrays.asList(2L, 4L), merged);
+    }
+
+    @Test
+    public void nameOrderFollowsDatabaseCollation() {
+        List<Player> players = Arrays.asList(player(1, "ёж", 1), player(2, "Ель", 2), player(3, "Еда", 3),
+                player(4, "bob", 4), player(5, "Alice", 5), player(6, "еда ", 6));
+        List<Long> binary = players.stream()
+                .sorted(PlayerOrder.comparator(PlayerOrder.NAME, NameCollation.BINARY))
+                .map(Player::getId).collect(Collectors.toList());
+        assertEquals("H2 сравнивает строки как String.compareTo", Arrays.asList(5L, 4L, 3L, 2L, 6L, 1L), binary);
+        List<Long> generalCi = players.stream()
+                .sorted(PlayerOrder.comparator(PlayerOrder.NAME, NameCollation.GENERAL_CI))
+                .map(Player::getId).collect(Collectors.toList());
+        assertEquals("utf8_general_ci: регистр и пробелы в конце не важны, ё = е, равные - по id",
+                Arrays.asList(5L, 4L, 3L, 6L, 1L, 2L), generalCi);
+    }
+
+    private void insert(String name, int experience) {
+        int shard = playerShards.nextShardForInsert();
+        playerShards.onShard(shard, () -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            new JdbcTemplate(dataSource).update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO player(name, experience) VALUES (?, ?)", new String[]{"id"});
+                statement.setString(1, name);
+                statement.setInt(2, experience);
+                return statement;
+            }, keyHolder);
+            return keyHolder.getKey();
+        });
+    }
+
+    private static Player player(long id, String name, int experience) {
+        Player player = new Player();
+        player.setId(id);
+        player.setName(name);
+        player.setExperience(experience);
+        return player;
+    }
+}
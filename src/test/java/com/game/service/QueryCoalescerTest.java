@@ -0,0 +1,132 @@
+package com.game.service;
+
+import com.game.trace.StatementCapture;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QueryCoalescerTest {
+    private static final int CALLERS = 16;
+
+    @Test
+    public void concurrentIdenticalQueriesRunOnce() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer(true);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> coalescer.execute(() -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return 42;
+                }, "count", "filter")));
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // Ждем, пока все остальные вызовы присоединятся к уже идущему запросу
+            long deadline = System.currentTimeMillis() + 5000;
+            while (coalescer.metrics().get("coalesced") < CALLERS - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(Integer.valueOf(42), result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+        assertEquals(Long.valueOf(CALLERS - 1), coalescer.metrics().get("coalesced"));
+    }
+
+    @Test
+    public void finishedQueryIsNotCached() {
+        QueryCoalescer coalescer = new QueryCoalescer(true);
+        AtomicInteger executions = new AtomicInteger();
+        coalescer.execute(executions::incrementAndGet, "list", 0);
+        coalescer.execute(executions::incrementAndGet, "list", 0);
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void writeStartsNewFlight() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer(true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> before = executor.submit(() -> coalescer.execute(() -> {
+                started.countDown();
+                await(release);
+                return "before";
+            }, "count"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // После записи вызов не должен получить результат запроса, начатого до нее
+            coalescer.playerDeleted(1L);
+            assertEquals("after", coalescer.execute(() -> "after", "count"));
+            release.countDown();
+            assertEquals("before", before.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failureIsSharedAndForgotten() {
+        QueryCoalescer coalescer = new QueryCoalescer(true);
+        try {
+            coalescer.execute(() -> {
+                throw new IllegalStateException("db down");
+            }, "count");
+        } catch (IllegalStateException expected) {
+            assertEquals("db down", expected.getMessage());
+        }
+        assertEquals("ok", coalescer.execute(() -> "ok", "count"));
+    }
+
+    @Test
+    public void capturedQueryDoesNotJoinFlight() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer(true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> running = executor.submit(() -> coalescer.execute(() -> {
+                started.countDown();
+                await(release);
+                return "running";
+            }, "list"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // Разбор должен выполнить запрос в своем потоке, иначе записывать нечего
+            try (StatementCapture ignored = StatementCapture.start()) {
+                assertEquals("captured", coalescer.execute(() -> "captured", "list"));
+            }
+            release.countDown();
+            assertEquals("running", running.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Long.valueOf(0), coalescer.metrics().get("coalesced"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
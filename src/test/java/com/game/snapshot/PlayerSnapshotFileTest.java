@@ -0,0 +1,117 @@
+package com.game.snapshot;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNull;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.util.AssertionErrors.fail;
+
+public class PlayerSnapshotFileTest {
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("snapshot-test");
+        file = directory.resolve("players.snapshot");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    //test1
+    @Test
+    public void roundTripKeepsAllColumns() throws Exception {
+        List<Player> players = Arrays.asList(
+                player(1, "Ниус", "Приходящий Без Шума", Race.HOBBIT, Profession.ROGUE, "2010-10-12", false, 58347),
+                player(7, "Талан", "Приходящий Без Шума", Race.HOBBIT, Profession.ROGUE, "2005-05-15", true, 68950),
+                new Player());
+        players.get(2).setId(9L);
+
+        long size = PlayerSnapshotFile.write(file, new PlayerSnapshot(players, 9, 123456789L));
+        assertEquals("Размер файла должен совпадать с возвращенным.", size, Files.size(file));
+        assertTrue("Повторяющиеся строки должны храниться в пуле один раз.",
+                size < PlayerSnapshotFile.HEADER_BYTES + 3 * PlayerSnapshotFile.ROW_BYTES + 80);
+
+        PlayerSnapshot read = PlayerSnapshotFile.read(file);
+        assertEquals("Неверный наибольший id.", 9L, read.getMaxId());
+        assertEquals("Неверная отметка времени.", 123456789L, read.getHighWaterMillis());
+        List<Player> actual = new ArrayList<>(read.getPlayers());
+        assertEquals("Должны прочитаться все игроки.", 3, actual.size());
+        for (int i = 0; i < 2; i++) {
+            assertEquals("Игрок должен прочитаться без изменений.", describe(players.get(i)), describe(actual.get(i)));
+        }
+        Player empty = actual.get(2);
+        assertEquals("id пустого игрока.", 9L, (long) empty.getId());
+        assertNull("Пустое имя должно остаться null.", empty.getName());
+        assertNull("Пустой опыт должен остаться null.", empty.getExperience());
+        assertNull("Пустой бан должен остаться null.", empty.getBanned());
+        assertNull("Пустая дата должна остаться null.", empty.getBirthday());
+    }
+
+    //test2
+    @Test
+    public void damagedFileIsRejected() throws Exception {
+        List<Player> players = Arrays.asList(
+                player(1, "Ниус", "Приходящий Без Шума", Race.HOBBIT, Profession.ROGUE, "2010-10-12", false, 58347));
+        PlayerSnapshotFile.write(file, new PlayerSnapshot(players, 1, 1L));
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(PlayerSnapshotFile.HEADER_BYTES + 20);
+            raw.write(raw.read() ^ 0x5A);
+        }
+        expectRejected("Испорченный байт должен ловиться контрольной суммой.");
+
+        PlayerSnapshotFile.write(file, new PlayerSnapshot(players, 1, 1L));
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.setLength(raw.length() - 3);
+        }
+        expectRejected("Обрезанный файл должен отвергаться.");
+    }
+
+    private void expectRejected(String message) {
+        try {
+            PlayerSnapshotFile.read(file);
+            fail(message);
+        } catch (IOException expected) {
+            // снимок не используется, игроки читаются из базы
+        }
+    }
+
+    private static Player player(long id, String name, String title, Race race, Profession profession, String birthday,
+                                 boolean banned, int experience) {
+        Player player = new Player();
+        player.setId(id);
+        player.setName(name);
+        player.setTitle(title);
+        player.setRace(race);
+        player.setProfession(profession);
+        player.setBirthday(java.sql.Date.valueOf(birthday));
+        player.setBanned(banned);
+        player.setExperience(experience);
+        player.setLevel(33);
+        player.setUntilNextLevel(1153);
+        return player;
+    }
+
+    private static String describe(Player p) {
+        return p.getId() + "|" + p.getName() + "|" + p.getTitle() + "|" + p.getRace() + "|" + p.getProfession() + "|"
+                + p.getBirthday() + "|" + p.getBanned() + "|" + p.getExperience() + "|" + p.getLevel() + "|" + p.getUntilNextLevel();
+    }
+}
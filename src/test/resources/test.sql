@@ -12,6 +12,30 @@ CREATE TABLE player
     experience     INT(10)     NULL,
     level          INT(3)      NULL,
     untilNextLevel INT(10)     NULL,
+    updated        TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    deleted        TIMESTAMP(3) NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX player_updated ON player (updated);
+CREATE INDEX player_deleted ON player (deleted);
+
+DROP TABLE IF EXISTS player_archive;
+
+CREATE TABLE player_archive
+(
+    id             BIGINT(20)  NOT NULL,
+    name           VARCHAR(12) NULL,
+    title          VARCHAR(30) NULL,
+    race           VARCHAR(20) NULL,
+    profession     VARCHAR(20) NULL,
+    birthday       DATE        NULL,
+    banned         BIT(1)      NULL,
+    experience     INT(10)     NULL,
+    level          INT(3)      NULL,
+    untilNextLevel INT(10)     NULL,
+    updated        TIMESTAMP(3) NOT NULL,
+    archived       TIMESTAMP(3) NOT NULL,
     PRIMARY KEY (id)
 );
 